@@ -0,0 +1,114 @@
+package com.notification.benchmark;
+
+import com.notification.config.QueueProperties;
+import com.notification.config.TracingProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import com.notification.repository.NotificationJobRepository;
+import com.notification.service.JobTracing;
+import com.notification.service.QueueManager;
+import com.notification.service.SchedulingPolicy;
+import com.notification.service.StrictPrioritySchedulingPolicy;
+import com.notification.service.WeightedFairSchedulingPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Wiring for benchmarks that run services outside Spring: repositories are
+ * dynamic proxies answering only the methods a benchmark needs.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Proxy for a Spring Data repository interface. Methods not in {@code answers}
+     * return null (or 0 / false for primitives).
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stubRepository(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == int.class || returnType == long.class) {
+                return returnType == int.class ? (Object) 0 : (Object) 0L;
+            }
+            return returnType == boolean.class ? false : null;
+        });
+    }
+
+    static QueueManager queueManager(int capacityPerLevel) {
+        return queueManager(capacityPerLevel, new StrictPrioritySchedulingPolicy());
+    }
+
+    static QueueManager queueManager(int capacityPerLevel, String policy) {
+        SchedulingPolicy schedulingPolicy = "WEIGHTED_FAIR".equals(policy)
+                ? new WeightedFairSchedulingPolicy(Map.of(2, 3.0, 3, 1.0))
+                : new StrictPrioritySchedulingPolicy();
+        return queueManager(capacityPerLevel, schedulingPolicy);
+    }
+
+    static QueueManager queueManager(int capacityPerLevel, SchedulingPolicy schedulingPolicy) {
+        QueueProperties properties = new QueueProperties();
+        properties.getCapacity().setHigh(capacityPerLevel);
+        properties.getCapacity().setNormal(capacityPerLevel);
+        properties.getCapacity().setLow(capacityPerLevel);
+        // Spilling is a no-op here, the benchmarks keep the queues below capacity
+        NotificationJobRepository repository = stubRepository(NotificationJobRepository.class, Map.of());
+        return new QueueManager(repository, properties, schedulingPolicy, new SimpleMeterRegistry(), tracing());
+    }
+
+    static JobTracing tracing() {
+        return new JobTracing(ObservationRegistry.NOOP, new TracingProperties());
+    }
+
+    static NotificationJob job(long id, int priority) {
+        NotificationJob job = new NotificationJob();
+        job.setId(id);
+        job.setTargetUrl("https://api.vendor.example/hooks/" + id);
+        job.setHeaders(Map.of("Authorization", "Bearer token", "X-Request-Source", "benchmark"));
+        job.setPayload("{\"event\":\"order.shipped\",\"orderId\":\"ord-" + id + "\"}");
+        job.setStatus(NotificationStatus.PENDING);
+        job.setPriority(priority);
+        job.setCreatedAt(LocalDateTime.now().plusNanos(id * 1000));
+        job.setNextRetryAt(job.getCreatedAt());
+        return job;
+    }
+
+    // Roughly the shape of a typical vendor webhook body
+    static Map<String, Object> payload(long id) {
+        Map<String, Object> customer = new HashMap<>();
+        customer.put("id", "cust-" + id);
+        customer.put("name", "Jane Doe");
+        customer.put("email", "jane.doe@example.com");
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("event", "order.shipped");
+        payload.put("orderId", "ord-" + id);
+        payload.put("amount", 129.95);
+        payload.put("currency", "EUR");
+        payload.put("customer", customer);
+        payload.put("items", List.of(
+                Map.of("sku", "SKU-1001", "quantity", 2, "title", "Coffee beans \"Espresso\" 1kg"),
+                Map.of("sku", "SKU-2002", "quantity", 1, "title", "Grinder <burr>")));
+        return payload;
+    }
+}
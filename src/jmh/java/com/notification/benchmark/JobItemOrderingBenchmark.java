@@ -0,0 +1,69 @@
+package com.notification.benchmark;
+
+import com.notification.domain.NotificationJob;
+import com.notification.service.QueueManager.JobItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of JobItem ordering in the standard tier's heap: one comparison, and an
+ * offer + poll at a steady queue size, which is log2(size) comparisons each way.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobItemOrderingBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int queueSize;
+
+    private PriorityBlockingQueue<JobItem> heap;
+    private JobItem left;
+    private JobItem right;
+    // Pre-built items re-offered in turn, so the measurement is not job construction
+    private JobItem[] incoming;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        heap = new PriorityBlockingQueue<>(queueSize + 1);
+        for (int i = 0; i < queueSize; i++) {
+            heap.offer(new JobItem(BenchmarkFixtures.job(i, 2 + (i & 1))));
+        }
+        incoming = new JobItem[1024];
+        for (int i = 0; i < incoming.length; i++) {
+            long id = queueSize + i;
+            incoming[i] = new JobItem(BenchmarkFixtures.job(id, 2 + (i & 1)));
+        }
+        // Same priority, so the comparison falls through to createdAt
+        left = new JobItem(BenchmarkFixtures.job(1, 2));
+        right = new JobItem(BenchmarkFixtures.job(2, 2));
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return left.compareTo(right);
+    }
+
+    @Benchmark
+    public NotificationJob offerAndPoll() {
+        heap.offer(incoming[next++ & (incoming.length - 1)]);
+        return heap.poll().job();
+    }
+}
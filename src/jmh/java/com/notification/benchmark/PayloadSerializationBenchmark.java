@@ -0,0 +1,42 @@
+package com.notification.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a request payload to the stored JSON text, once per job at submit
+ * time with the shared mapper; a mapper per call is kept for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadSerializationBenchmark {
+
+    private final Map<String, Object> payload = BenchmarkFixtures.payload(42);
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+
+    @Benchmark
+    public String mapperPerCall() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(payload);
+    }
+
+    @Benchmark
+    public String sharedMapper() throws JsonProcessingException {
+        return sharedMapper.writeValueAsString(payload);
+    }
+}
@@ -0,0 +1,83 @@
+package com.notification.benchmark;
+
+import com.notification.domain.NotificationJob;
+import com.notification.service.QueueManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * push + take round trips on a shared QueueManager from several threads at once.
+ * Every thread pushes before it takes, so the queue never runs dry and take()
+ * never blocks; the contended part is the queue itself and the occupancy counters.
+ * {@code backlog} pre-fills the tier to see how depth affects the standard heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class QueueManagerBenchmark {
+
+    @Param({ "0", "10000" })
+    public int backlog;
+
+    @Param({ "STRICT_PRIORITY", "WEIGHTED_FAIR" })
+    public String policy;
+
+    private final AtomicLong ids = new AtomicLong();
+    private QueueManager queueManager;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        queueManager = BenchmarkFixtures.queueManager(backlog + 100_000, policy);
+        for (int i = 0; i < backlog; i++) {
+            queueManager.push(BenchmarkFixtures.job(ids.incrementAndGet(), 1));
+            queueManager.push(BenchmarkFixtures.job(ids.incrementAndGet(), 2 + (i & 1)));
+        }
+    }
+
+    @Benchmark
+    public NotificationJob highTier(Producer producer) throws InterruptedException {
+        queueManager.push(producer.high);
+        // Whatever comes out is pushed next time, so jobs circulate instead of being allocated
+        producer.high = queueManager.takeHigh();
+        return producer.high;
+    }
+
+    @Benchmark
+    public NotificationJob standardTier(Producer producer) throws InterruptedException {
+        queueManager.push(producer.standard);
+        producer.standard = queueManager.takeStandard();
+        return producer.standard;
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        NotificationJob high;
+        NotificationJob standard;
+
+        @Setup(Level.Iteration)
+        public void setUp(QueueManagerBenchmark benchmark) {
+            high = BenchmarkFixtures.job(benchmark.ids.incrementAndGet(), 1);
+            standard = BenchmarkFixtures.job(benchmark.ids.incrementAndGet(),
+                    ThreadLocalRandom.current().nextBoolean() ? 2 : 3);
+        }
+    }
+}
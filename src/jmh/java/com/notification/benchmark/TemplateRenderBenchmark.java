@@ -0,0 +1,88 @@
+package com.notification.benchmark;
+
+import com.notification.config.TemplateCacheProperties;
+import com.notification.config.TemplateRenderProperties;
+import com.notification.domain.TemplateConfig;
+import com.notification.repository.TemplateConfigRepository;
+import com.notification.service.TemplateService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TemplateService.render against an in-memory repository. The template is
+ * compiled once in setup, so this is the steady state: cache lookup plus render.
+ * "simple" takes the substitution fast path unless fastPath is false; "rich" always
+ * goes through FreeMarker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateRenderBenchmark {
+
+    private static final Map<String, String> TEMPLATES = Map.of(
+            // Flat substitution, the common case
+            "simple", "{\"event\":\"${event}\",\"order\":\"${orderId}\",\"email\":\"${customer.email}\"}",
+            // Escaping, a nested object and a list
+            "rich", "{\"event\":\"${event?json_string}\",\"order\":\"${orderId?json_string}\","
+                    + "\"customer\":{\"name\":\"${customer.name?json_string}\",\"email\":\"${customer.email}\"},"
+                    + "\"amount\":${amount?c},\"items\":[<#list items as item>{\"sku\":\"${item.sku}\","
+                    + "\"title\":\"${item.title?json_string}\",\"qty\":${item.quantity}}<#sep>,</#list>]}");
+
+    @Param({ "simple", "rich" })
+    public String template;
+
+    @Param({ "true", "false" })
+    public boolean fastPath;
+
+    private TemplateService templateService;
+    private Map<String, Object> model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TemplateConfig config = new TemplateConfig();
+        config.setId(1L);
+        config.setName(template);
+        config.setContent(TEMPLATES.get(template));
+        config.setUpdatedAt(LocalDateTime.now());
+
+        TemplateConfigRepository repository = BenchmarkFixtures.stubRepository(TemplateConfigRepository.class, Map.of(
+                "findById", args -> Optional.of(config),
+                "findUpdatedAtById", args -> Optional.of(config.getUpdatedAt())));
+        TemplateCacheProperties cacheProperties = new TemplateCacheProperties();
+        cacheProperties.setRefreshInterval(Duration.ofHours(1));
+
+        TemplateRenderProperties renderProperties = new TemplateRenderProperties();
+        renderProperties.setFastPath(fastPath);
+        renderProperties.setVerifySampleRate(0);
+
+        templateService = new TemplateService(repository, cacheProperties, renderProperties,
+                new SimpleMeterRegistry());
+        model = BenchmarkFixtures.payload(42);
+        templateService.render(1L, model);
+    }
+
+    @Benchmark
+    public byte[] render() {
+        return templateService.render(1L, model);
+    }
+}
@@ -0,0 +1,116 @@
+package com.notification.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop generator: submissions are started on a fixed schedule whether or not
+ * earlier ones have returned, so a slow API shows up as latency instead of a lower
+ * offered rate.
+ */
+@Slf4j
+final class LoadGenerator {
+
+    private final LoadTestConfig config;
+    private final URI submitUri;
+    private final String vendorUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    LoadGenerator(LoadTestConfig config, int appPort, String vendorUrl) {
+        this.config = config;
+        this.submitUri = URI.create("http://127.0.0.1:" + appPort + "/api/v1/notifications");
+        this.vendorUrl = vendorUrl;
+    }
+
+    List<Submission> run() {
+        long total = (long) config.rate() * config.duration().toSeconds();
+        long intervalNanos = 1_000_000_000L / Math.max(1, config.rate());
+        List<Submission> submissions = new ArrayList<>((int) total);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>((int) total);
+
+        log.info("Offering {} submissions at {}/s for {}", total, config.rate(), config.duration());
+        long startedAt = System.nanoTime();
+        for (long id = 0; id < total; id++) {
+            long due = startedAt + id * intervalNanos;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Submission submission = new Submission(id, pickPriority());
+            submissions.add(submission);
+            inFlight.add(submit(submission));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        log.info("Offered load done in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+        return submissions;
+    }
+
+    private CompletableFuture<?> submit(Submission submission) {
+        Map<String, Object> body = Map.of(
+                "targetUrl", vendorUrl,
+                "priority", submission.priority,
+                "headers", Map.of(StubVendor.LOAD_ID_HEADER, String.valueOf(submission.id)),
+                "payload", Map.of("loadId", submission.id, "message", "load test notification"));
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(submitUri)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        submission.submittedAt = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    submission.respondedAt = System.nanoTime();
+                    submission.status = error == null ? response.statusCode() : -1;
+                    return null;
+                });
+    }
+
+    private int pickPriority() {
+        int[] weights = config.priorityWeights();
+        int roll = ThreadLocalRandom.current().nextInt(weights[0] + weights[1] + weights[2]);
+        if (roll < weights[0]) {
+            return 1;
+        }
+        return roll < weights[0] + weights[1] ? 2 : 3;
+    }
+
+    static final class Submission {
+        final long id;
+        final int priority;
+        volatile long submittedAt;
+        volatile long respondedAt;
+        // HTTP status of the submit call, -1 on a transport error
+        volatile int status;
+
+        Submission(long id, int priority) {
+            this.id = id;
+            this.priority = priority;
+        }
+
+        boolean accepted() {
+            return status == 202;
+        }
+    }
+}
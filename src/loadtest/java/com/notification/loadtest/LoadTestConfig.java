@@ -0,0 +1,78 @@
+package com.notification.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties. Properties
+ * starting with {@code app.} are handed to the application context with the
+ * prefix stripped, e.g. {@code -Dapp.notification.queue.capacity.low=5000}.
+ */
+record LoadTestConfig(
+        // Offered load: submissions per second for this long, open loop
+        int rate,
+        Duration duration,
+        // Relative weights of priorities 1, 2 and 3, e.g. "10,30,60"
+        int[] priorityWeights,
+        // How long to wait after the last submission for jobs to reach a final state
+        Duration drainTimeout,
+        // External database; a MySQL Testcontainer is started when not set
+        String jdbcUrl,
+        String jdbcUser,
+        String jdbcPassword,
+        String mysqlImage,
+        // Stub vendor behaviour
+        long latencyP50Millis,
+        long latencyP99Millis,
+        double serverErrorRate,
+        double clientErrorRate,
+        double hangRate,
+        Duration hangDuration,
+        String reportFile,
+        Map<String, Object> appProperties) {
+
+    static LoadTestConfig fromSystemProperties() {
+        Map<String, Object> appProperties = new LinkedHashMap<>();
+        System.getProperties().forEach((key, value) -> {
+            String name = key.toString();
+            if (name.startsWith("app.")) {
+                appProperties.put(name.substring(4), value);
+            }
+        });
+        return new LoadTestConfig(
+                Integer.parseInt(property("rate", "200")),
+                Duration.parse(property("duration", "PT1M")),
+                parseWeights(property("priority-mix", "10,30,60")),
+                Duration.parse(property("drain-timeout", "PT5M")),
+                System.getProperty("loadtest.jdbc-url"),
+                property("jdbc-user", "root"),
+                property("jdbc-password", ""),
+                property("mysql-image", "mysql:8.0"),
+                Long.parseLong(property("vendor.latency-p50-ms", "20")),
+                Long.parseLong(property("vendor.latency-p99-ms", "200")),
+                Double.parseDouble(property("vendor.server-error-rate", "0.0")),
+                Double.parseDouble(property("vendor.client-error-rate", "0.0")),
+                Double.parseDouble(property("vendor.hang-rate", "0.0")),
+                // Longer than the dispatcher's 30s task timeout, so a hang counts as a timeout
+                Duration.parse(property("vendor.hang-duration", "PT35S")),
+                property("report-file", "target/loadtest-report.json"),
+                appProperties);
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    private static int[] parseWeights(String mix) {
+        String[] parts = mix.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("loadtest.priority-mix needs three weights, got: " + mix);
+        }
+        int[] weights = new int[3];
+        for (int i = 0; i < 3; i++) {
+            weights[i] = Integer.parseInt(parts[i].trim());
+        }
+        return weights;
+    }
+}
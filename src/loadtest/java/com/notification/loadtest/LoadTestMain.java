@@ -0,0 +1,113 @@
+package com.notification.loadtest;
+
+import com.notification.NotificationApplication;
+import com.notification.loadtest.LoadGenerator.Submission;
+import com.notification.service.LeaderElectionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test: starts the stub vendor, a database and the application,
+ * drives the submit API at the configured rate, waits for the jobs to settle and
+ * writes a report. See {@link LoadTestConfig} for the knobs.
+ */
+@Slf4j
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        MySQLContainer<?> mysql = null;
+        try (StubVendor vendor = StubVendor.start(config)) {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            if (config.jdbcUrl() != null) {
+                properties.put("spring.datasource.url", config.jdbcUrl());
+                properties.put("spring.datasource.username", config.jdbcUser());
+                properties.put("spring.datasource.password", config.jdbcPassword());
+            } else {
+                mysql = new MySQLContainer<>(config.mysqlImage())
+                        .withDatabaseName("notification_db")
+                        .withUrlParam("rewriteBatchedStatements", "true");
+                mysql.start();
+                properties.put("spring.datasource.url", mysql.getJdbcUrl());
+                properties.put("spring.datasource.username", mysql.getUsername());
+                properties.put("spring.datasource.password", mysql.getPassword());
+            }
+            properties.put("server.port", 0);
+            // The stub is one host; per-vendor limits would cap the run, not the app
+            properties.put("notification.rate-limit.enabled", false);
+            properties.put("logging.level.com.notification", "WARN");
+            properties.putAll(config.appProperties());
+
+            try (ConfigurableApplicationContext app = new SpringApplicationBuilder(NotificationApplication.class)
+                    .properties(properties)
+                    .run()) {
+                awaitDispatching(app.getBean(LeaderElectionService.class));
+                int port = Integer.parseInt(app.getEnvironment().getRequiredProperty("local.server.port"));
+
+                List<Submission> submissions = new LoadGenerator(config, port, vendor.url()).run();
+                JdbcTemplate jdbcTemplate = app.getBean(JdbcTemplate.class);
+                awaitDrained(jdbcTemplate, config);
+
+                double timeouts = app.getBean(MeterRegistry.class).find("notification.dispatch.timeouts")
+                        .counters().stream().mapToDouble(Counter::count).sum();
+                Map<String, Object> report = LoadTestReport.build(config, submissions, vendor, timeouts,
+                        finalStatuses(jdbcTemplate));
+                LoadTestReport.write(report, config.reportFile());
+            }
+        } finally {
+            if (mysql != null) {
+                mysql.stop();
+            }
+        }
+    }
+
+    private static void awaitDispatching(LeaderElectionService leaderElectionService) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!leaderElectionService.isDispatchingNode()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Node did not become a dispatching node within 60s");
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    // Waits until no job is left PENDING or FAILED, i.e. every accepted job is final
+    private static void awaitDrained(JdbcTemplate jdbcTemplate, LoadTestConfig config) throws InterruptedException {
+        long deadline = System.nanoTime() + config.drainTimeout().toNanos();
+        while (true) {
+            Long open = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM notification_job WHERE status IN ('PENDING', 'FAILED')", Long.class);
+            if (open == null || open == 0) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                log.warn("{} jobs still open after the drain timeout", open);
+                return;
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    private static Map<String, Long> finalStatuses(JdbcTemplate jdbcTemplate) {
+        Map<String, Long> statuses = new TreeMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM notification_job GROUP BY status",
+                rs -> {
+                    statuses.put(rs.getString(1), rs.getLong(2));
+                });
+        return statuses;
+    }
+}
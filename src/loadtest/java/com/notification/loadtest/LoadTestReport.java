@@ -0,0 +1,116 @@
+package com.notification.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.notification.loadtest.LoadGenerator.Submission;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarises a run: throughput, submit and submit-to-delivery latency percentiles
+ * per priority, timeouts and retry amplification (vendor requests per accepted job).
+ */
+@Slf4j
+final class LoadTestReport {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private LoadTestReport() {
+    }
+
+    static Map<String, Object> build(LoadTestConfig config, List<Submission> submissions, StubVendor vendor,
+            double timeouts, Map<String, Long> finalStatuses) {
+        Map<Integer, Long> rejected = new TreeMap<>();
+        List<Long> submitLatencies = new ArrayList<>();
+        Map<Integer, List<Long>> deliveryLatencies = new TreeMap<>();
+        long accepted = 0;
+        long delivered = 0;
+        long firstSubmit = Long.MAX_VALUE;
+        long lastDelivery = Long.MIN_VALUE;
+
+        for (Submission submission : submissions) {
+            firstSubmit = Math.min(firstSubmit, submission.submittedAt);
+            submitLatencies.add(submission.respondedAt - submission.submittedAt);
+            if (!submission.accepted()) {
+                rejected.merge(submission.status, 1L, Long::sum);
+                continue;
+            }
+            accepted++;
+            StubVendor.Delivery delivery = vendor.delivery(submission.id);
+            long deliveredAt = delivery != null ? delivery.firstDeliveredAt.get() : 0;
+            if (deliveredAt != 0) {
+                delivered++;
+                lastDelivery = Math.max(lastDelivery, deliveredAt);
+                deliveryLatencies.computeIfAbsent(submission.priority, p -> new ArrayList<>())
+                        .add(deliveredAt - submission.submittedAt);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("offeredRatePerSecond", config.rate());
+        report.put("durationSeconds", config.duration().toSeconds());
+        report.put("submitted", submissions.size());
+        report.put("accepted", accepted);
+        report.put("rejectedByStatus", rejected);
+        report.put("submitLatencyMillis", percentiles(submitLatencies));
+        report.put("delivered", delivered);
+        report.put("undelivered", accepted - delivered);
+        double windowSeconds = delivered > 0 ? (lastDelivery - firstSubmit) / 1e9 : 0;
+        report.put("deliveredPerSecond", windowSeconds > 0 ? round(delivered / windowSeconds) : 0);
+
+        Map<String, Object> perPriority = new LinkedHashMap<>();
+        deliveryLatencies.forEach((priority, latencies) -> perPriority.put("priority" + priority,
+                percentiles(latencies)));
+        report.put("deliveryLatencyMillis", perPriority);
+
+        report.put("timeouts", (long) timeouts);
+        report.put("vendorRequests", vendor.requests());
+        report.put("vendorServerErrors", vendor.serverErrors());
+        report.put("vendorClientErrors", vendor.clientErrors());
+        report.put("vendorHangs", vendor.hangs());
+        report.put("retryAmplification", accepted > 0 ? round((double) vendor.requests() / accepted) : 0);
+        report.put("finalStatuses", finalStatuses);
+        return report;
+    }
+
+    static void write(Map<String, Object> report, String file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        String json = mapper.writeValueAsString(report);
+        log.info("Load test report:\n{}", json);
+        File target = new File(file);
+        if (target.getParentFile() != null) {
+            target.getParentFile().mkdirs();
+        }
+        mapper.writeValue(target, report);
+        log.info("Report written to {}", target.getAbsolutePath());
+    }
+
+    private static Map<String, Object> percentiles(List<Long> nanos) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", nanos.size());
+        if (nanos.isEmpty()) {
+            return result;
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        for (double p : PERCENTILES) {
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p / 100 * sorted.length) - 1);
+            result.put("p" + (p == Math.floor(p) ? String.valueOf((int) p) : String.valueOf(p)),
+                    round(sorted[Math.max(0, index)] / 1e6));
+        }
+        result.put("max", round(sorted[sorted.length - 1] / 1e6));
+        return result;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
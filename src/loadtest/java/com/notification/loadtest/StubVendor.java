@@ -0,0 +1,140 @@
+package com.notification.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded vendor endpoint. Each request is answered after a log-normal latency
+ * (fitted to the configured p50/p99), fails with 503 or 400 at the configured
+ * rates, or hangs past the dispatcher timeout. Requests are matched to
+ * submissions by the X-Load-Id header the generator sets.
+ */
+@Slf4j
+final class StubVendor implements AutoCloseable {
+
+    static final String LOAD_ID_HEADER = "X-Load-Id";
+
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final LoadTestConfig config;
+    private final HttpServer server;
+    private final double mu;
+    private final double sigma;
+
+    private final Map<Long, Delivery> deliveries = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder hangs = new LongAdder();
+
+    private StubVendor(LoadTestConfig config, HttpServer server) {
+        this.config = config;
+        this.server = server;
+        long p50 = Math.max(1, config.latencyP50Millis());
+        long p99 = Math.max(p50, config.latencyP99Millis());
+        this.mu = Math.log(p50);
+        this.sigma = Math.log((double) p99 / p50) / Z_99;
+    }
+
+    static StubVendor start(LoadTestConfig config) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        StubVendor vendor = new StubVendor(config, server);
+        server.createContext("/hook", vendor::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        log.info("Stub vendor listening on {}", vendor.url());
+        return vendor;
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+    }
+
+    Delivery delivery(long loadId) {
+        return deliveries.get(loadId);
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long serverErrors() {
+        return serverErrors.sum();
+    }
+
+    long clientErrors() {
+        return clientErrors.sum();
+    }
+
+    long hangs() {
+        return hangs.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            long receivedAt = System.nanoTime();
+            requests.increment();
+
+            Delivery delivery = null;
+            String loadId = exchange.getRequestHeaders().getFirst(LOAD_ID_HEADER);
+            if (loadId != null) {
+                delivery = deliveries.computeIfAbsent(Long.parseLong(loadId), id -> new Delivery());
+                delivery.attempts.increment();
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double roll = random.nextDouble();
+            if (roll < config.hangRate()) {
+                hangs.increment();
+                Thread.sleep(config.hangDuration().toMillis());
+                exchange.sendResponseHeaders(504, -1);
+                return;
+            }
+
+            Thread.sleep((long) Math.exp(mu + sigma * random.nextGaussian()));
+            roll -= config.hangRate();
+            if (roll < config.serverErrorRate()) {
+                serverErrors.increment();
+                exchange.sendResponseHeaders(503, -1);
+            } else if (roll < config.serverErrorRate() + config.clientErrorRate()) {
+                clientErrors.increment();
+                exchange.sendResponseHeaders(400, -1);
+            } else {
+                if (delivery != null) {
+                    delivery.deliveredAt(receivedAt);
+                }
+                exchange.sendResponseHeaders(200, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class Delivery {
+        final LongAdder attempts = new LongAdder();
+        // nanoTime of the first request answered with 2xx, 0 until then
+        final AtomicLong firstDeliveredAt = new AtomicLong();
+
+        void deliveredAt(long nanos) {
+            firstDeliveredAt.compareAndSet(0, nanos);
+        }
+    }
+}
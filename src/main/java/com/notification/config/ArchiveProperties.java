@@ -0,0 +1,32 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.archive")
+public class ArchiveProperties {
+
+    private boolean enabled = true;
+
+    // ISO-8601 because @Scheduled reads these as well
+    private Duration interval = Duration.ofMinutes(1);
+    private Duration purgeInterval = Duration.ofHours(1);
+
+    // Finished jobs stay in the hot table this long; must cover the monitor's 5 minute window
+    private Duration hotRetention = Duration.ofHours(1);
+
+    // Archived jobs are purged after this long
+    private Duration retention = Duration.ofDays(90);
+
+    // Rows moved (or purged) per transaction, and the pause between transactions
+    private int batchSize = 500;
+    private Duration batchPause = Duration.ofMillis(50);
+
+    // Archive table is range-partitioned by month (see V8 migration): purge drops whole
+    // partitions and keeps the next months created, instead of deleting rows
+    private boolean partitioned = false;
+    private int partitionsAhead = 2;
+}
@@ -0,0 +1,66 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "notification.batching")
+public class BatchingProperties {
+
+    // Settings for every batching host unless the host's own entry sets them
+    private HostBatching defaults = HostBatching.withDefaults();
+
+    // Hosts listed here with enabled: true are sent in batches, e.g. "[api.vendor.com]"
+    private Map<String, HostBatching> hosts = new HashMap<>();
+
+    public enum ResultMode {
+        // Any 2xx delivers every job in the batch, any error fails all of them
+        WHOLE_BATCH,
+        // A 2xx response carries a JSON array with one status per job, in request order
+        PER_ITEM
+    }
+
+    @Data
+    public static class HostBatching {
+        private Boolean enabled;
+        // Batch endpoint; defaults to the target URL the jobs were submitted with
+        private String batchUrl;
+        private Integer maxBatchSize;
+        // How long the first job of a batch waits for company
+        private Duration linger;
+        // TemplateConfig name rendered with {items, count}; unset sends a JSON array of the item bodies
+        private String batchTemplate;
+        private ResultMode resultMode;
+        // PER_ITEM: field of each result object holding an HTTP-style status code
+        private String itemStatusField;
+
+        static HostBatching withDefaults() {
+            HostBatching batching = new HostBatching();
+            batching.setEnabled(false);
+            batching.setMaxBatchSize(100);
+            batching.setLinger(Duration.ofMillis(20));
+            batching.setResultMode(ResultMode.WHOLE_BATCH);
+            batching.setItemStatusField("status");
+            return batching;
+        }
+
+        /**
+         * Returns these settings with every unset field taken from {@code base}.
+         */
+        public HostBatching mergedOver(HostBatching base) {
+            HostBatching merged = new HostBatching();
+            merged.setEnabled(enabled != null ? enabled : base.getEnabled());
+            merged.setBatchUrl(batchUrl != null ? batchUrl : base.getBatchUrl());
+            merged.setMaxBatchSize(maxBatchSize != null ? maxBatchSize : base.getMaxBatchSize());
+            merged.setLinger(linger != null ? linger : base.getLinger());
+            merged.setBatchTemplate(batchTemplate != null ? batchTemplate : base.getBatchTemplate());
+            merged.setResultMode(resultMode != null ? resultMode : base.getResultMode());
+            merged.setItemStatusField(itemStatusField != null ? itemStatusField : base.getItemStatusField());
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.campaign")
+public class CampaignProperties {
+
+    // ISO-8601 because @Scheduled reads these as well
+    private Duration expandInterval = Duration.ofMillis(200);
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    // Recipients of one campaign expanded and not yet settled, at most
+    private int maxInFlight = 1000;
+
+    // Recipients inserted per JDBC batch when a campaign is created
+    private int insertBatchSize = 1000;
+}
@@ -0,0 +1,34 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    // Number of most recent calls per host the rates are computed over
+    private int windowSize = 20;
+
+    // Calls needed in the window before the breaker may trip
+    private int minimumCalls = 10;
+
+    // Share of EXTERNAL_SERVICE_UNAVAILABLE outcomes that opens the breaker
+    private double failureRateThreshold = 0.5;
+
+    // Calls slower than this count as slow, regardless of outcome
+    private Duration slowCallThreshold = Duration.ofSeconds(10);
+
+    // Share of slow calls that opens the breaker
+    private double slowCallRateThreshold = 0.8;
+
+    // Time the breaker stays open before probes are let through
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    // Concurrent probe calls allowed while half-open, all must succeed to close
+    private int halfOpenProbes = 3;
+}
@@ -0,0 +1,27 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.cluster")
+public class ClusterProperties {
+
+    public enum Mode {
+        // Only the elected leader accepts submissions and dispatches
+        LEADER,
+        // Every node accepts submissions and dispatches; work is split via row claims
+        ACTIVE_ACTIVE
+    }
+
+    private Mode mode = Mode.LEADER;
+
+    // How long a claim on a job stays valid without renewal; a crashed node's jobs
+    // become claimable by others after this
+    private Duration claimLease = Duration.ofSeconds(60);
+
+    // Owners extend their leases this often; ISO-8601 because @Scheduled reads it too
+    private Duration claimRenewInterval = Duration.ofSeconds(15);
+}
@@ -0,0 +1,25 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "notification.concurrency")
+public class ConcurrencyProperties {
+
+    // Adaptive limit on in-flight deliveries per priority executor; off means unbounded
+    private boolean enabled = true;
+
+    private int initialLimit = 100;
+    private int minLimit = 10;
+    private int maxLimit = 2000;
+
+    // Multiplicative decrease on a timeout or a slow call
+    private double backoffRatio = 0.9;
+
+    // A call slower than this multiple of the baseline (windowed minimum) latency counts as congestion
+    private double latencyTolerance = 2.0;
+
+    // Completions per baseline window; the baseline is the fastest call of the last window
+    private int windowSize = 200;
+}
@@ -0,0 +1,24 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.idempotency")
+public class IdempotencyProperties {
+
+    // Keys are deduplicated for as long as their job is kept, hot table plus archive
+    // (notification.archive.retention). Recently seen keys are answered from memory,
+    // least recently used is evicted first
+    private int cacheSize = 100_000;
+
+    // Longest accepted key
+    private int maxKeyLength = 128;
+
+    // Archived keys the per-node Bloom filter is sized for (about 12 MB at 10M), it is
+    // rebuilt once this many were added. Refreshed with newly archived keys this often
+    private long archiveFilterCapacity = 10_000_000;
+    private Duration archiveFilterRefresh = Duration.ofSeconds(5);
+}
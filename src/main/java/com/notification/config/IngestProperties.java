@@ -0,0 +1,20 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.ingest")
+public class IngestProperties {
+
+    // Lines parsed and committed per transaction on the streaming endpoint
+    private int chunkSize = 500;
+
+    // How long reading pauses before checking the queues and the status sink again
+    private Duration backpressurePause = Duration.ofMillis(100);
+
+    // Give up on an upload whose queues stay full this long
+    private Duration maxStall = Duration.ofMinutes(5);
+}
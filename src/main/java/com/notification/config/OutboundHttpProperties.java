@@ -0,0 +1,66 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "notification.http")
+public class OutboundHttpProperties {
+
+    // Applied to every target host without its own entry, and as the base for overrides
+    private HostSettings defaults = HostSettings.withDefaults();
+
+    // Upper bound for the pool shared by all hosts that use the defaults
+    private int maxTotalConnections = 500;
+
+    // Per target host overrides, keyed by host name, e.g. "[api.vendor.com]"
+    private Map<String, HostSettings> hosts = new HashMap<>();
+
+    @Data
+    public static class HostSettings {
+        private Duration connectTimeout;
+        // Max inactivity while reading from the socket
+        private Duration readTimeout;
+        // Max wait for the vendor to start responding after the request is sent
+        private Duration responseTimeout;
+        // Wait for a free pooled connection before failing the attempt
+        private Duration connectionRequestTimeout;
+        private Integer maxConnections;
+        // Idle pooled connections are closed after this, server Keep-Alive may shorten it
+        private Duration keepAlive;
+        // Negotiate HTTP/2 (multiplexed over a single connection) and fall back to 1.1
+        private Boolean http2;
+
+        static HostSettings withDefaults() {
+            HostSettings settings = new HostSettings();
+            settings.setConnectTimeout(Duration.ofSeconds(5));
+            settings.setReadTimeout(Duration.ofSeconds(10));
+            settings.setResponseTimeout(Duration.ofSeconds(20));
+            settings.setConnectionRequestTimeout(Duration.ofSeconds(5));
+            settings.setMaxConnections(50);
+            settings.setKeepAlive(Duration.ofSeconds(60));
+            settings.setHttp2(false);
+            return settings;
+        }
+
+        /**
+         * Returns these settings with every unset field taken from {@code base}.
+         */
+        public HostSettings mergedOver(HostSettings base) {
+            HostSettings merged = new HostSettings();
+            merged.setConnectTimeout(connectTimeout != null ? connectTimeout : base.getConnectTimeout());
+            merged.setReadTimeout(readTimeout != null ? readTimeout : base.getReadTimeout());
+            merged.setResponseTimeout(responseTimeout != null ? responseTimeout : base.getResponseTimeout());
+            merged.setConnectionRequestTimeout(connectionRequestTimeout != null ? connectionRequestTimeout
+                    : base.getConnectionRequestTimeout());
+            merged.setMaxConnections(maxConnections != null ? maxConnections : base.getMaxConnections());
+            merged.setKeepAlive(keepAlive != null ? keepAlive : base.getKeepAlive());
+            merged.setHttp2(http2 != null ? http2 : base.getHttp2());
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "notification.queue")
+public class QueueProperties {
+
+    // In-memory capacity per priority tier, jobs beyond it stay in the DB as spilled
+    private Capacity capacity = new Capacity();
+
+    // Max spilled jobs pulled back into the queues per refill run
+    private int refillBatchSize = 500;
+
+    private AdmissionControl admissionControl = new AdmissionControl();
+
+    // Order in which the standard consumer serves priorities 2 and 3
+    private Scheduling scheduling = new Scheduling();
+
+    @Data
+    public static class Capacity {
+        private int high = 10_000;   // priority 1
+        private int normal = 20_000; // priority 2
+        private int low = 20_000;    // priority 3
+    }
+
+    @Data
+    public static class AdmissionControl {
+        // Reject submissions with 429 while their tier is full instead of spilling them
+        private boolean enabled = false;
+        private Duration retryAfter = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Scheduling {
+        public enum Policy {
+            // Priority 2 first, priority 3 only when 2 is empty
+            STRICT_PRIORITY,
+            // Deficit round robin: under saturation each priority gets its weight's share
+            WEIGHTED_FAIR
+        }
+
+        private Policy policy = Policy.STRICT_PRIORITY;
+
+        // Relative share per priority for WEIGHTED_FAIR, e.g. 3:1 serves three normal jobs per low one
+        private Map<Integer, Double> weights = new LinkedHashMap<>(Map.of(2, 3.0, 3, 1.0));
+
+        // Aging: a job waiting longer than this is served next regardless of policy; null disables it
+        private Duration maxWait;
+    }
+}
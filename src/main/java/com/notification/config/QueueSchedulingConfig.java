@@ -0,0 +1,25 @@
+package com.notification.config;
+
+import com.notification.service.AgingSchedulingPolicy;
+import com.notification.service.SchedulingPolicy;
+import com.notification.service.StrictPrioritySchedulingPolicy;
+import com.notification.service.WeightedFairSchedulingPolicy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class QueueSchedulingConfig {
+
+    // Declare another SchedulingPolicy bean to replace the configured one
+    @Bean
+    @ConditionalOnMissingBean
+    public SchedulingPolicy schedulingPolicy(QueueProperties properties) {
+        QueueProperties.Scheduling scheduling = properties.getScheduling();
+        SchedulingPolicy policy = switch (scheduling.getPolicy()) {
+            case STRICT_PRIORITY -> new StrictPrioritySchedulingPolicy();
+            case WEIGHTED_FAIR -> new WeightedFairSchedulingPolicy(scheduling.getWeights());
+        };
+        return scheduling.getMaxWait() != null ? new AgingSchedulingPolicy(policy, scheduling.getMaxWait()) : policy;
+    }
+}
@@ -0,0 +1,63 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "notification.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Global default for every target host without its own entry
+    private HostLimits defaults = HostLimits.withDefaults();
+
+    // Per target host overrides, keyed by host name, e.g. "[api.vendor.com]"
+    private Map<String, HostLimits> hosts = new HashMap<>();
+
+    // How often parked jobs are re-checked while their host has no free in-flight slot;
+    // a finishing delivery also hands its slot over right away
+    private Duration bulkheadRetryDelay = Duration.ofMillis(50);
+
+    // A job turned away because its host has maxParked jobs waiting is spilled back to the
+    // DB and not refilled for this long, so other hosts' spilled jobs get their turn
+    private Duration parkedOverflowDelay = Duration.ofSeconds(5);
+
+    @Data
+    public static class HostLimits {
+        // Token refill rate, 0 disables the rate limit
+        private Double requestsPerSecond;
+        // Bucket size, i.e. how many requests may be sent back to back
+        private Integer burst;
+        // Max concurrent deliveries to the host, 0 disables the bulkhead
+        private Integer maxInFlight;
+        // Jobs parked per host on this node; they count against their queue tier, and
+        // more are spilled to the DB instead. 0 means no per-host bound.
+        private Integer maxParked;
+
+        static HostLimits withDefaults() {
+            HostLimits limits = new HostLimits();
+            limits.setRequestsPerSecond(200.0);
+            limits.setBurst(200);
+            limits.setMaxInFlight(100);
+            limits.setMaxParked(1000);
+            return limits;
+        }
+
+        /**
+         * Returns these limits with every unset field taken from {@code base}.
+         */
+        public HostLimits mergedOver(HostLimits base) {
+            HostLimits merged = new HostLimits();
+            merged.setRequestsPerSecond(requestsPerSecond != null ? requestsPerSecond : base.getRequestsPerSecond());
+            merged.setBurst(burst != null ? burst : base.getBurst());
+            merged.setMaxInFlight(maxInFlight != null ? maxInFlight : base.getMaxInFlight());
+            merged.setMaxParked(maxParked != null ? maxParked : base.getMaxParked());
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.recovery")
+public class RecoveryProperties {
+
+    // Safety-net poll period; ISO-8601 because @Scheduled reads it as well
+    private Duration interval = Duration.ofSeconds(10);
+
+    // Batch size starts here and doubles while full batches keep coming back
+    private int initialBatchSize = 50;
+    private int maxBatchSize = 1000;
+
+    private Duration timerTick = Duration.ofMillis(100);
+    private int timerWheelSize = 512;
+
+    // Retries further out than this are not held in memory: the claim is released
+    // with the outcome and the recovery poller picks the job up once it is due
+    private Duration timerHorizon = Duration.ofMinutes(5);
+
+    // How long in-flight deliveries get to finish on shutdown before claims are handed back
+    private Duration shutdownGracePeriod = Duration.ofSeconds(20);
+}
@@ -0,0 +1,70 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "notification.retry")
+public class RetryProperties {
+
+    // Policy for every job whose host and template have no entry of their own
+    private RetryPolicy defaults = RetryPolicy.withDefaults();
+
+    // Per target host overrides, keyed by host name, e.g. "[api.vendor.com]"
+    private Map<String, RetryPolicy> hosts = new HashMap<>();
+
+    // Per template overrides, keyed by TemplateConfig name; win over the host's entry
+    private Map<String, RetryPolicy> templates = new HashMap<>();
+
+    public enum Jitter {
+        // Exactly base * 2^(attempt - 1), capped
+        NONE,
+        // Uniform between 0 and the capped exponential delay
+        FULL,
+        // Uniform between base and 3x the previous delay, capped
+        DECORRELATED
+    }
+
+    @Data
+    public static class RetryPolicy {
+        // Attempts in total, the first one included
+        private Integer maxAttempts;
+        private Duration baseDelay;
+        private Duration maxDelay;
+        private Jitter jitter;
+        // 4xx statuses worth retrying besides 429; every other 4xx fails the job right away
+        private List<Integer> retryableStatuses;
+        // Wait as long as a 429/503 response's Retry-After asks, up to this; zero ignores it
+        private Duration maxRetryAfter;
+
+        static RetryPolicy withDefaults() {
+            RetryPolicy policy = new RetryPolicy();
+            policy.setMaxAttempts(5);
+            policy.setBaseDelay(Duration.ofSeconds(2));
+            policy.setMaxDelay(Duration.ofMinutes(5));
+            policy.setJitter(Jitter.FULL);
+            policy.setRetryableStatuses(List.of(408, 425));
+            policy.setMaxRetryAfter(Duration.ofHours(1));
+            return policy;
+        }
+
+        /**
+         * Returns this policy with every unset field taken from {@code base}.
+         */
+        public RetryPolicy mergedOver(RetryPolicy base) {
+            RetryPolicy merged = new RetryPolicy();
+            merged.setMaxAttempts(maxAttempts != null ? maxAttempts : base.getMaxAttempts());
+            merged.setBaseDelay(baseDelay != null ? baseDelay : base.getBaseDelay());
+            merged.setMaxDelay(maxDelay != null ? maxDelay : base.getMaxDelay());
+            merged.setJitter(jitter != null ? jitter : base.getJitter());
+            merged.setRetryableStatuses(retryableStatuses != null ? retryableStatuses : base.getRetryableStatuses());
+            merged.setMaxRetryAfter(maxRetryAfter != null ? maxRetryAfter : base.getMaxRetryAfter());
+            return merged;
+        }
+    }
+}
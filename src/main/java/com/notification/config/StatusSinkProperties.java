@@ -0,0 +1,20 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.status-sink")
+public class StatusSinkProperties {
+
+    // Flush as soon as this many outcomes are buffered
+    private int batchSize = 500;
+
+    // Flush at least this often while outcomes are buffered
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    // Buffered outcomes before workers block on record(), bounds memory if the DB stalls
+    private int maxPending = 20_000;
+}
@@ -0,0 +1,17 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.template-cache")
+public class TemplateCacheProperties {
+
+    // Max compiled templates kept in memory, least recently used is evicted first
+    private int maxSize = 1000;
+
+    // How long a cached template is trusted before its updated_at is re-checked
+    private Duration refreshInterval = Duration.ofSeconds(30);
+}
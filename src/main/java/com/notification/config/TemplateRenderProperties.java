@@ -0,0 +1,16 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "notification.template-render")
+public class TemplateRenderProperties {
+
+    // Render ${name}-only templates without FreeMarker; anything else always uses FreeMarker
+    private boolean fastPath = true;
+
+    // Share of fast renders also rendered by FreeMarker and compared byte for byte.
+    // A mismatch serves FreeMarker's output and turns the fast path off for that template.
+    private double verifySampleRate = 0.01;
+}
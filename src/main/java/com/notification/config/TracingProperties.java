@@ -0,0 +1,13 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "notification.tracing")
+public class TracingProperties {
+
+    // Per-job observations (enqueue, render, send, persist). They become spans once a
+    // tracing bridge such as micrometer-tracing-bridge-otel is on the classpath.
+    private boolean enabled = false;
+}
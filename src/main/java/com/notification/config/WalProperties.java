@@ -0,0 +1,27 @@
+package com.notification.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "notification.wal")
+public class WalProperties {
+
+    // Acknowledge submissions once they are in the local log instead of after the DB commit
+    private boolean enabled = false;
+
+    // Node-local directory holding the log segments and the drain checkpoint
+    private String directory = "data/wal";
+
+    // Each segment is a memory-mapped file of this size; also bounds a single submission
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    // Submissions written to notification_job per drain transaction
+    private int drainBatchSize = 500;
+
+    // Drainer poll period while the log is caught up
+    private Duration drainInterval = Duration.ofMillis(50);
+}
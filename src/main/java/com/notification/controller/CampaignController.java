@@ -0,0 +1,48 @@
+package com.notification.controller;
+
+import com.notification.dto.CampaignRequest;
+import com.notification.service.CampaignService;
+import com.notification.service.LeaderElectionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/campaigns")
+@RequiredArgsConstructor
+public class CampaignController {
+
+    private final CampaignService service;
+    private final LeaderElectionService leaderElectionService;
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody CampaignRequest request) {
+        if (!leaderElectionService.isDispatchingNode()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Not Leader");
+        }
+        if (request.getTargetUrl() == null || request.getTargetUrl().isBlank()) {
+            return ResponseEntity.badRequest().body("targetUrl is required");
+        }
+        if (request.getRecipients() == null || request.getRecipients().isEmpty()) {
+            return ResponseEntity.badRequest().body("No recipients");
+        }
+        Long campaignId = service.createCampaign(request);
+        return ResponseEntity.accepted().body(Map.of("campaignId", campaignId));
+    }
+
+    // Any node can answer, progress is read from the database
+    @GetMapping("/{id}")
+    public ResponseEntity<?> progress(@PathVariable Long id) {
+        return service.getProgress(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
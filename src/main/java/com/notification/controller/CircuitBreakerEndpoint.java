@@ -0,0 +1,31 @@
+package com.notification.controller;
+
+import com.notification.service.VendorCircuitBreakers;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes per-host breaker state at /actuator/circuitbreakers.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+@RequiredArgsConstructor
+public class CircuitBreakerEndpoint {
+
+    private final VendorCircuitBreakers circuitBreakers;
+
+    @ReadOperation
+    public Map<String, VendorCircuitBreakers.Snapshot> breakers() {
+        return circuitBreakers.snapshot();
+    }
+
+    @ReadOperation
+    public VendorCircuitBreakers.Snapshot breaker(@Selector String host) {
+        return circuitBreakers.snapshot().get(host);
+    }
+}
@@ -1,14 +1,24 @@
 package com.notification.controller;
 
+import com.notification.config.IdempotencyProperties;
+import com.notification.dto.BatchItemResult;
 import com.notification.dto.NotificationRequest;
 import com.notification.service.NotificationService;
+import com.notification.service.QueueManager;
+import com.notification.service.StreamIngestService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 import com.notification.service.LeaderElectionService;
@@ -19,15 +29,81 @@ import org.springframework.http.HttpStatus;
 @RequiredArgsConstructor
 public class NotificationController {
 
+    private static final int MAX_BATCH_SIZE = 50_000;
+    private static final String NDJSON = "application/x-ndjson";
+
     private final NotificationService service;
     private final LeaderElectionService leaderElectionService;
+    private final QueueManager queueManager;
+    private final StreamIngestService streamIngestService;
+    private final IdempotencyProperties idempotencyProperties;
 
     @PostMapping
-    public ResponseEntity<?> submit(@RequestBody NotificationRequest request) {
-        if (!leaderElectionService.isLeader()) {
+    public ResponseEntity<?> submit(@RequestBody NotificationRequest request,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (!leaderElectionService.isDispatchingNode()) {
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Not Leader");
         }
+        // The body field wins over the header when both are sent
+        if (request.getIdempotencyKey() == null) {
+            request.setIdempotencyKey(idempotencyKey);
+        }
+        String key = request.getIdempotencyKey();
+        if (key != null && (key.isBlank() || key.length() > idempotencyProperties.getMaxKeyLength())) {
+            return ResponseEntity.badRequest()
+                    .body("Idempotency key must be 1-" + idempotencyProperties.getMaxKeyLength() + " characters");
+        }
+        if (!queueManager.admits(request.getPriority())) {
+            return tooManyRequests();
+        }
+        if (service.isSubmissionLogEnabled()) {
+            return ResponseEntity.accepted().body(service.submitToLog(request));
+        }
         Long jobId = service.submitNotification(request);
         return ResponseEntity.accepted().body(Map.of("jobId", jobId));
     }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> submitBatch(@RequestBody List<NotificationRequest> requests) {
+        if (!leaderElectionService.isDispatchingNode()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Not Leader");
+        }
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.badRequest().body("Empty batch");
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body("Batch too large, max " + MAX_BATCH_SIZE);
+        }
+        boolean admitted = requests.stream()
+                .map(r -> r == null ? null : r.getPriority())
+                .distinct()
+                .allMatch(queueManager::admits);
+        if (!admitted) {
+            return tooManyRequests();
+        }
+        List<BatchItemResult> results = service.submitBatch(requests);
+        return ResponseEntity.accepted().body(Map.of("results", results));
+    }
+
+    /**
+     * Streaming bulk ingest: one request per line in, one result per line out (index is
+     * the line number), then a totals line. Lines are committed in chunks as they arrive,
+     * so a failure part way through leaves the earlier chunks accepted.
+     */
+    @PostMapping(value = "/stream", consumes = NDJSON, produces = NDJSON)
+    public void submitStream(InputStream body, HttpServletResponse response) throws IOException {
+        if (!leaderElectionService.isDispatchingNode()) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Not Leader");
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        streamIngestService.ingest(body, response.getOutputStream());
+    }
+
+    private ResponseEntity<?> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(queueManager.getRetryAfter().toSeconds()))
+                .body("Queue full, retry later");
+    }
 }
@@ -0,0 +1,86 @@
+package com.notification.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * One send to many recipients. Target, headers, template and the shared part of
+ * the payload are stored once; recipients live in campaign_recipient and are
+ * expanded into deliveries as queue capacity allows. Progress is a bitmap of
+ * recipients whose first attempt has settled plus counters; only failed
+ * deliveries become notification_job rows.
+ */
+@Entity
+@Table(name = "campaign", indexes = @Index(name = "idx_campaign_status", columnList = "status"))
+@Data
+public class Campaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+
+    @Column(name = "target_url", nullable = false, length = 2048)
+    private String targetUrl;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "json")
+    private Map<String, String> headers;
+
+    // Shared payload; each recipient's fields are merged over it
+    @Column(columnDefinition = "json")
+    private String payload;
+
+    @Column(name = "template_id")
+    private Long templateId;
+
+    @Column(name = "priority")
+    private Integer priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private CampaignStatus status;
+
+    @Column(name = "recipient_count", nullable = false)
+    private int recipientCount;
+
+    // Every recipient below this one has settled, expansion resumes here after a restart
+    @Column(name = "resume_from", nullable = false)
+    private int resumeFrom;
+
+    @Column(name = "delivered_count", nullable = false)
+    private long deliveredCount;
+
+    // First attempts that failed and were materialized as notification_job rows
+    @Column(name = "failed_count", nullable = false)
+    private long failedCount;
+
+    // Bit per recipient sequence, set once its first attempt has settled
+    @Column(name = "settled_bitmap", columnDefinition = "mediumblob")
+    @ToString.Exclude
+    private byte[] settledBitmap;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
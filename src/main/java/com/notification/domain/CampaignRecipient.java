@@ -0,0 +1,35 @@
+package com.notification.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * One recipient of a campaign: just its position and its own payload fields.
+ * Written with plain SQL in bulk; mapped for reads and so the schema exists in dev.
+ */
+@Entity
+@Table(name = "campaign_recipient")
+@IdClass(CampaignRecipient.Key.class)
+@Data
+public class CampaignRecipient {
+
+    @Id
+    @Column(name = "campaign_id")
+    private Long campaignId;
+
+    // 0-based position in the recipient list, also the campaign's bitmap index
+    @Id
+    @Column(name = "seq")
+    private Integer seq;
+
+    @Column(columnDefinition = "json")
+    private String data;
+
+    @Data
+    public static class Key implements Serializable {
+        private Long campaignId;
+        private Integer seq;
+    }
+}
@@ -0,0 +1,7 @@
+package com.notification.domain;
+
+public enum CampaignStatus {
+    RUNNING,
+    // Every recipient had its first attempt; failed ones carry on as regular jobs
+    COMPLETED
+}
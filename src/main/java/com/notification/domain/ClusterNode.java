@@ -0,0 +1,21 @@
+package com.notification.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "cluster_node")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterNode {
+    @Id
+    private String hostId;
+    private LocalDateTime lastSeenActive;
+}
@@ -3,5 +3,7 @@ package com.notification.domain;
 public enum FailureReason {
     EXTERNAL_SERVICE_UNAVAILABLE,
     CLIENT_ERROR,
+    // 429: retried after the vendor's Retry-After, never a permanent failure
+    RATE_LIMITED,
     UNKNOWN
 }
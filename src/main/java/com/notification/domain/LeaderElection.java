@@ -19,4 +19,6 @@ public class LeaderElection {
     private String serviceName;
     private String hostId;
     private LocalDateTime lastSeenActive;
+    // Fencing token, incremented every time the lease moves to another host
+    private long epoch;
 }
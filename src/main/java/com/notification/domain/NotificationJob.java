@@ -1,7 +1,10 @@
 package com.notification.domain;
 
 import jakarta.persistence.*;
+import io.micrometer.observation.Observation;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -9,12 +12,23 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Entity
-@Table(name = "notification_job")
+@Table(name = "notification_job", indexes = {
+        @Index(name = "idx_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_campaign", columnList = "campaign_id"),
+        @Index(name = "idx_priority", columnList = "priority")},
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_key", columnNames = "idempotency_key"))
 @Data
 public class NotificationJob {
 
+    // Ids one generator round-trip reserves; the seed in IdGeneratorSeeder depends on it
+    public static final int ID_ALLOCATION_SIZE = 100;
+
+    // Pooled table generator instead of IDENTITY so Hibernate can batch inserts;
+    // each node reserves a block of allocationSize ids per round-trip.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notification_job_id")
+    @TableGenerator(name = "notification_job_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "notification_job", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "target_url", nullable = false, length = 2048)
@@ -24,9 +38,10 @@ public class NotificationJob {
     @Column(columnDefinition = "json")
     private Map<String, String> headers;
 
-    @JdbcTypeCode(SqlTypes.JSON)
+    // Kept as the raw JSON text: a plain send never needs it as a Map, and a
+    // templated one parses it once when its body is prepared
     @Column(columnDefinition = "json")
-    private Map<String, Object> payload;
+    private String payload;
 
     @Column(name = "template_id")
     private Long templateId;
@@ -55,6 +70,69 @@ public class NotificationJob {
     @Column(name = "priority")
     private Integer priority;
 
+    // Caller-supplied dedup key, unique while the job is in this table; also sent to the vendor
+    @Column(name = "idempotency_key", length = 128)
+    private String idempotencyKey;
+
+    // Set for a campaign delivery. Until its first attempt fails it exists in memory
+    // only (id null); then it is materialized as a row like any other job.
+    @Column(name = "campaign_id")
+    private Long campaignId;
+
+    @Column(name = "recipient_seq")
+    private Integer recipientSeq;
+
+    // PENDING job that did not fit into its in-memory queue, refilled as capacity frees up
+    @Column(name = "spilled", nullable = false)
+    private boolean spilled;
+
+    // Node currently responsible for the job; others skip it until the lease expires
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "claim_expires_at")
+    private LocalDateTime claimExpiresAt;
+
+    // Request body as sent on the wire, rendered or serialized once on the first
+    // attempt and reused by every retry, also after recovery on another node
+    @Column(name = "prepared_body", columnDefinition = "mediumblob")
+    @ToString.Exclude
+    private byte[] preparedBody;
+
+    @Column(name = "prepared_content_type")
+    private String preparedContentType;
+
+    // In-memory only: prepared body not yet written back by the status sink
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean preparedBodyUnsaved;
+
+    // In-memory only: queued by the takeover warm-up without payload and prepared
+    // body, which are read when the job is dispatched
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean bodyDeferred;
+
+    // In-memory only: backoff before the current retry, grown by decorrelated jitter
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private long retryDelayMillis;
+
+    // In-memory only: when the job entered its queue, for the queue wait timer
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private long enqueuedAtNanos;
+
+    // In-memory only: observation of the current attempt when tracing is enabled
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Observation trace;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
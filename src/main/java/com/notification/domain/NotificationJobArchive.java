@@ -0,0 +1,66 @@
+package com.notification.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Finished (SUCCESS / MAX_RETRIES) jobs moved out of notification_job by the
+ * archiver. Written with plain SQL only; mapped so the schema exists in dev.
+ * In production the table is range-partitioned by archived_at (V8 migration),
+ * where the primary key is (id, archived_at).
+ */
+@Entity
+@Table(name = "notification_job_archive", indexes = {
+        @Index(name = "idx_archive_archived_at", columnList = "archived_at"),
+        @Index(name = "idx_archive_idempotency_key", columnList = "idempotency_key")})
+@Data
+public class NotificationJobArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "target_url", nullable = false, length = 2048)
+    private String targetUrl;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "json")
+    private Map<String, String> headers;
+
+    @Column(columnDefinition = "json")
+    private String payload;
+
+    @Column(name = "template_id")
+    private Long templateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private NotificationStatus status;
+
+    private String failureErrorMessage;
+
+    @Enumerated(EnumType.STRING)
+    private FailureReason failureReason;
+
+    @Column(name = "attempt_count")
+    private Integer attemptCount;
+
+    @Column(name = "priority")
+    private Integer priority;
+
+    @Column(name = "idempotency_key", length = 128)
+    private String idempotencyKey;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,22 @@
+package com.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    private int index;
+    private Long jobId;
+    private String error;
+
+    public static BatchItemResult accepted(int index, Long jobId) {
+        return new BatchItemResult(index, jobId, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, null, error);
+    }
+}
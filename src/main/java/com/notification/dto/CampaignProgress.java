@@ -0,0 +1,22 @@
+package com.notification.dto;
+
+import com.notification.domain.CampaignStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class CampaignProgress {
+    private Long id;
+    private String name;
+    private CampaignStatus status;
+    private int recipientCount;
+    // Recipients whose first attempt succeeded
+    private long delivered;
+    // Recipients whose first attempt failed; they continue as regular jobs
+    private long failed;
+    // Those failed deliveries by their current job status (while in the hot table)
+    private Map<String, Long> failedByStatus;
+}
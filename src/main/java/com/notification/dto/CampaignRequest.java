@@ -0,0 +1,18 @@
+package com.notification.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class CampaignRequest {
+    private String name;
+    private String targetUrl;
+    private Map<String, String> headers;
+    // Shared by every recipient; a recipient's own fields are merged over it
+    private Map<String, Object> payload;
+    private String templateName;
+    private Integer priority; // 1 (High), 2 (Normal), 3 (Low)
+    private List<Map<String, Object>> recipients;
+}
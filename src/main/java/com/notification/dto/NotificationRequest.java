@@ -10,4 +10,6 @@ public class NotificationRequest {
     private Map<String, Object> payload;
     private String templateName;
     private Integer priority; // 1 (High), 2 (Normal), 3 (Low)
+    // Optional; a repeated submission with the same key returns the original jobId
+    private String idempotencyKey;
 }
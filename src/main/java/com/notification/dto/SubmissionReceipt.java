@@ -0,0 +1,18 @@
+package com.notification.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Answer to a submission taken through the write-ahead log. The job id is only known
+ * for a duplicate of an already stored job; otherwise the submission id (the job's
+ * idempotency key) identifies it.
+ */
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubmissionReceipt {
+    private Long jobId;
+    private String submissionId;
+}
@@ -0,0 +1,21 @@
+package com.notification.repository;
+
+import com.notification.domain.CampaignRecipient;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CampaignRecipientRepository extends JpaRepository<CampaignRecipient, CampaignRecipient.Key> {
+
+    // Next expansion window, keyset on the primary key
+    @Query("SELECT r FROM CampaignRecipient r WHERE r.campaignId = :campaignId AND r.seq >= :fromSeq ORDER BY r.seq")
+    List<CampaignRecipient> findWindow(@Param("campaignId") Long campaignId, @Param("fromSeq") int fromSeq,
+            Pageable pageable);
+
+    @Query("SELECT r FROM CampaignRecipient r WHERE r.campaignId = :campaignId AND r.seq IN :seqs")
+    List<CampaignRecipient> findBySeqs(@Param("campaignId") Long campaignId, @Param("seqs") Collection<Integer> seqs);
+}
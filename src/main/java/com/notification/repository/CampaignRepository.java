@@ -0,0 +1,34 @@
+package com.notification.repository;
+
+import com.notification.domain.Campaign;
+import com.notification.domain.CampaignStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CampaignRepository extends JpaRepository<Campaign, Long> {
+
+    // Cheap poll for the expander, the bitmap is only loaded for campaigns it does not run yet
+    @Query("SELECT c.id FROM Campaign c WHERE c.status = :status")
+    List<Long> findIdsByStatus(@Param("status") CampaignStatus status);
+
+    // Progress without the bitmap
+    Optional<Summary> findSummaryById(Long id);
+
+    interface Summary {
+        Long getId();
+
+        String getName();
+
+        CampaignStatus getStatus();
+
+        int getRecipientCount();
+
+        long getDeliveredCount();
+
+        long getFailedCount();
+    }
+}
@@ -0,0 +1,22 @@
+package com.notification.repository;
+
+import com.notification.domain.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO cluster_node (host_id, last_seen_active) VALUES (:hostId, :now) "
+            + "ON DUPLICATE KEY UPDATE last_seen_active = :now", nativeQuery = true)
+    int heartbeat(@Param("hostId") String hostId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(n) FROM ClusterNode n WHERE n.lastSeenActive >= :since")
+    long countLiveNodes(@Param("since") LocalDateTime since);
+}
@@ -6,23 +6,32 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
 @Repository
 public interface LeaderElectionRepository extends JpaRepository<LeaderElection, String> {
 
+    // MySQL applies the assignments left to right: epoch is bumped against the old
+    // host_id/last_seen_active, before host_id itself is taken over.
     @Modifying
-    @Query(value = "INSERT INTO leader_election (service_name, host_id, last_seen_active) VALUES (:serviceName, :hostId, :now) "
+    @Query(value = "INSERT INTO leader_election (service_name, host_id, last_seen_active, epoch) VALUES (:serviceName, :hostId, :now, 1) "
             +
-            "ON DUPLICATE KEY UPDATE host_id = IF(last_seen_active < :leaseExpiry, :hostId, host_id), " +
+            "ON DUPLICATE KEY UPDATE epoch = IF(last_seen_active < :leaseExpiry AND host_id <> :hostId, epoch + 1, epoch), " +
+            "host_id = IF(last_seen_active < :leaseExpiry, :hostId, host_id), " +
             "last_seen_active = IF(host_id = :hostId, :now, last_seen_active)", nativeQuery = true)
     int tryAcquireOrRenewLease(@Param("serviceName") String serviceName,
             @Param("hostId") String hostId,
             @Param("now") LocalDateTime now,
             @Param("leaseExpiry") LocalDateTime leaseExpiry);
 
-    // Check if the current host is the leader
-    @Query("SELECT COUNT(l) > 0 FROM LeaderElection l WHERE l.serviceName = :serviceName AND l.hostId = :hostId")
-    boolean isLeader(@Param("serviceName") String serviceName, @Param("hostId") String hostId);
+    // Backdates our own lease so the next heartbeat of any other node takes it over
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE leader_election SET last_seen_active = :expired "
+            + "WHERE service_name = :serviceName AND host_id = :hostId", nativeQuery = true)
+    int expireLease(@Param("serviceName") String serviceName,
+            @Param("hostId") String hostId,
+            @Param("expired") LocalDateTime expired);
 }
@@ -0,0 +1,20 @@
+package com.notification.repository;
+
+import com.notification.domain.NotificationJobArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+// Read side of the archive for idempotency lookups; JobArchiver writes it with plain SQL
+public interface NotificationJobArchiveRepository extends JpaRepository<NotificationJobArchive, Long> {
+
+    // Not unique in the archive (a partitioned table cannot enforce it), hence a list
+    @Query("SELECT a.id FROM NotificationJobArchive a WHERE a.idempotencyKey = :key")
+    List<Long> findIdsByIdempotencyKey(@Param("key") String key);
+
+    @Query("SELECT a.idempotencyKey, a.id FROM NotificationJobArchive a WHERE a.idempotencyKey IN :keys")
+    List<Object[]> findIdsByIdempotencyKeys(@Param("keys") Collection<String> keys);
+}
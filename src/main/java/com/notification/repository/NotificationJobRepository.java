@@ -2,17 +2,103 @@ package com.notification.repository;
 
 import com.notification.domain.NotificationJob;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface NotificationJobRepository extends JpaRepository<NotificationJob, Long> {
 
-    @Query(value = "SELECT * FROM notification_job WHERE status IN (:statuses) AND next_retry_at <= :now ORDER BY priority ASC, next_retry_at ASC LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
-    List<NotificationJob> findJobsForRecovery(@Param("statuses") List<String> statuses, @Param("now") LocalDateTime now,
-            @Param("limit") int limit);
+    // Due, non-terminal jobs no live node owns: never claimed, released, or whose
+    // owner stopped renewing its lease. Read one queue tier at a time (priorities
+    // minPriority..maxPriority), sized by that tier's free capacity.
+    @Query(value = "SELECT * FROM notification_job WHERE status IN ('PENDING', 'FAILED') AND next_retry_at <= :now "
+            + "AND priority BETWEEN :minPriority AND :maxPriority "
+            + "AND (claimed_by IS NULL OR claim_expires_at < :now) "
+            + "ORDER BY next_retry_at ASC LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<NotificationJob> findClaimableJobs(@Param("now") LocalDateTime now,
+            @Param("minPriority") int minPriority, @Param("maxPriority") int maxPriority, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM notification_job WHERE spilled = TRUE AND status IN ('PENDING', 'FAILED') "
+            + "AND priority BETWEEN :minPriority AND :maxPriority "
+            + "AND next_retry_at <= :now AND (claimed_by IS NULL OR claim_expires_at < :now) "
+            + "ORDER BY id ASC LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<NotificationJob> findClaimableSpilledJobs(@Param("now") LocalDateTime now,
+            @Param("minPriority") int minPriority, @Param("maxPriority") int maxPriority, @Param("limit") int limit);
+
+    // Clears the persistence context so the claimed entities come back detached
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE NotificationJob j SET j.claimedBy = :owner, j.claimExpiresAt = :expiresAt, j.spilled = false "
+            + "WHERE j.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+            @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Leader-mode variant: only applies while the given term still holds the lease
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE notification_job SET claimed_by = :owner, claim_expires_at = :expiresAt, spilled = FALSE "
+            + "WHERE id IN (:ids) AND EXISTS (SELECT 1 FROM leader_election le WHERE le.service_name = :serviceName "
+            + "AND le.host_id = :owner AND le.epoch = :epoch)", nativeQuery = true)
+    int claimFenced(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+            @Param("expiresAt") LocalDateTime expiresAt, @Param("serviceName") String serviceName,
+            @Param("epoch") long epoch);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationJob j SET j.claimExpiresAt = :expiresAt WHERE j.claimedBy = :owner "
+            + "AND j.status IN (com.notification.domain.NotificationStatus.PENDING, "
+            + "com.notification.domain.NotificationStatus.FAILED)")
+    int renewClaims(@Param("owner") String owner, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Job did not fit into memory: drop the claim so whichever node has room takes it.
+    // Own transaction, as it is also called from afterCommit hooks of submissions where
+    // the outer transaction has already committed.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE NotificationJob j SET j.spilled = true, j.claimedBy = null, j.claimExpiresAt = null "
+            + "WHERE j.id IN :ids")
+    int markSpilled(@Param("ids") Collection<Long> ids);
+
+    // Spilled, and kept out of refills until the given time
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE NotificationJob j SET j.spilled = true, j.claimedBy = null, j.claimExpiresAt = null, "
+            + "j.nextRetryAt = :until WHERE j.id IN :ids")
+    int markSpilledUntil(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Query("SELECT j.id FROM NotificationJob j WHERE j.idempotencyKey = :key")
+    Optional<Long> findIdByIdempotencyKey(@Param("key") String key);
+
+    @Query("SELECT j.idempotencyKey, j.id FROM NotificationJob j WHERE j.idempotencyKey IN :keys")
+    List<Object[]> findIdsByIdempotencyKeys(@Param("keys") Collection<String> keys);
+
+    // Materialized (failed at least once) deliveries of a campaign by current status
+    @Query("SELECT j.status, COUNT(j) FROM NotificationJob j WHERE j.campaignId = :campaignId GROUP BY j.status")
+    List<Object[]> countByStatusForCampaign(@Param("campaignId") Long campaignId);
+
+    // Heavy columns of a job queued without them
+    Optional<DeferredBody> findDeferredBodyById(Long id);
+
+    interface DeferredBody {
+        String getPayload();
+
+        byte[] getPreparedBody();
+
+        String getPreparedContentType();
+    }
+
+    // Hand back everything this node still owns, so the next owner needn't wait out the leases
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationJob j SET j.claimedBy = null, j.claimExpiresAt = null WHERE j.claimedBy = :owner "
+            + "AND j.status IN (com.notification.domain.NotificationStatus.PENDING, "
+            + "com.notification.domain.NotificationStatus.FAILED)")
+    int releaseClaims(@Param("owner") String owner);
 
     @Query("SELECT COUNT(j) FROM NotificationJob j WHERE j.updatedAt >= :since")
     long countJobsUpdatedSince(@Param("since") LocalDateTime since);
@@ -2,8 +2,24 @@ package com.notification.repository;
 
 import com.notification.domain.TemplateConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface TemplateConfigRepository extends JpaRepository<TemplateConfig, Long> {
     Optional<TemplateConfig> findByName(String name);
+
+    List<TemplateConfig> findByNameIn(Collection<String> names);
+
+    // Name lookup for validating submissions, avoids loading the content
+    @Query("SELECT t.id FROM TemplateConfig t WHERE t.name = :name")
+    Optional<Long> findIdByName(@Param("name") String name);
+
+    // Version probe for the compiled-template cache, avoids loading the content
+    @Query("SELECT t.updatedAt FROM TemplateConfig t WHERE t.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
 }
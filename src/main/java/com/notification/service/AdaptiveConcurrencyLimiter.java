@@ -0,0 +1,136 @@
+package com.notification.service;
+
+import com.notification.config.ConcurrencyProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD limit on in-flight deliveries, driven by observed latency.
+ * <p>
+ * The baseline is the fastest call seen in the previous window of completions.
+ * A call slower than {@code latencyTolerance} times the baseline, or a timeout,
+ * cuts the limit by {@code backoffRatio} (at most once per observed call
+ * duration, so one slow burst is one decrease). Otherwise the limit grows by
+ * 1/limit per completion, about +1 per round of calls, while at least half of it
+ * is in use. Consumers block in {@link #acquire()} at the limit, leaving the
+ * backlog in the queue instead of in flight.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long baselineNanos;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, ConcurrencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limit = clamp(properties.getInitialLimit());
+        // As if the last decrease was long ago, so the first congestion signal counts
+        this.lastDecreaseNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+        Gauge.builder("notification.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("executor", name).register(meterRegistry);
+        Gauge.builder("notification.concurrency.in-flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("executor", name).register(meterRegistry);
+    }
+
+    public void acquire() throws InterruptedException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                available.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives a permit back without a sample, for jobs deferred instead of sent.
+     */
+    public void release() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives a permit back and adjusts the limit from the call's latency.
+     *
+     * @param dropped the call timed out
+     */
+    public void onComplete(long latencyNanos, boolean dropped) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            if (!dropped) {
+                windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+                if (++windowSamples >= properties.getWindowSize()) {
+                    baselineNanos = windowMinNanos;
+                    windowMinNanos = Long.MAX_VALUE;
+                    windowSamples = 0;
+                }
+            }
+
+            long now = System.nanoTime();
+            boolean congested = dropped
+                    || (baselineNanos > 0 && latencyNanos > baselineNanos * properties.getLatencyTolerance());
+            if (congested) {
+                if (now - lastDecreaseNanos >= Math.max(latencyNanos, TimeUnit.MILLISECONDS.toNanos(1))) {
+                    limit = clamp(limit * properties.getBackoffRatio());
+                    lastDecreaseNanos = now;
+                }
+            } else if (inFlight + 1 >= limit / 2) {
+                limit = clamp(limit + 1 / limit);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+}
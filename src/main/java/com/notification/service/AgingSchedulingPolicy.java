@@ -0,0 +1,32 @@
+package com.notification.service;
+
+import java.time.Duration;
+
+/**
+ * Wraps another policy and promotes any level whose head job has waited longer
+ * than {@code maxWait}: the longest-waiting such level is served first.
+ */
+public class AgingSchedulingPolicy implements SchedulingPolicy {
+
+    private final SchedulingPolicy delegate;
+    private final long maxWaitNanos;
+
+    public AgingSchedulingPolicy(SchedulingPolicy delegate, Duration maxWait) {
+        this.delegate = delegate;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public int select(Levels levels) {
+        int oldest = -1;
+        long oldestWait = maxWaitNanos;
+        for (int priority : levels.priorities()) {
+            long wait = levels.headWaitNanos(priority);
+            if (wait > oldestWait) {
+                oldest = priority;
+                oldestWait = wait;
+            }
+        }
+        return oldest > 0 ? oldest : delegate.select(levels);
+    }
+}
@@ -0,0 +1,158 @@
+package com.notification.service;
+
+import com.notification.config.IdempotencyProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the idempotency keys in notification_job_archive, so a
+ * submission only looks up the archive for keys that may actually be in it.
+ * <p>
+ * Every node keeps its own copy: loaded in full at startup, then topped up with
+ * the keys archived since the last refresh. A key archived after the last refresh
+ * is not seen until the next one, so a client retry in exactly that window (at
+ * least hot-retention after the original) is not recognised as a duplicate.
+ * Until the first load is done every key is a "maybe".
+ */
+@Component
+@Slf4j
+public class ArchivedKeyFilter {
+
+    private static final String SELECT_PAGE = "SELECT id, idempotency_key FROM notification_job_archive "
+            + "WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_SINCE = "SELECT idempotency_key FROM notification_job_archive "
+            + "WHERE archived_at > ? AND idempotency_key IS NOT NULL";
+
+    private static final int PAGE_SIZE = 10_000;
+
+    // Re-read on every refresh: batches whose archived_at was taken before the last read
+    // but committed after it, and clock skew between this node and the leader
+    private static final Duration OVERLAP = Duration.ofSeconds(30);
+
+    // 10 bits and 7 hashes per key: about 1% false positives at capacity
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long capacity;
+    private volatile Bits bits;
+    // Only touched by refresh(), which the scheduler never runs concurrently
+    private LocalDateTime loadedUpTo;
+
+    public ArchivedKeyFilter(IdempotencyProperties properties, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = properties.getArchiveFilterCapacity();
+    }
+
+    public boolean mightContain(String key) {
+        Bits current = bits;
+        return current == null || current.mightContain(key);
+    }
+
+    @Scheduled(fixedDelayString = "${notification.idempotency.archive-filter-refresh:PT5S}")
+    public void refresh() {
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            Bits current = bits;
+            if (current == null || current.added() > capacity) {
+                // First load, or so many keys since the last one that false positives pile up.
+                // Rebuilding also drops the keys purged from the archive meanwhile.
+                bits = loadAll();
+                log.info("Archived idempotency key filter loaded with {} keys", bits.added());
+            } else {
+                jdbcTemplate.query(SELECT_SINCE, (RowCallbackHandler) rs -> current.put(rs.getString(1)),
+                        Timestamp.valueOf(loadedUpTo.minus(OVERLAP)));
+            }
+            loadedUpTo = startedAt;
+        } catch (Exception e) {
+            log.error("Archived idempotency key filter refresh failed", e);
+        }
+    }
+
+    // Keyset pages on the primary key, a single query would buffer the whole archive
+    private Bits loadAll() {
+        Bits fresh = new Bits(capacity * BITS_PER_KEY);
+        long[] lastId = { 0 };
+        int[] rows = new int[1];
+        do {
+            rows[0] = 0;
+            jdbcTemplate.query(SELECT_PAGE, (RowCallbackHandler) rs -> {
+                lastId[0] = rs.getLong(1);
+                rows[0]++;
+                String key = rs.getString(2);
+                if (key != null) {
+                    fresh.put(key);
+                }
+            }, lastId[0], PAGE_SIZE);
+        } while (rows[0] == PAGE_SIZE);
+        return fresh;
+    }
+
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        // Keys that set at least one new bit, re-reads of the overlap do not count
+        private final AtomicLong added = new AtomicLong();
+
+        Bits(long size) {
+            this.words = new AtomicLongArray((int) ((size + 63) / 64));
+            this.size = (long) words.length() * 64;
+        }
+
+        void put(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean changed = false;
+            for (int i = 1; i <= HASHES; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+                long mask = 1L << bit;
+                long old = words.getAndUpdate((int) (bit >>> 6), word -> word | mask);
+                changed |= (old & mask) == 0;
+            }
+            if (changed) {
+                added.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= HASHES; i++) {
+                long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % size;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long added() {
+            return added.get();
+        }
+
+        // FNV-1a over the chars, then the splitmix64 finalizer to spread the bits
+        private static long hash(String key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+            h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+            return h ^ (h >>> 31);
+        }
+    }
+}
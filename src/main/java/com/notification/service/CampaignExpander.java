@@ -0,0 +1,405 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.notification.config.CampaignProperties;
+import com.notification.domain.Campaign;
+import com.notification.domain.CampaignRecipient;
+import com.notification.domain.CampaignStatus;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import com.notification.repository.CampaignRecipientRepository;
+import com.notification.repository.CampaignRepository;
+import com.notification.repository.NotificationJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expands running campaigns into deliveries on the leader and tracks their outcomes.
+ * <p>
+ * Each run pushes the next window of recipients into the campaign's priority queue,
+ * bounded by the queue's free capacity and {@code max-in-flight}. A delivery is an
+ * in-memory job without a row. When its first attempt succeeds only the campaign's
+ * bitmap and counter change; when it fails, the job is inserted into notification_job
+ * with its current status and goes on like any other job (retries, recovery,
+ * archiving). The bitmap and counters are flushed periodically, fenced by the leader
+ * epoch. Outcomes newer than the last flush are lost in a crash, so those recipients
+ * are delivered again: at-least-once, as for regular jobs. Within one term a recipient
+ * is only expanded again if {@link QueueManager} dropped its delivery for lack of room.
+ */
+@Service
+@Slf4j
+public class CampaignExpander {
+
+    private static final String FLUSH_PROGRESS = "UPDATE campaign SET settled_bitmap = ?, resume_from = ?, "
+            + "delivered_count = ?, failed_count = ?, status = ?, updated_at = ? WHERE id = ? "
+            + "AND EXISTS (SELECT 1 FROM leader_election le WHERE le.service_name = ? AND le.host_id = ? "
+            + "AND le.epoch = ?)";
+
+    private final CampaignRepository campaignRepository;
+    private final CampaignRecipientRepository recipientRepository;
+    private final NotificationJobRepository jobRepository;
+    private final QueueManager queueManager;
+    private final VendorCircuitBreakers circuitBreakers;
+    private final LeaderElectionService leaderElectionService;
+    private final JobClaimService claimService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CampaignProperties properties;
+    private final Counter expanded;
+    private final Counter materialized;
+
+    // Campaigns this node is expanding, only while it is the leader
+    private final Map<Long, Run> runs = new ConcurrentHashMap<>();
+
+    public CampaignExpander(CampaignRepository campaignRepository, CampaignRecipientRepository recipientRepository,
+            NotificationJobRepository jobRepository, QueueManager queueManager, VendorCircuitBreakers circuitBreakers,
+            LeaderElectionService leaderElectionService, JobClaimService claimService, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, CampaignProperties properties, MeterRegistry meterRegistry) {
+        this.campaignRepository = campaignRepository;
+        this.recipientRepository = recipientRepository;
+        this.jobRepository = jobRepository;
+        this.queueManager = queueManager;
+        this.circuitBreakers = circuitBreakers;
+        this.leaderElectionService = leaderElectionService;
+        this.claimService = claimService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.expanded = meterRegistry.counter("notification.campaign.expanded");
+        this.materialized = meterRegistry.counter("notification.campaign.materialized");
+        queueManager.onDropped(this::dropped);
+    }
+
+    @Scheduled(fixedDelayString = "${notification.campaign.expand-interval:PT0.2S}")
+    public void expand() {
+        if (!leaderElectionService.isLeader()) {
+            // The new leader resumes from the last flush
+            runs.clear();
+            return;
+        }
+        try {
+            refreshRuns();
+            for (Run run : runs.values()) {
+                expand(run);
+            }
+        } catch (Exception e) {
+            log.error("Campaign expansion failed", e);
+        }
+    }
+
+    @EventListener
+    public void onLeadershipChanged(LeadershipChangedEvent event) {
+        if (!event.leader()) {
+            // The step-down drops queued deliveries too; a later term starts over from the last flush
+            runs.clear();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.campaign.flush-interval:PT5S}")
+    public void flushProgress() {
+        if (!leaderElectionService.isLeader()) {
+            return;
+        }
+        for (Run run : runs.values()) {
+            try {
+                flush(run);
+            } catch (Exception e) {
+                log.error("Failed to flush progress of campaign {}", run.campaignId, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushProgress();
+    }
+
+    /**
+     * Takes the outcome of a campaign delivery that has no row yet. Returns false for
+     * every other job, which the caller records as usual.
+     */
+    public boolean recordOutcome(NotificationJob job) {
+        if (job.getId() != null || job.getCampaignId() == null) {
+            return false;
+        }
+        Run run = runs.get(job.getCampaignId());
+        boolean delivered = job.getStatus() == NotificationStatus.SUCCESS;
+        if (!delivered) {
+            materialize(job);
+        }
+        if (run != null) {
+            run.settle(job.getRecipientSeq(), delivered);
+        }
+        return true;
+    }
+
+    // A delivery without a row that found no room in its queue, expanded again by the next run
+    private void dropped(NotificationJob job) {
+        if (job.getId() != null || job.getCampaignId() == null) {
+            return;
+        }
+        Run run = runs.get(job.getCampaignId());
+        if (run != null) {
+            run.drop(job.getRecipientSeq());
+        }
+    }
+
+    private void materialize(NotificationJob job) {
+        // Written whole with this attempt's outcome, the sink has nothing left to add
+        job.setPreparedBodyUnsaved(false);
+        claimService.claimOnSubmit(job);
+        try {
+            jobRepository.save(job);
+            materialized.increment();
+        } catch (DataIntegrityViolationException e) {
+            // Already materialized before a crash: follow that row instead
+            Long existing = jobRepository.findIdByIdempotencyKey(job.getIdempotencyKey()).orElse(null);
+            job.setId(existing);
+            if (existing == null) {
+                throw e;
+            }
+            log.debug("Campaign {} recipient {} was already materialized as job {}", job.getCampaignId(),
+                    job.getRecipientSeq(), existing);
+        }
+    }
+
+    private void refreshRuns() {
+        Set<Long> running = new HashSet<>(campaignRepository.findIdsByStatus(CampaignStatus.RUNNING));
+        runs.keySet().retainAll(running);
+        for (Long id : running) {
+            if (!runs.containsKey(id)) {
+                campaignRepository.findById(id).ifPresent(campaign -> runs.put(id, new Run(campaign)));
+            }
+        }
+    }
+
+    private void expand(Run run) {
+        if (run.isComplete()) {
+            flush(run);
+            return;
+        }
+        // Don't burn recipients into failures while the vendor is known to be down. Only a peek:
+        // no call follows here, so a probe slot taken now would never be given back.
+        if (circuitBreakers.peekBlockedUntil(TargetHosts.of(run.campaign.getTargetUrl())) != null) {
+            return;
+        }
+
+        List<NotificationJob> jobs = new ArrayList<>();
+        int room = Math.min(queueManager.remainingCapacity(run.priority()),
+                properties.getMaxInFlight() - run.inFlight.size());
+
+        // Recipients dropped by a full queue go again first. Everything else in flight is
+        // queued, parked or waiting for its outcome, and is left alone until that arrives.
+        List<Integer> retry = room > 0 ? run.takeDropped(room) : List.of();
+        if (!retry.isEmpty()) {
+            for (CampaignRecipient recipient : recipientRepository.findBySeqs(run.campaignId, retry)) {
+                jobs.add(toJob(run, recipient));
+            }
+            room -= retry.size();
+        }
+
+        if (room > 0 && run.cursor < run.campaign.getRecipientCount()) {
+            List<CampaignRecipient> window = recipientRepository.findWindow(run.campaignId, run.cursor,
+                    PageRequest.of(0, room));
+            for (CampaignRecipient recipient : window) {
+                run.cursor = recipient.getSeq() + 1;
+                if (!run.isSettled(recipient.getSeq())) {
+                    jobs.add(toJob(run, recipient));
+                }
+            }
+            if (window.size() < room) {
+                run.cursor = run.campaign.getRecipientCount();
+            }
+        }
+        if (jobs.isEmpty()) {
+            return;
+        }
+        for (NotificationJob job : jobs) {
+            run.inFlight.add(job.getRecipientSeq());
+        }
+        queueManager.pushAll(jobs);
+        expanded.increment(jobs.size());
+        log.debug("Expanded {} recipients of campaign {}", jobs.size(), run.campaignId);
+    }
+
+    private NotificationJob toJob(Run run, CampaignRecipient recipient) {
+        Campaign campaign = run.campaign;
+        NotificationJob job = new NotificationJob();
+        job.setCampaignId(campaign.getId());
+        job.setRecipientSeq(recipient.getSeq());
+        // Stable per recipient, so a redelivery is recognisable by the receiver and by the unique index
+        job.setIdempotencyKey("campaign-" + campaign.getId() + "-" + recipient.getSeq());
+        job.setTargetUrl(campaign.getTargetUrl());
+        job.setHeaders(campaign.getHeaders());
+        job.setTemplateId(campaign.getTemplateId());
+        job.setPayload(mergePayload(run, recipient.getData()));
+        job.setPriority(run.priority());
+        job.setStatus(NotificationStatus.PENDING);
+        LocalDateTime now = LocalDateTime.now();
+        job.setCreatedAt(now);
+        job.setNextRetryAt(now);
+        return job;
+    }
+
+    private String mergePayload(Run run, String recipientData) {
+        if (run.basePayload == null) {
+            return recipientData;
+        }
+        try {
+            JsonNode data = recipientData != null ? objectMapper.readTree(recipientData) : null;
+            ObjectNode merged = run.basePayload.deepCopy();
+            if (data instanceof ObjectNode fields) {
+                merged.setAll(fields);
+            }
+            return objectMapper.writeValueAsString(merged);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid recipient data in campaign " + run.campaignId, e);
+        }
+    }
+
+    private void flush(Run run) {
+        FencingToken token = leaderElectionService.currentFencingToken().orElse(null);
+        // A complete run is always written, that is what ends it
+        if (token == null || !(run.dirty || run.isComplete())) {
+            return;
+        }
+        Snapshot snapshot = run.snapshot();
+        int updated;
+        try {
+            updated = jdbcTemplate.update(FLUSH_PROGRESS, snapshot.bitmap(), snapshot.resumeFrom(),
+                    snapshot.delivered(), snapshot.failed(), snapshot.status().name(),
+                    Timestamp.valueOf(LocalDateTime.now()), run.campaignId, token.serviceName(), token.hostId(),
+                    token.epoch());
+        } catch (RuntimeException e) {
+            run.dirty = true;
+            throw e;
+        }
+        if (updated == 0) {
+            log.warn("Progress flush of campaign {} rejected, leadership was lost", run.campaignId);
+            return;
+        }
+        if (snapshot.status() == CampaignStatus.COMPLETED) {
+            runs.remove(run.campaignId);
+            log.info("Campaign {} completed: {} delivered, {} failed on first attempt", run.campaignId,
+                    snapshot.delivered(), snapshot.failed());
+        }
+    }
+
+    private record Snapshot(byte[] bitmap, int resumeFrom, long delivered, long failed, CampaignStatus status) {
+    }
+
+    /**
+     * In-memory state of one campaign. Outcomes arrive on worker threads, expansion
+     * and flushes on the scheduler; the bitmap and counters are guarded by the run.
+     */
+    private final class Run {
+        final Long campaignId;
+        final Campaign campaign;
+        final ObjectNode basePayload;
+        // Expanded recipients not yet settled, and those of them that were dropped since
+        final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> dropped = ConcurrentHashMap.newKeySet();
+        // Next recipient to expand; scheduler thread only
+        int cursor;
+
+        private final BitSet settled;
+        private long delivered;
+        private long failed;
+        private int settledCount;
+        private volatile boolean dirty;
+
+        Run(Campaign campaign) {
+            this.campaignId = campaign.getId();
+            this.campaign = campaign;
+            this.settled = campaign.getSettledBitmap() != null ? BitSet.valueOf(campaign.getSettledBitmap())
+                    : new BitSet(campaign.getRecipientCount());
+            this.settledCount = settled.cardinality();
+            this.delivered = campaign.getDeliveredCount();
+            this.failed = campaign.getFailedCount();
+            this.cursor = campaign.getResumeFrom();
+            this.basePayload = parseBasePayload(campaign.getPayload());
+        }
+
+        int priority() {
+            return campaign.getPriority() != null ? campaign.getPriority() : 3;
+        }
+
+        synchronized boolean isSettled(int seq) {
+            return settled.get(seq);
+        }
+
+        synchronized boolean isComplete() {
+            return settledCount >= campaign.getRecipientCount();
+        }
+
+        synchronized void settle(int seq, boolean wasDelivered) {
+            inFlight.remove(seq);
+            if (settled.get(seq)) {
+                return;
+            }
+            settled.set(seq);
+            settledCount++;
+            if (wasDelivered) {
+                delivered++;
+            } else {
+                failed++;
+            }
+            dirty = true;
+        }
+
+        void drop(int seq) {
+            if (inFlight.remove(seq)) {
+                dropped.add(seq);
+            }
+        }
+
+        List<Integer> takeDropped(int limit) {
+            List<Integer> taken = new ArrayList<>(Math.min(limit, dropped.size()));
+            for (Iterator<Integer> it = dropped.iterator(); it.hasNext() && taken.size() < limit;) {
+                taken.add(it.next());
+                it.remove();
+            }
+            return taken;
+        }
+
+        synchronized Snapshot snapshot() {
+            dirty = false;
+            CampaignStatus status = settledCount >= campaign.getRecipientCount() ? CampaignStatus.COMPLETED
+                    : CampaignStatus.RUNNING;
+            return new Snapshot(settled.toByteArray(), settled.nextClearBit(0), delivered, failed, status);
+        }
+
+        private ObjectNode parseBasePayload(String payload) {
+            if (payload == null) {
+                return null;
+            }
+            try {
+                return objectMapper.readTree(payload) instanceof ObjectNode node ? node : null;
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Invalid payload in campaign " + campaign.getId(), e);
+            }
+        }
+    }
+}
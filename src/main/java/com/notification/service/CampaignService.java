@@ -0,0 +1,110 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.CampaignProperties;
+import com.notification.domain.Campaign;
+import com.notification.domain.CampaignStatus;
+import com.notification.dto.CampaignProgress;
+import com.notification.dto.CampaignRequest;
+import com.notification.repository.CampaignRepository;
+import com.notification.repository.NotificationJobRepository;
+import com.notification.repository.TemplateConfigRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CampaignService {
+
+    private static final String INSERT_RECIPIENT = "INSERT INTO campaign_recipient (campaign_id, seq, data) "
+            + "VALUES (?, ?, ?)";
+
+    private final CampaignRepository campaignRepository;
+    private final TemplateConfigRepository templateRepository;
+    private final NotificationJobRepository jobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CampaignProperties properties;
+
+    /**
+     * Stores the campaign and its recipients in one transaction. Nothing is sent here;
+     * the leader's {@link CampaignExpander} picks the campaign up on its next run.
+     */
+    @Transactional
+    public Long createCampaign(CampaignRequest request) {
+        Long templateId = null;
+        if (request.getTemplateName() != null) {
+            templateId = templateRepository.findByName(request.getTemplateName())
+                    .orElseThrow(() -> new IllegalArgumentException("Template not found: " + request.getTemplateName()))
+                    .getId();
+        }
+        List<Map<String, Object>> recipients = request.getRecipients();
+
+        Campaign campaign = new Campaign();
+        campaign.setName(request.getName());
+        campaign.setTargetUrl(request.getTargetUrl());
+        campaign.setHeaders(request.getHeaders());
+        campaign.setPayload(toJson(request.getPayload()));
+        campaign.setTemplateId(templateId);
+        campaign.setPriority(request.getPriority() != null ? request.getPriority() : 3);
+        campaign.setStatus(CampaignStatus.RUNNING);
+        campaign.setRecipientCount(recipients.size());
+        campaign = campaignRepository.save(campaign);
+
+        // Plain JDBC batches, recipient rows don't need the persistence context
+        List<Object[]> batch = new ArrayList<>(properties.getInsertBatchSize());
+        for (int seq = 0; seq < recipients.size(); seq++) {
+            Map<String, Object> recipient = recipients.get(seq);
+            batch.add(new Object[] { campaign.getId(), seq, toJson(recipient != null ? recipient : Map.of()) });
+            if (batch.size() >= properties.getInsertBatchSize()) {
+                jdbcTemplate.batchUpdate(INSERT_RECIPIENT, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RECIPIENT, batch);
+        }
+
+        log.info("Created campaign id={} with {} recipients", campaign.getId(), recipients.size());
+        return campaign.getId();
+    }
+
+    /**
+     * Progress as last flushed by the expander, plus the current state of the
+     * deliveries that failed their first attempt. Never loads the bitmap.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CampaignProgress> getProgress(Long id) {
+        return campaignRepository.findSummaryById(id).map(campaign -> {
+            Map<String, Long> failedByStatus = new LinkedHashMap<>();
+            for (Object[] row : jobRepository.countByStatusForCampaign(id)) {
+                failedByStatus.put(String.valueOf(row[0]), (Long) row[1]);
+            }
+            return new CampaignProgress(campaign.getId(), campaign.getName(), campaign.getStatus(),
+                    campaign.getRecipientCount(), campaign.getDeliveredCount(), campaign.getFailedCount(),
+                    failedByStatus);
+        });
+    }
+
+    private String toJson(Map<String, Object> value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload is not serializable: " + e.getOriginalMessage(), e);
+        }
+    }
+}
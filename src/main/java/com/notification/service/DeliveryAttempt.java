@@ -0,0 +1,63 @@
+package com.notification.service;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One dispatch of a job. Whoever settles it first, the worker with the HTTP
+ * outcome or the timeout watchdog, owns the job's next state; the other side
+ * must leave the job alone. A timeout also interrupts the worker, which aborts
+ * its blocking socket I/O and discards the connection.
+ */
+public final class DeliveryAttempt {
+
+    private final AtomicBoolean settled = new AtomicBoolean();
+    private volatile boolean timedOut;
+    private volatile Thread worker;
+    private volatile ScheduledFuture<?> watchdog;
+
+    public boolean trySettle() {
+        return settled.compareAndSet(false, true);
+    }
+
+    public boolean isSettled() {
+        return settled.get();
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Settles the attempt as timed out and interrupts the worker.
+     *
+     * @return false if the worker settled it first
+     */
+    boolean timeOut() {
+        if (!trySettle()) {
+            return false;
+        }
+        timedOut = true;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+        return true;
+    }
+
+    void watchdog(ScheduledFuture<?> watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    void begin() {
+        worker = Thread.currentThread();
+    }
+
+    void end() {
+        worker = null;
+        ScheduledFuture<?> current = watchdog;
+        if (current != null) {
+            current.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.notification.service;
+
+/**
+ * Identifies one leadership term. Leader-only writes include it as a predicate
+ * against leader_election, so a node that lost the lease (e.g. during a long GC
+ * pause) cannot apply them once another host has taken over.
+ */
+public record FencingToken(String serviceName, String hostId, long epoch) {
+}
@@ -0,0 +1,41 @@
+package com.notification.service;
+
+import com.notification.domain.NotificationJob;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the notification_job id generator past every id in use before anything is
+ * inserted; the same seed as the V4 migration, applied on each startup because nothing
+ * runs the migrations and Hibernate creates the generator row at its initial value.
+ * <p>
+ * The pooled optimizer reads a stored value as the top of a block and hands out
+ * {@code value - allocationSize + 1} up to it, so the seed is the highest id plus a full
+ * block. Only ever raises the value, so it is safe with other nodes already running.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+@RequiredArgsConstructor
+public class IdGeneratorSeeder {
+
+    private static final String SEED = "INSERT INTO id_generator (sequence_name, next_val) "
+            + "SELECT 'notification_job', GREATEST("
+            + "COALESCE((SELECT MAX(id) FROM notification_job), 0), "
+            + "COALESCE((SELECT MAX(id) FROM notification_job_archive), 0)) + ? "
+            + "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void seed() {
+        jdbcTemplate.update(SEED, NotificationJob.ID_ALLOCATION_SIZE);
+        Long next = jdbcTemplate.queryForObject(
+                "SELECT next_val FROM id_generator WHERE sequence_name = 'notification_job'", Long.class);
+        log.info("Job id generator at {}", next);
+    }
+}
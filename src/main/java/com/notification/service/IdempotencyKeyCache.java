@@ -0,0 +1,41 @@
+package com.notification.service;
+
+import com.notification.config.IdempotencyProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of recently accepted idempotency keys and their job ids. Front
+ * filter only: a miss says nothing, the unique index on notification_job is what
+ * actually rejects a duplicate.
+ */
+@Component
+public class IdempotencyKeyCache {
+
+    // Access-ordered LinkedHashMap gives us LRU eviction; guarded by its own monitor.
+    private final Map<String, Long> keys;
+
+    public IdempotencyKeyCache(IdempotencyProperties properties) {
+        int maxSize = properties.getCacheSize();
+        this.keys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Long get(String key) {
+        synchronized (keys) {
+            return keys.get(key);
+        }
+    }
+
+    public void put(String key, Long jobId) {
+        synchronized (keys) {
+            keys.put(key, jobId);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.notification.service;
+
+import com.notification.config.ArchiveProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Moves finished jobs from notification_job to notification_job_archive and purges
+ * the archive after its retention.
+ * <p>
+ * Runs on the leader only. Candidates are read in primary key order with keyset
+ * pagination and each batch is copied and deleted in its own short transaction, so
+ * no lock is held on more than one batch of rows at a time. The copy is fenced by
+ * the leader epoch; the delete only removes rows that made it into the archive.
+ */
+@Service
+@Slf4j
+public class JobArchiver {
+
+    private static final String SELECT_CANDIDATES = "SELECT id FROM notification_job WHERE id > ? "
+            + "AND status IN ('SUCCESS', 'MAX_RETRIES') AND updated_at < ? ORDER BY id LIMIT ?";
+
+    private static final String COPY_TO_ARCHIVE = "INSERT INTO notification_job_archive (id, target_url, headers, "
+            + "payload, template_id, status, failure_error_message, failure_reason, attempt_count, priority, "
+            + "idempotency_key, created_at, updated_at, archived_at) "
+            + "SELECT j.id, j.target_url, j.headers, j.payload, j.template_id, j.status, j.failure_error_message, "
+            + "j.failure_reason, j.attempt_count, j.priority, j.idempotency_key, j.created_at, j.updated_at, :now "
+            + "FROM notification_job j WHERE j.id IN (:ids) AND j.status IN ('SUCCESS', 'MAX_RETRIES') "
+            + "AND EXISTS (SELECT 1 FROM leader_election le WHERE le.service_name = :serviceName "
+            + "AND le.host_id = :hostId AND le.epoch = :epoch)";
+
+    private static final String DELETE_ARCHIVED = "DELETE FROM notification_job WHERE id IN (:ids) "
+            + "AND status IN ('SUCCESS', 'MAX_RETRIES') "
+            + "AND id IN (SELECT a.id FROM notification_job_archive a WHERE a.id IN (:ids))";
+
+    private static final String PURGE_ROWS = "DELETE FROM notification_job_archive WHERE archived_at < ? "
+            + "ORDER BY archived_at LIMIT ?";
+
+    private static final String LIST_PARTITIONS = "SELECT partition_name FROM information_schema.partitions "
+            + "WHERE table_schema = DATABASE() AND table_name = 'notification_job_archive' "
+            + "AND partition_name IS NOT NULL";
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final ArchiveProperties properties;
+    private final LeaderElectionService leaderElectionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter archived;
+    private final Counter purged;
+
+    public JobArchiver(ArchiveProperties properties, LeaderElectionService leaderElectionService,
+            JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.leaderElectionService = leaderElectionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archived = meterRegistry.counter("notification.archive.moved");
+        this.purged = meterRegistry.counter("notification.archive.purged");
+    }
+
+    @Scheduled(fixedDelayString = "${notification.archive.interval:PT1M}")
+    public void archiveFinishedJobs() {
+        if (!properties.isEnabled() || !leaderElectionService.isLeader()) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(properties.getHotRetention());
+            long lastId = 0;
+            long moved = 0;
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_CANDIDATES, Long.class, lastId,
+                        Timestamp.valueOf(cutoff), properties.getBatchSize());
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                int batchMoved = moveBatch(ids);
+                if (batchMoved < 0) {
+                    log.warn("Leadership lost while archiving, stopping after {} jobs", moved);
+                    break;
+                }
+                moved += batchMoved;
+                if (ids.size() < properties.getBatchSize()) {
+                    break;
+                }
+                pause();
+            }
+            if (moved > 0) {
+                log.info("Archived {} finished jobs older than {}", moved, cutoff);
+            }
+        } catch (Exception e) {
+            log.error("Job archiving failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.archive.purge-interval:PT1H}")
+    public void purgeArchive() {
+        if (!properties.isEnabled() || !leaderElectionService.isLeader()) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+            if (properties.isPartitioned()) {
+                maintainPartitions(cutoff);
+            } else {
+                purgeRows(cutoff);
+            }
+        } catch (Exception e) {
+            log.error("Archive purge failed", e);
+        }
+    }
+
+    // Returns the number of jobs moved, or -1 if the fencing check rejected the copy
+    private int moveBatch(List<Long> ids) {
+        FencingToken token = leaderElectionService.currentFencingToken().orElse(null);
+        if (token == null) {
+            return -1;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids)
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                .addValue("serviceName", token.serviceName())
+                .addValue("hostId", token.hostId())
+                .addValue("epoch", token.epoch());
+        Integer moved = transactionTemplate.execute(status -> {
+            int copied = namedJdbcTemplate.update(COPY_TO_ARCHIVE, params);
+            if (copied == 0) {
+                return -1;
+            }
+            return namedJdbcTemplate.update(DELETE_ARCHIVED, params);
+        });
+        if (moved != null && moved > 0) {
+            archived.increment(moved);
+        }
+        return moved != null ? moved : 0;
+    }
+
+    private void purgeRows(LocalDateTime cutoff) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_ROWS, Timestamp.valueOf(cutoff), properties.getBatchSize());
+            total += deleted;
+            purged.increment(deleted);
+            if (deleted > 0) {
+                pause();
+            }
+        } while (deleted >= properties.getBatchSize() && leaderElectionService.isLeader());
+        if (total > 0) {
+            log.info("Purged {} archived jobs older than {}", total, cutoff);
+        }
+    }
+
+    /**
+     * Drops monthly partitions that lie entirely before the cutoff and splits the
+     * coming months off p_future, so inserts never land in the catch-all partition.
+     */
+    private void maintainPartitions(LocalDateTime cutoff) {
+        TreeSet<YearMonth> months = new TreeSet<>();
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS, String.class)) {
+            YearMonth month = parsePartition(name);
+            if (month != null) {
+                months.add(month);
+            }
+        }
+
+        for (YearMonth month : months) {
+            // A partition holds rows archived before the first day of the next month
+            if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                jdbcTemplate.execute("ALTER TABLE notification_job_archive DROP PARTITION " + partitionName(month));
+                log.info("Dropped archive partition {}", partitionName(month));
+            }
+        }
+
+        YearMonth last = months.isEmpty() ? YearMonth.now().minusMonths(1) : months.last();
+        YearMonth target = YearMonth.now().plusMonths(properties.getPartitionsAhead());
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("ALTER TABLE notification_job_archive REORGANIZE PARTITION p_future INTO ("
+                    + "PARTITION " + partitionName(month) + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1)
+                    + "'), PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+            log.info("Created archive partition {}", partitionName(month));
+        }
+    }
+
+    private static YearMonth parsePartition(String name) {
+        if (name == null || !name.matches("p\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(name.substring(1), PARTITION_MONTH);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "p" + month.format(PARTITION_MONTH);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getBatchPause().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.notification.service;
+
+import com.notification.config.ClusterProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.repository.NotificationJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Row-level claim leases on notification_job.
+ * <p>
+ * A node owns a non-terminal job while {@code claimed_by} is its host id and
+ * {@code claim_expires_at} is in the future. Jobs are claimed on submission by
+ * the accepting node and in batches with SKIP LOCKED by the pollers; owners renew
+ * their leases, so only jobs of a crashed node (or released ones) change hands.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class JobClaimService {
+
+    private final NotificationJobRepository repository;
+    private final LeaderElectionService leaderElectionService;
+    private final ClusterProperties clusterProperties;
+
+    // Called before the insert, so the accepting node owns the job from the start
+    public void claimOnSubmit(NotificationJob job) {
+        job.setClaimedBy(leaderElectionService.getHostId());
+        job.setClaimExpiresAt(LocalDateTime.now().plus(clusterProperties.getClaimLease()));
+    }
+
+    /**
+     * Claims up to {@code limit} due jobs of one queue tier (level 1..3), so callers can
+     * size each read by the room left in that tier.
+     */
+    @Transactional
+    public List<NotificationJob> claimDueJobs(int level, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return claim(repository.findClaimableJobs(now, minPriority(level), maxPriority(level), limit), now);
+    }
+
+    @Transactional
+    public List<NotificationJob> claimSpilledJobs(int level, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return claim(repository.findClaimableSpilledJobs(now, minPriority(level), maxPriority(level), limit), now);
+    }
+
+    @Scheduled(fixedDelayString = "${notification.cluster.claim-renew-interval:PT15S}")
+    public void renewClaims() {
+        // A stale leader must let its claims run out, not keep them alive
+        if (!leaderElectionService.isDispatchingNode()) {
+            return;
+        }
+        try {
+            int renewed = repository.renewClaims(leaderElectionService.getHostId(),
+                    LocalDateTime.now().plus(clusterProperties.getClaimLease()));
+            log.trace("Renewed {} job claims", renewed);
+        } catch (Exception e) {
+            log.error("Failed to renew job claims", e);
+        }
+    }
+
+    /**
+     * Drops every claim this node holds on a PENDING / FAILED job, for a clean shutdown.
+     */
+    public int releaseClaims() {
+        return repository.releaseClaims(leaderElectionService.getHostId());
+    }
+
+    // Out of range priorities are queued in the nearest tier, see QueueManager
+    private static int minPriority(int level) {
+        return level <= 1 ? Integer.MIN_VALUE : level;
+    }
+
+    private static int maxPriority(int level) {
+        return level >= 3 ? Integer.MAX_VALUE : level;
+    }
+
+    private List<NotificationJob> claim(List<NotificationJob> jobs, LocalDateTime now) {
+        if (jobs.isEmpty()) {
+            return jobs;
+        }
+        String owner = leaderElectionService.getHostId();
+        LocalDateTime expiresAt = now.plus(clusterProperties.getClaimLease());
+        List<Long> ids = jobs.stream().map(NotificationJob::getId).toList();
+        if (clusterProperties.getMode() == ClusterProperties.Mode.LEADER) {
+            // Only the leader may take over jobs in leader mode; fence the claim with
+            // the current term so a paused ex-leader cannot grab them
+            FencingToken token = leaderElectionService.currentFencingToken().orElse(null);
+            if (token == null || repository.claimFenced(ids, owner, expiresAt, token.serviceName(),
+                    token.epoch()) == 0) {
+                log.warn("Claim of {} jobs rejected, leadership was lost", ids.size());
+                return List.of();
+            }
+        } else {
+            repository.claim(ids, owner, expiresAt);
+        }
+        for (NotificationJob job : jobs) {
+            job.setClaimedBy(owner);
+            job.setClaimExpiresAt(expiresAt);
+            job.setSpilled(false);
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,87 @@
+package com.notification.service;
+
+import com.notification.config.TracingProperties;
+import com.notification.domain.NotificationJob;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Optional per-job observations. One {@code notification.job} observation covers
+ * an attempt from submit (or re-queue) to its persisted outcome, with
+ * {@code notification.render} and {@code notification.send} as children. The
+ * parent travels on the job itself since every stage runs on a different thread.
+ * <p>
+ * Everything is a no-op unless {@code notification.tracing.enabled} is set.
+ */
+@Component
+@RequiredArgsConstructor
+public class JobTracing {
+
+    private final ObservationRegistry observationRegistry;
+    private final TracingProperties properties;
+
+    public void submitted(NotificationJob job) {
+        if (properties.isEnabled()) {
+            begin(job).event(Observation.Event.of("submitted"));
+        }
+    }
+
+    public void enqueued(NotificationJob job) {
+        if (properties.isEnabled()) {
+            begin(job).event(Observation.Event.of("enqueued"));
+        }
+    }
+
+    public <T> T stage(NotificationJob job, String name, Supplier<T> work) {
+        if (!properties.isEnabled()) {
+            return work.get();
+        }
+        return Observation.createNotStarted(name, observationRegistry)
+                .parentObservation(begin(job))
+                .highCardinalityKeyValue("job.id", String.valueOf(job.getId()))
+                .observe(work);
+    }
+
+    public void stage(NotificationJob job, String name, Runnable work) {
+        stage(job, name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Ends the attempt once its outcome is in the database; a retry starts a new one.
+     */
+    public void persisted(Observation observation, String status) {
+        if (observation == null) {
+            return;
+        }
+        observation.lowCardinalityKeyValue("status", status);
+        observation.event(Observation.Event.of("persisted"));
+        observation.stop();
+    }
+
+    // Detaches the attempt's observation from the job so the sink can end it after the write
+    public Observation detach(NotificationJob job) {
+        Observation observation = job.getTrace();
+        job.setTrace(null);
+        return observation;
+    }
+
+    private Observation begin(NotificationJob job) {
+        Observation observation = job.getTrace();
+        if (observation == null) {
+            observation = Observation.createNotStarted("notification.job", observationRegistry)
+                    .lowCardinalityKeyValue("priority", String.valueOf(job.getPriority()))
+                    .highCardinalityKeyValue("job.id", String.valueOf(job.getId()))
+                    .highCardinalityKeyValue("attempt", String.valueOf(job.getAttemptCount()))
+                    .start();
+            job.setTrace(observation);
+        }
+        return observation;
+    }
+}
@@ -1,15 +1,24 @@
 package com.notification.service;
 
+import com.notification.config.ClusterProperties;
+import com.notification.domain.LeaderElection;
+import com.notification.repository.ClusterNodeRepository;
 import com.notification.repository.LeaderElectionRepository;
 import jakarta.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -17,33 +26,150 @@ import java.util.UUID;
 public class LeaderElectionService {
 
     private final LeaderElectionRepository repository;
+    private final ClusterNodeRepository clusterNodeRepository;
+    private final ClusterProperties clusterProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    @Getter
     private final String hostId = UUID.randomUUID().toString();
     private static final String SERVICE_NAME = "notification-service";
     private static final int LEASE_SECONDS = 10;
+    // Local leadership ends this long before the lease does, covering clock drift
+    // between nodes and the time between reading the row and acting on it
+    private static final int SAFETY_MARGIN_SECONDS = 2;
+
+    // Leadership as of the last heartbeat; read on every isLeader() call
+    private volatile Leadership leadership = Leadership.NONE;
+
+    // Nodes that heartbeated within one lease, refreshed on every heartbeat
+    private volatile int liveNodeCount = 1;
+
+    // Set on shutdown, after which this node never takes the lease again
+    private volatile boolean resigned;
 
     @PostConstruct
     public void init() {
-        log.info("Initialized LeaderElectionService with HostID: {}", hostId);
+        log.info("Initialized LeaderElectionService with HostID: {} (mode {})", hostId, clusterProperties.getMode());
     }
 
     @Scheduled(fixedDelay = 2000) // Heartbeat every 2s
     @Transactional
     public void heartbeat() {
+        if (resigned) {
+            return;
+        }
+        // Measured before the DB round-trip, so local validity never outlasts the lease
+        long startedAt = System.nanoTime();
         try {
             LocalDateTime now = LocalDateTime.now();
             LocalDateTime leaseExpiry = now.minusSeconds(LEASE_SECONDS);
 
-            int rows = repository.tryAcquireOrRenewLease(SERVICE_NAME, hostId, now, leaseExpiry);
-            if (rows > 0 && isLeader()) {
-                log.debug("Lease renewed for host {}", hostId);
+            repository.tryAcquireOrRenewLease(SERVICE_NAME, hostId, now, leaseExpiry);
+            LeaderElection lease = repository.findById(SERVICE_NAME).orElse(null);
+            if (lease != null && hostId.equals(lease.getHostId())) {
+                long validUntil = startedAt + TimeUnit.SECONDS.toNanos(LEASE_SECONDS - SAFETY_MARGIN_SECONDS);
+                update(new Leadership(true, lease.getEpoch(), validUntil));
+                log.debug("Lease renewed for host {} (epoch {})", hostId, lease.getEpoch());
+            } else {
+                update(Leadership.NONE);
             }
+
+            clusterNodeRepository.heartbeat(hostId, now);
+            liveNodeCount = (int) Math.max(1, clusterNodeRepository.countLiveNodes(leaseExpiry));
         } catch (Exception e) {
+            // Can't prove we still hold the lease, stop acting as leader right away
+            update(Leadership.NONE);
             log.error("Error during leader election heartbeat", e);
         }
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Steps down for good: stops acting as leader and expires the lease in the DB,
+     * so a standby takes over on its next heartbeat instead of after a full lease.
+     */
+    public void resign() {
+        resigned = true;
+        boolean wasLeader = leadership.leader();
+        update(Leadership.NONE);
+        if (!wasLeader) {
+            return;
+        }
+        try {
+            repository.expireLease(SERVICE_NAME, hostId, LocalDateTime.now().minusSeconds(LEASE_SECONDS + 1));
+            log.info("Resigned leadership for host {}", hostId);
+        } catch (Exception e) {
+            log.warn("Could not expire the lease on resign, it lapses after {}s", LEASE_SECONDS, e);
+        }
+    }
+
+    // Singleton duties (monitoring, housekeeping) stay with the leader in every mode
     public boolean isLeader() {
-        return repository.isLeader(SERVICE_NAME, hostId);
+        Leadership current = leadership;
+        return current.leader() && System.nanoTime() - current.validUntilNanos() < 0;
+    }
+
+    /**
+     * Token for the current term, empty when this node is not the leader.
+     */
+    public Optional<FencingToken> currentFencingToken() {
+        Leadership current = leadership;
+        if (!isLeader()) {
+            return Optional.empty();
+        }
+        return Optional.of(new FencingToken(SERVICE_NAME, hostId, current.epoch()));
+    }
+
+    /**
+     * Whether this node accepts submissions and dispatches work: every node in
+     * active-active mode, only the leader otherwise.
+     */
+    public boolean isDispatchingNode() {
+        return clusterProperties.getMode() == ClusterProperties.Mode.ACTIVE_ACTIVE || isLeader();
+    }
+
+    /**
+     * Number of nodes sharing the dispatch load, used to split per-vendor limits.
+     */
+    public int getDispatchingNodeCount() {
+        return clusterProperties.getMode() == ClusterProperties.Mode.ACTIVE_ACTIVE ? liveNodeCount : 1;
+    }
+
+    private void update(Leadership next) {
+        Leadership previous = leadership;
+        leadership = next;
+        if (previous.leader() != next.leader() || (next.leader() && previous.epoch() != next.epoch())) {
+            log.info("Leadership {} for host {} (epoch {})", next.leader() ? "acquired" : "lost", hostId,
+                    next.leader() ? next.epoch() : previous.epoch());
+            LeadershipChangedEvent event = new LeadershipChangedEvent(next.leader(),
+                    next.leader() ? next.epoch() : previous.epoch());
+            if (next.leader() && TransactionSynchronizationManager.isSynchronizationActive()) {
+                publishAfterCommit(next, event);
+            } else {
+                // Losing needs no commit: stop acting as leader right away
+                eventPublisher.publishEvent(event);
+            }
+        }
+    }
+
+    // The epoch is only in the DB once the heartbeat commits, and listeners fence their
+    // writes on it. Skipped if leadership changed meanwhile; a rolled back renewal means
+    // we never held the lease, so the next heartbeat has to win it (and announce it) again.
+    private void publishAfterCommit(Leadership next, LeadershipChangedEvent event) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (leadership != next) {
+                    return;
+                }
+                if (status == STATUS_COMMITTED) {
+                    eventPublisher.publishEvent(event);
+                } else {
+                    update(Leadership.NONE);
+                }
+            }
+        });
+    }
+
+    private record Leadership(boolean leader, long epoch, long validUntilNanos) {
+        static final Leadership NONE = new Leadership(false, 0, 0);
     }
 }
@@ -0,0 +1,8 @@
+package com.notification.service;
+
+/**
+ * Published by {@link LeaderElectionService} when this node gains or loses the
+ * leader lease, so components can start or stop singleton work right away.
+ */
+public record LeadershipChangedEvent(boolean leader, long epoch) {
+}
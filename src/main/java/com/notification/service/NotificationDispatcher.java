@@ -1,11 +1,17 @@
 package com.notification.service;
 
+import com.notification.config.ConcurrencyProperties;
+import com.notification.config.QueueProperties;
+import com.notification.config.RateLimitProperties;
+import com.notification.config.RecoveryProperties;
+import com.notification.domain.FailureReason;
 import com.notification.domain.NotificationJob;
-import com.notification.domain.NotificationStatus;
-import com.notification.repository.NotificationJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -13,6 +19,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
@@ -21,7 +31,14 @@ public class NotificationDispatcher {
 
     private final QueueManager queueManager;
     private final NotificationProcessor processor;
-    private final NotificationJobRepository repository;
+    private final VendorRateLimiter rateLimiter;
+    private final VendorCircuitBreakers circuitBreakers;
+    private final QueueProperties queueProperties;
+    private final RateLimitProperties rateLimitProperties;
+    private final StatusUpdateSink statusSink;
+    private final RecoveryProperties recoveryProperties;
+    private final JobClaimService claimService;
+    private final MeterRegistry meterRegistry;
 
     // Separate executors for different priorities
     // Level 1 (High)
@@ -30,79 +47,385 @@ public class NotificationDispatcher {
     // Level 2/3 (Standard)
     private final ExecutorService standardPriorityExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
+    // Fires attempt timeouts; cancelled watchdogs are removed right away, so only
+    // in-flight attempts are held here
+    private final ScheduledThreadPoolExecutor timeoutWatchdog = newWatchdog();
+
     private final LeaderElectionService leaderElectionService;
+    private final ConcurrencyProperties concurrencyProperties;
+    private final VendorBatcher batcher;
+    private final TakeoverWarmup takeoverWarmup;
+    private final RetryTimerWheel retryTimer;
+
+    private final List<Thread> consumers = new CopyOnWriteArrayList<>();
+    private AdaptiveConcurrencyLimiter highPriorityLimiter;
+    private AdaptiveConcurrencyLimiter standardPriorityLimiter;
 
     @PostConstruct
     public void startConsumers() {
-        // High Priority Consumer
-        Thread highPriorityThread = new Thread(() -> {
+        highPriorityLimiter = new AdaptiveConcurrencyLimiter("high", concurrencyProperties, meterRegistry);
+        standardPriorityLimiter = new AdaptiveConcurrencyLimiter("standard", concurrencyProperties, meterRegistry);
+        rateLimiter.onPermitForParked(this::dispatchParked);
+        batcher.onBatchReady(this::dispatchBatch);
+        // Each consumer takes a job only once its executor has room under the adaptive limit
+        startConsumer("HighPriorityConsumer", queueManager::takeHigh, highPriorityExecutor, highPriorityLimiter);
+        startConsumer("StandardPriorityConsumer", queueManager::takeStandard, standardPriorityExecutor,
+                standardPriorityLimiter);
+    }
+
+    private void startConsumer(String name, JobSource source, ExecutorService executor,
+            AdaptiveConcurrencyLimiter limiter) {
+        Thread consumer = new Thread(() -> {
             while (true) {
                 try {
-                    NotificationJob job = queueManager.getHighPriorityQueue().take();
-                    dispatchWithTimeout(job, highPriorityExecutor);
+                    limiter.acquire();
+                    NotificationJob job;
+                    try {
+                        job = source.take();
+                    } catch (InterruptedException e) {
+                        limiter.release();
+                        throw e;
+                    }
+                    if (!dispatchOrDefer(job, executor, limiter)) {
+                        limiter.release();
+                    }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
                 }
             }
         });
+        consumer.setName(name);
+        consumer.start();
+        consumers.add(consumer);
+    }
 
-        highPriorityThread.setName("HighPriorityConsumer");
-        highPriorityThread.start();
+    // Safety net only: retries are normally re-queued by the timer wheel at their
+    // exact next_retry_at. This claims due jobs no live node owns, i.e. jobs of a
+    // crashed node whose claim lease expired, or released ones.
+    @Scheduled(fixedDelayString = "${notification.recovery.interval:PT10S}")
+    public void recoveryPoller() {
+        if (!leaderElectionService.isDispatchingNode()) {
+            log.trace("Not dispatching, skipping recovery poller");
+            return;
+        }
 
-        // Standard Priority Consumer
-        Thread standardPriorityThread = new Thread(() -> {
+        log.debug("Running recovery poller...");
+
+        // Rows must reflect every outcome seen so far before ownership can change hands
+        statusSink.flush();
+
+        // Per tier, so a full tier does not take the room of another one. Keep draining
+        // while full batches come back, growing the batch each round.
+        for (int level = 1; level <= 3; level++) {
+            int batchSize = recoveryProperties.getInitialBatchSize();
             while (true) {
-                try {
-                    QueueManager.JobItem item = queueManager.getStandardPriorityQueue().take();
-                    dispatchWithTimeout(item.job(), standardPriorityExecutor);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                int limit = Math.min(batchSize, queueManager.remainingCapacity(level));
+                if (limit <= 0) {
                     break;
                 }
+                List<NotificationJob> recovered = claimService.claimDueJobs(level, limit);
+                for (NotificationJob job : recovered) {
+                    log.info("Recovered unclaimed job {} ({})", job.getId(), job.getStatus());
+                }
+                queueManager.pushAll(recovered);
+                if (recovered.size() < limit) {
+                    break;
+                }
+                batchSize = Math.min(batchSize * 2, recoveryProperties.getMaxBatchSize());
+            }
+        }
+    }
+
+    @EventListener
+    public void onLeadershipChanged(LeadershipChangedEvent event) {
+        if (event.leader()) {
+            // Start recovering right away instead of on the next poll; off the
+            // heartbeat thread so lease renewal is never delayed
+            Thread.ofVirtual().name("LeaderTakeover").start(() -> {
+                try {
+                    takeoverWarmup.warmUp();
+                } catch (Exception e) {
+                    log.error("Takeover warm-up failed, leaving it to the recovery poller", e);
+                }
+                recoveryPoller();
+                refillSpilled();
+            });
+        } else if (!leaderElectionService.isDispatchingNode()) {
+            Thread.ofVirtual().name("LeaderStepDown").start(this::stepDown);
+        }
+    }
+
+    // Leader mode, lease lost: hand every job back so the new leader can take them now,
+    // instead of this node sending them on or keeping their claims alive. Deliveries
+    // already in flight finish, their outcomes are fenced out by the sink.
+    private void stepDown() {
+        try {
+            retryTimer.cancelAll();
+            List<NotificationJob> parked = rateLimiter.dropParked();
+            parked.forEach(queueManager::releaseParked);
+            int queued = queueManager.drainAll().size();
+            int released = claimService.releaseClaims();
+            log.warn("Leadership lost: dropped {} queued and {} parked jobs, released {} claims", queued,
+                    parked.size(), released);
+        } catch (Exception e) {
+            log.error("Failed to release claims after losing leadership, they expire after their lease", e);
+        }
+    }
+
+    /**
+     * Graceful shutdown: stop taking jobs, give in-flight deliveries the grace period
+     * to finish, write their outcomes, then release every claim this node holds
+     * (queued jobs, pending retries) and step down, so the next leader can pick them
+     * up right away instead of waiting for leases to expire.
+     */
+    @PreDestroy
+    public void shutdown() {
+        consumers.forEach(Thread::interrupt);
+        highPriorityExecutor.shutdown();
+        standardPriorityExecutor.shutdown();
+        long deadline = System.nanoTime() + recoveryProperties.getShutdownGracePeriod().toNanos();
+        try {
+            highPriorityExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            standardPriorityExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timeoutWatchdog.shutdownNow();
+        try {
+            statusSink.flush();
+            int released = claimService.releaseClaims();
+            log.info("Shutdown: released {} job claims ({} still queued in memory)", released,
+                    queueManager.size(1) + queueManager.size(2) + queueManager.size(3));
+        } catch (Exception e) {
+            log.error("Failed to hand back jobs on shutdown, they are reclaimed after their leases expire", e);
+        }
+        leaderElectionService.resign();
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void refillSpilled() {
+        if (!leaderElectionService.isDispatchingNode()) {
+            return;
+        }
+
+        // Each tier only takes what fits into it, so spilled low priority jobs are not
+        // starved by high priority ones that would just spill again
+        for (int level = 1; level <= 3; level++) {
+            int limit = Math.min(queueProperties.getRefillBatchSize(), queueManager.remainingCapacity(level));
+            if (limit <= 0) {
+                continue;
+            }
+            List<NotificationJob> spilled = claimService.claimSpilledJobs(level, limit);
+            if (spilled.isEmpty()) {
+                continue;
+            }
+            queueManager.pushAll(spilled);
+            log.debug("Refilled {} spilled priority {} jobs into memory queues", spilled.size(), level);
+        }
+    }
+
+    private static final int TASK_TIMEOUT_SECONDS = 30;
+
+    // Returns true if a delivery was started, which then owns the concurrency permit
+    private boolean dispatchOrDefer(NotificationJob job, ExecutorService executor,
+            AdaptiveConcurrencyLimiter limiter) {
+        if (!leaderElectionService.isDispatchingNode()) {
+            // Taken just before the step-down emptied the queues; its claim is released or runs out
+            return false;
+        }
+        String host = TargetHosts.of(job.getTargetUrl());
+        if (batcher.offer(job)) {
+            // Batched hosts are rate limited and sent per batch by the batcher
+            return false;
+        }
+        // Counted before parking, so the parked-job handler can never uncount it first
+        queueManager.holdParked(job);
+        VendorRateLimiter.Admission admission = rateLimiter.acquireOrPark(host, job);
+        if (admission == VendorRateLimiter.Admission.PARKED) {
+            // Over the host's rate or in-flight limit: not a failure, it is handed back
+            // through dispatchParked once a permit is free
+            log.trace("Parking job {}, host {} is at its limit", job.getId(), host);
+            return false;
+        }
+        queueManager.releaseParked(job);
+        if (admission == VendorRateLimiter.Admission.FULL) {
+            // Enough of this host's jobs are waiting in memory already; the rest wait in the DB
+            log.trace("Spilling job {}, host {} has too many parked jobs", job.getId(), host);
+            queueManager.spillUntil(job, LocalDateTime.now().plus(rateLimitProperties.getParkedOverflowDelay()));
+            return false;
+        }
+        return dispatchPermitted(job, executor, host, limiter);
+    }
+
+    // A parked job got its host's permit; called on the rate limiter's timer thread
+    private void dispatchParked(NotificationJob job) {
+        queueManager.releaseParked(job);
+        String host = TargetHosts.of(job.getTargetUrl());
+        if (!leaderElectionService.isDispatchingNode()) {
+            rateLimiter.release(host);
+            return;
+        }
+        boolean high = job.getPriority() != null && job.getPriority() == 1;
+        ExecutorService executor = high ? highPriorityExecutor : standardPriorityExecutor;
+        AdaptiveConcurrencyLimiter limiter = high ? highPriorityLimiter : standardPriorityLimiter;
+        boolean started = submit(executor, () -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                // Shutting down: the job keeps its claim and is released with the others
+                rateLimiter.release(host);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!dispatchPermitted(job, executor, host, limiter)) {
+                limiter.release();
             }
         });
+        if (!started) {
+            rateLimiter.release(host);
+        }
+    }
 
-        standardPriorityThread.setName("StandardPriorityConsumer");
-        standardPriorityThread.start();
+    // With the host's rate-limit permit held; gives it back unless a delivery starts
+    private boolean dispatchPermitted(NotificationJob job, ExecutorService executor, String host,
+            AdaptiveConcurrencyLimiter limiter) {
+        LocalDateTime probeAt = circuitBreakers.blockedUntil(host);
+        if (probeAt != null) {
+            // Known-bad vendor: park the job until the probe time without spending an attempt
+            rateLimiter.release(host);
+            submit(executor, () -> processor.deferForOpenCircuit(job, probeAt));
+            return false;
+        }
+        return dispatchWithTimeout(job, executor, host, limiter);
     }
 
-    @Scheduled(fixedDelay = 5000) // Run every 5 seconds
-    public void recoveryPoller() {
-        if (!leaderElectionService.isLeader()) {
-            log.trace("Not leader, skipping recovery poller");
+    // Returns false, with the host's permits given back, if shutdown stopped the delivery from starting
+    private boolean dispatchWithTimeout(NotificationJob job, ExecutorService executor, String host,
+            AdaptiveConcurrencyLimiter limiter) {
+        DeliveryAttempt attempt = new DeliveryAttempt();
+        long startedAt = System.nanoTime();
+        Runnable delivery = () -> {
+            attempt.begin();
+            try {
+                processor.process(job, attempt);
+            } catch (Exception e) {
+                log.error("Job {} execution error", job.getId(), e);
+            } finally {
+                attempt.end();
+                // Released when the call really ends, not when the timeout fires
+                rateLimiter.release(host);
+                limiter.onComplete(System.nanoTime() - startedAt, attempt.isTimedOut());
+            }
+        };
+        if (schedule(attempt, () -> onTimeout(job, attempt, executor, host)) && submit(executor, delivery)) {
+            return true;
+        }
+        attempt.end();
+        rateLimiter.release(host);
+        circuitBreakers.onNotSent(host);
+        return false;
+    }
+
+    // A batch is one delivery: one concurrency permit of its tier, one timeout
+    private void dispatchBatch(VendorBatcher.Batch batch) {
+        if (!leaderElectionService.isDispatchingNode()) {
+            log.debug("Dropping batch of {} jobs to {}, no longer dispatching", batch.jobs().size(), batch.host());
             return;
         }
+        ExecutorService executor = batch.high() ? highPriorityExecutor : standardPriorityExecutor;
+        AdaptiveConcurrencyLimiter limiter = batch.high() ? highPriorityLimiter : standardPriorityLimiter;
+        submit(executor, () -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                // Shutting down: the jobs keep their claims and are released with the others
+                Thread.currentThread().interrupt();
+                return;
+            }
+            DeliveryAttempt attempt = new DeliveryAttempt();
+            long startedAt = System.nanoTime();
+            if (!schedule(attempt, () -> onBatchTimeout(batch, attempt, executor))) {
+                limiter.release();
+                return;
+            }
+            attempt.begin();
+            boolean sent = false;
+            try {
+                sent = batcher.deliver(batch, attempt);
+            } catch (Exception e) {
+                log.error("Batch of {} jobs to {} execution error", batch.jobs().size(), batch.host(), e);
+            } finally {
+                attempt.end();
+                if (sent) {
+                    limiter.onComplete(System.nanoTime() - startedAt, attempt.isTimedOut());
+                } else {
+                    limiter.release();
+                }
+            }
+        });
+    }
 
-        log.debug("Running recovery poller...");
+    private void onBatchTimeout(VendorBatcher.Batch batch, DeliveryAttempt attempt, ExecutorService executor) {
+        if (!attempt.timeOut()) {
+            return;
+        }
+        String host = batch.host();
+        log.warn("Batch of {} jobs to {} timed out after {}s, request aborted", batch.jobs().size(), host,
+                TASK_TIMEOUT_SECONDS);
+        meterRegistry.counter("notification.dispatch.timeouts",
+                "host", host, "priority", String.valueOf(batch.jobs().get(0).getPriority())).increment();
+        circuitBreakers.onFailure(host, TimeUnit.SECONDS.toNanos(TASK_TIMEOUT_SECONDS));
+        submit(executor, () -> batch.jobs().forEach(
+                job -> processor.handleFailureInternal(job, "Timeout", FailureReason.UNKNOWN)));
+    }
 
-        int batchSize = 50;
+    private void onTimeout(NotificationJob job, DeliveryAttempt attempt, ExecutorService executor, String host) {
+        if (!attempt.timeOut()) {
+            return; // Finished just in time
+        }
+        log.warn("Job {} timed out after {}s, request aborted", job.getId(), TASK_TIMEOUT_SECONDS);
+        meterRegistry.counter("notification.dispatch.timeouts",
+                "host", host, "priority", String.valueOf(job.getPriority())).increment();
+        circuitBreakers.onFailure(host, TimeUnit.SECONDS.toNanos(TASK_TIMEOUT_SECONDS));
+        // Off the watchdog thread, recording the outcome may block on a full status sink
+        submit(executor, () -> processor.handleFailureInternal(job, "Timeout", FailureReason.UNKNOWN));
+    }
 
-        List<NotificationJob> retryJobs = repository.findJobsForRecovery(
-                List.of(NotificationStatus.FAILED.name()),
-                LocalDateTime.now(),
-                batchSize);
-        for (NotificationJob job : retryJobs) {
-            log.info("Recovered failed job for retry {}", job.getId());
-            queueManager.push(job);
+    // Executors are shut down on shutdown while parked jobs, batches and watchdogs still
+    // come in. A rejected job keeps its claim: shutdown releases it, or its lease expires.
+    private static boolean submit(ExecutorService executor, Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Executor shut down, task not started");
+            return false;
         }
     }
 
-    private static final int TASK_TIMEOUT_SECONDS = 30;
+    private boolean schedule(DeliveryAttempt attempt, Runnable onTimeout) {
+        try {
+            attempt.watchdog(timeoutWatchdog.schedule(onTimeout, TASK_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Timeout watchdog shut down, delivery not started");
+            return false;
+        }
+    }
 
-    private void dispatchWithTimeout(NotificationJob job, ExecutorService executor) {
-
-        java.util.concurrent.CompletableFuture.runAsync(() -> processor.process(job), executor)
-                .orTimeout(TASK_TIMEOUT_SECONDS, java.util.concurrent.TimeUnit.SECONDS)
-                .exceptionally(ex -> {
-                    if (ex instanceof java.util.concurrent.TimeoutException) {
-                        log.warn("Job {} timed out after {}s", job.getId(), TASK_TIMEOUT_SECONDS);
-                        processor.handleFailureInternal(job, "Timeout",
-                                com.notification.domain.FailureReason.UNKNOWN);
-                    } else {
-                        log.error("Job {} execution error", job.getId(), ex);
-                    }
-                    return null;
-                });
+    private static ScheduledThreadPoolExecutor newWatchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "DispatchTimeoutWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
+    @FunctionalInterface
+    private interface JobSource {
+        NotificationJob take() throws InterruptedException;
     }
 }
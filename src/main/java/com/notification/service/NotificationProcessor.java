@@ -3,118 +3,228 @@ package com.notification.service;
 import com.notification.domain.NotificationJob;
 import com.notification.domain.NotificationStatus;
 import com.notification.domain.FailureReason;
-import com.notification.repository.NotificationJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class NotificationProcessor {
 
-    private final NotificationJobRepository repository;
-    private final TemplateService templateService;
-    private final RestClient.Builder restClientBuilder;
-
-    // Requires new transaction to ensure status update is committed independently
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void process(NotificationJob job) {
-        // Build client here or use pre-built if configured.
-        // Ideally inject RestClient if it's singleton, but for testing we might want to
-        // mock the builder or the client.
-        // If we inject Builder, we can build it.
-        RestClient restClient = restClientBuilder.build();
-
-        if (job == null) {
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final RequestBodyPreparer bodyPreparer;
+    private final OutboundHttpClients httpClients;
+    private final VendorCircuitBreakers circuitBreakers;
+    private final StatusUpdateSink statusSink;
+    private final RetryTimerWheel retryTimer;
+    private final RetryPolicies retryPolicies;
+    private final MeterRegistry meterRegistry;
+    private final JobTracing tracing;
+
+    // Outcomes go through the write-behind sink, no transaction is held during the HTTP call.
+    // The outcome is only applied if this attempt settles before its timeout does.
+    // Called with a circuit breaker permit for the job's host, which every path gives back.
+    public void process(NotificationJob job, DeliveryAttempt attempt) {
+        if (job == null || attempt.isSettled()) {
+            // Timed out before it started: the timeout already reported the permit as a failure
             return;
         }
 
+        String host = TargetHosts.of(job.getTargetUrl());
         if (job.getStatus() == NotificationStatus.SUCCESS || job.getStatus() == NotificationStatus.MAX_RETRIES) {
+            circuitBreakers.onNotSent(host);
             return; // Already done
         }
 
+        long sentAt = 0;
         try {
-            String payloadBody;
-            if (job.getTemplateId() != null) {
-                payloadBody = templateService.transform(job.getTemplateId(), job.getPayload());
-            } else {
-                payloadBody = new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(job.getPayload());
+            // Rendered on the first attempt only, retries reuse the prepared bytes
+            if (job.getPreparedBody() == null) {
+                tracing.stage(job, "notification.render", () -> bodyPreparer.prepare(job));
             }
+            byte[] payloadBody = job.getPreparedBody();
+            MediaType contentType = MediaType.parseMediaType(job.getPreparedContentType());
+
+            // Perform HTTP Request on the pooled client for this vendor
+            RestClient restClient = httpClients.forUrl(job.getTargetUrl());
+            sentAt = System.nanoTime();
+            tracing.stage(job, "notification.send", () -> {
+                restClient.post()
+                        .uri(job.getTargetUrl())
+                        .headers(headers -> {
+                            if (job.getHeaders() != null) {
+                                job.getHeaders().forEach(headers::add);
+                            }
+                            // Lets the receiver dedupe too, unless the caller already set one
+                            if (job.getIdempotencyKey() != null && !headers.containsKey(IDEMPOTENCY_KEY_HEADER)) {
+                                headers.set(IDEMPOTENCY_KEY_HEADER, job.getIdempotencyKey());
+                            }
+                            headers.setContentType(contentType);
+                        })
+                        .body(payloadBody)
+                        .retrieve()
+                        .toBodilessEntity();
+            });
+            if (!settle(job, attempt)) {
+                return;
+            }
+            long latency = System.nanoTime() - sentAt;
+            circuitBreakers.onSuccess(host, latency);
+            recordHttp(host, "SUCCESS", latency);
 
-            // Perform HTTP Request
-            restClient.post()
-                    .uri(job.getTargetUrl())
-                    .headers(headers -> {
-                        if (job.getHeaders() != null) {
-                            job.getHeaders().forEach(headers::add);
-                        }
-                    })
-                    .body(payloadBody)
-                    .retrieve()
-                    .toBodilessEntity();
-
-            // Success
-            job.setStatus(NotificationStatus.SUCCESS);
-            log.info("Job {} success", job.getId());
+            markDelivered(job);
 
         } catch (RestClientResponseException e) {
+            if (!settle(job, attempt)) {
+                return;
+            }
             log.error("Job {} failed with status {}: {}", job.getId(), e.getStatusCode(), e.getMessage());
-            FailureReason reason = e.getStatusCode().is4xxClientError() ? FailureReason.CLIENT_ERROR
-                    : FailureReason.EXTERNAL_SERVICE_UNAVAILABLE;
-            handleFailureInternal(job, e.getMessage(), reason);
+            FailureReason reason = classify(e);
+            long latency = System.nanoTime() - sentAt;
+            if (reason == FailureReason.EXTERNAL_SERVICE_UNAVAILABLE) {
+                circuitBreakers.onFailure(host, latency);
+            } else {
+                circuitBreakers.onSuccess(host, latency);
+            }
+            recordHttp(host, reason.name(), latency);
+            handleFailureInternal(job, e.getMessage(), reason, e.getStatusCode().value(),
+                    RetryPolicies.retryAfter(e));
         } catch (ResourceAccessException e) {
+            if (!settle(job, attempt)) {
+                return; // Most likely our own abort of a timed out call
+            }
             log.error("Job {} failed with I/O error: {}", job.getId(), e.getMessage());
+            long latency = System.nanoTime() - sentAt;
+            circuitBreakers.onFailure(host, latency);
+            recordHttp(host, FailureReason.EXTERNAL_SERVICE_UNAVAILABLE.name(), latency);
             handleFailureInternal(job, e.getMessage(), FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
         } catch (Exception e) {
+            if (!settle(job, attempt)) {
+                return;
+            }
             log.error("Job {} failed: {}", job.getId(), e.getMessage());
+            circuitBreakers.onNotSent(host);
             handleFailureInternal(job, e.getMessage(), FailureReason.UNKNOWN);
         }
-        repository.save(job);
     }
 
-    // Made public/package-private for Dispatcher timeout handling
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void handleFailureInternal(NotificationJob job, String errorMessage, FailureReason reason) {
+    public void markDelivered(NotificationJob job) {
+        job.setStatus(NotificationStatus.SUCCESS);
+        statusSink.record(job);
+        log.info("Job {} success", job.getId());
+    }
+
+    /**
+     * Pushes a job back to the probe time of its host's open circuit. No HTTP call
+     * is made and the attempt is not counted.
+     */
+    public void deferForOpenCircuit(NotificationJob job, LocalDateTime probeAt) {
         if (job == null)
             return;
 
-        // Refresh job from DB to get latest version?
-        // Or assume passed job is OK. If timeout happens, job object might be stale?
-        // Safest is to reload, but we modified QueueManager to pass job.
-        // Let's reload to be safe against concurrency since this is an error path.
-        // But if we reload, we lose the changes made in process()? process() hasn't
-        // saved yet if it timed out.
-        // So reloading is correct.
+        log.debug("Circuit open for job {}, rescheduled to {}", job.getId(), probeAt);
+        job.setStatus(NotificationStatus.FAILED);
+        job.setFailureReason(FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
+        job.setFailureErrorMessage("Circuit open for " + TargetHosts.of(job.getTargetUrl()));
+        job.setNextRetryAt(probeAt);
+        recordRetry(job);
+    }
 
-        try {
-            job = repository.findById(job.getId()).orElse(job);
-        } catch (Exception e) {
-            log.error("Cannot find job {}", job.getId());
+    // Made public/package-private for Dispatcher timeout handling
+    public void handleFailureInternal(NotificationJob job, String errorMessage, FailureReason reason) {
+        handleFailureInternal(job, errorMessage, reason, null, null);
+    }
+
+    /**
+     * Counts the failed attempt and either schedules the next one as the job's retry
+     * policy says, or ends the job as MAX_RETRIES.
+     *
+     * @param status     HTTP status of the response, null if none was received
+     * @param retryAfter the response's Retry-After, null if none
+     */
+    public void handleFailureInternal(NotificationJob job, String errorMessage, FailureReason reason,
+            Integer status, Duration retryAfter) {
+        if (job == null)
             return;
-        }
 
+        // The in-memory job is the latest state: nothing but the sink writes status
+        // fields, and the recovery poller flushes the sink before reading rows back.
         log.warn("Marking job {} failed due to: {} ({})", job.getId(), reason, errorMessage);
 
         job.setFailureErrorMessage(errorMessage);
         job.setFailureReason(reason);
 
         job.setAttemptCount(job.getAttemptCount() + 1);
-        if (job.getAttemptCount() >= 5) {
+        LocalDateTime nextRetryAt = retryPolicies.nextRetryAt(job, reason, status, retryAfter);
+        if (nextRetryAt == null) {
             job.setStatus(NotificationStatus.MAX_RETRIES);
         } else {
             job.setStatus(NotificationStatus.FAILED);
-            // Exponential backoff
-            long seconds = (long) Math.pow(2, job.getAttemptCount());
-            job.setNextRetryAt(LocalDateTime.now().plusSeconds(seconds));
+            job.setNextRetryAt(nextRetryAt);
+        }
+        meterRegistry.counter("notification.delivery.failures",
+                "host", TargetHosts.of(job.getTargetUrl()),
+                "reason", reason != null ? reason.name() : FailureReason.UNKNOWN.name(),
+                "status", job.getStatus().name(),
+                "priority", String.valueOf(job.getPriority())).increment();
+        if (job.getStatus() == NotificationStatus.FAILED) {
+            recordRetry(job);
+        } else {
+            statusSink.record(job);
+        }
+    }
+
+    // A retry beyond the timer horizon gives up its claim with the outcome, the
+    // recovery poller of any node takes the job once it is due
+    private void recordRetry(NotificationJob job) {
+        if (retryTimer.holds(job.getNextRetryAt())) {
+            statusSink.record(job);
+            retryTimer.scheduleRetry(job, job.getNextRetryAt());
+        } else {
+            statusSink.record(job, true);
         }
-        repository.save(job);
+    }
+
+    /**
+     * 429 is the vendor pacing us, any other 4xx a request it will keep rejecting.
+     */
+    static FailureReason classify(RestClientResponseException e) {
+        if (e.getStatusCode().value() == 429) {
+            return FailureReason.RATE_LIMITED;
+        }
+        return e.getStatusCode().is4xxClientError() ? FailureReason.CLIENT_ERROR
+                : FailureReason.EXTERNAL_SERVICE_UNAVAILABLE;
+    }
+
+    private static boolean settle(NotificationJob job, DeliveryAttempt attempt) {
+        if (attempt.trySettle()) {
+            return true;
+        }
+        // The timeout already rescheduled the job, a late outcome must not overwrite that
+        log.debug("Job {} finished after its timeout, outcome dropped", job.getId());
+        return false;
+    }
+
+    // Vendor latency by outcome; only calls that actually went out on the wire
+    void recordHttp(String host, String outcome, long latencyNanos) {
+        Timer.builder("notification.http.latency")
+                .description("Outbound vendor call latency")
+                .tags("host", host, "outcome", outcome)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
     }
 }
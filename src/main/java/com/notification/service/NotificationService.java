@@ -1,56 +1,379 @@
 package com.notification.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.IdempotencyProperties;
 import com.notification.domain.NotificationJob;
 import com.notification.domain.NotificationStatus;
+import com.notification.domain.TemplateConfig;
+import com.notification.dto.BatchItemResult;
 import com.notification.dto.NotificationRequest;
+import com.notification.dto.SubmissionReceipt;
+import com.notification.repository.NotificationJobArchiveRepository;
 import com.notification.repository.NotificationJobRepository;
 import com.notification.repository.TemplateConfigRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
+    // Matches hibernate.jdbc.batch_size so every flush is one full JDBC batch
+    private static final int BATCH_FLUSH_SIZE = 500;
+
     private final NotificationJobRepository repository;
+    private final NotificationJobArchiveRepository archiveRepository;
     private final TemplateConfigRepository templateRepository;
+    private final TemplateService templateService;
     private final QueueManager queueManager;
+    private final JobClaimService claimService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final JobTracing tracing;
+    private final IdempotencyKeyCache idempotencyCache;
+    private final ArchivedKeyFilter archivedKeys;
+    private final IdempotencyProperties idempotencyProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<SubmissionLog> submissionLog;
 
-    @Transactional
+    /**
+     * Persists and enqueues one request. A request whose idempotency key was already
+     * accepted gets the original job id back and creates nothing.
+     */
     public Long submitNotification(NotificationRequest request) {
-        NotificationJob job = new NotificationJob();
-        job.setTargetUrl(request.getTargetUrl());
-        job.setHeaders(request.getHeaders());
-        job.setPayload(request.getPayload());
-
+        String key = request.getIdempotencyKey();
+        if (key != null) {
+            // Most client retries land here and never touch the database
+            Long known = idempotencyCache.get(key);
+            if (known == null && archivedKeys.mightContain(key)) {
+                // The unique index only covers the hot table, so a key the filter cannot rule
+                // out is looked up in the archive. Everything else goes straight to the insert.
+                known = findArchived(key);
+            }
+            if (known != null) {
+                idempotencyCache.put(key, known);
+                duplicate();
+                return known;
+            }
+        }
+        Long templateId = null;
         if (request.getTemplateName() != null) {
-            var template = templateRepository.findByName(request.getTemplateName())
+            templateId = templateService.findIdByName(request.getTemplateName())
                     .orElseThrow(
                             () -> new IllegalArgumentException("Template not found: " + request.getTemplateName()));
-            job.setTemplateId(template.getId());
         }
+        Long resolvedTemplateId = templateId;
 
-        job.setStatus(NotificationStatus.PENDING);
+        NotificationJob job;
+        try {
+            job = transactionTemplate.execute(status -> {
+                NotificationJob fresh = toJob(request, resolvedTemplateId);
+                if (queueManager.isFull(fresh.getPriority())) {
+                    spillOnInsert(fresh);
+                }
+                NotificationJob saved = repository.save(fresh);
+                submitted(saved);
+
+                // Only hand the job to the in-memory queue once the row is committed,
+                // otherwise a consumer could pick up a job whose insert gets rolled back.
+                enqueueAfterCommit(List.of(saved));
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Cache miss (other node, evicted, or a concurrent retry): the unique index decides,
+            // unless the job was archived since
+            Long existing = key == null ? null
+                    : repository.findIdByIdempotencyKey(key).orElseGet(() -> findArchived(key));
+            if (existing == null) {
+                throw e;
+            }
+            idempotencyCache.put(key, existing);
+            duplicate();
+            return existing;
+        }
+        if (key != null) {
+            idempotencyCache.put(key, job.getId());
+        }
+
+        log.info("Submitted job id={} priority={}", job.getId(), job.getPriority());
+        return job.getId();
+    }
+
+    /**
+     * Durability mode of {@link #submitNotification}: the request is appended to the
+     * local write-ahead log and acknowledged once that is on disk. The job row is
+     * written later by {@link SubmissionLogDrainer}. Every logged request gets an
+     * idempotency key, generated if the caller sent none, so replaying the log after
+     * a crash never creates a job twice.
+     */
+    public SubmissionReceipt submitToLog(NotificationRequest request) {
+        String key = request.getIdempotencyKey();
+        if (key != null) {
+            Long known = idempotencyCache.get(key);
+            if (known != null) {
+                duplicate();
+                return new SubmissionReceipt(known, key);
+            }
+        } else {
+            key = UUID.randomUUID().toString();
+            request.setIdempotencyKey(key);
+        }
+        // Checked up front, the drainer has no way to tell the caller. From the template
+        // cache: one deleted in the meantime is still reported by the drainer.
+        if (request.getTemplateName() != null && templateService.findIdByName(request.getTemplateName()).isEmpty()) {
+            throw new IllegalArgumentException("Template not found: " + request.getTemplateName());
+        }
+        try {
+            submissionLog.getObject().append(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload is not serializable: " + e.getOriginalMessage(), e);
+        }
+        return new SubmissionReceipt(null, key);
+    }
+
+    public boolean isSubmissionLogEnabled() {
+        return submissionLog.getIfAvailable() != null;
+    }
+
+    /**
+     * Persists a batch of requests in one transaction using JDBC insert batching.
+     * Invalid items are reported per index and do not fail the rest of the batch.
+     * Items whose idempotency key is already known are answered with the existing job id.
+     */
+    public List<BatchItemResult> submitBatch(List<NotificationRequest> requests) {
+        try {
+            return transactionTemplate.execute(status -> insertBatch(requests));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent submission took one of our keys after the lookup. Rerun once,
+            // the lookup now sees that row and answers the item with its id.
+            log.info("Batch hit an idempotency key conflict, retrying once");
+            return transactionTemplate.execute(status -> insertBatch(requests));
+        }
+    }
+
+    private List<BatchItemResult> insertBatch(List<NotificationRequest> requests) {
+        Map<String, Long> templateIds = resolveTemplateIds(requests);
+        Map<String, Long> knownKeys = resolveIdempotencyKeys(requests);
+
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        List<NotificationJob> accepted = new ArrayList<>(requests.size());
+        List<NotificationJob> chunk = new ArrayList<>(BATCH_FLUSH_SIZE);
+        // Room left per tier (index 1..3); what does not fit is inserted as spilled
+        int[] room = { 0, queueManager.remainingCapacity(1), queueManager.remainingCapacity(2),
+                queueManager.remainingCapacity(3) };
 
+        for (int i = 0; i < requests.size(); i++) {
+            NotificationRequest request = requests.get(i);
+            if (request == null || request.getTargetUrl() == null || request.getTargetUrl().isBlank()) {
+                results.add(BatchItemResult.rejected(i, "targetUrl is required"));
+                continue;
+            }
+            String key = request.getIdempotencyKey();
+            if (key != null && (key.isBlank() || key.length() > idempotencyProperties.getMaxKeyLength())) {
+                results.add(BatchItemResult.rejected(i, "idempotencyKey must be 1-"
+                        + idempotencyProperties.getMaxKeyLength() + " characters"));
+                continue;
+            }
+            if (key != null && knownKeys.containsKey(key)) {
+                // Accepted earlier, or by a previous item of this batch
+                results.add(BatchItemResult.accepted(i, knownKeys.get(key)));
+                duplicate();
+                continue;
+            }
+            Long templateId = null;
+            if (request.getTemplateName() != null) {
+                templateId = templateIds.get(request.getTemplateName());
+                if (templateId == null) {
+                    results.add(BatchItemResult.rejected(i, "Template not found: " + request.getTemplateName()));
+                    continue;
+                }
+            }
+
+            NotificationJob job = toJob(request, templateId);
+            int level = Math.min(3, Math.max(1, job.getPriority()));
+            if (room[level] > 0) {
+                room[level]--;
+            } else {
+                spillOnInsert(job);
+            }
+            // Ids come from the pooled generator at persist time, before the flush
+            entityManager.persist(job);
+            submitted(job);
+            chunk.add(job);
+            accepted.add(job);
+            results.add(BatchItemResult.accepted(i, job.getId()));
+            if (key != null) {
+                knownKeys.put(key, job.getId());
+            }
+
+            if (chunk.size() >= BATCH_FLUSH_SIZE) {
+                flushChunk(chunk);
+            }
+        }
+        flushChunk(chunk);
+
+        enqueueAfterCommit(accepted);
+        cacheAfterCommit(knownKeys);
+
+        log.info("Submitted batch of {} jobs ({} rejected)", accepted.size(), requests.size() - accepted.size());
+        return results;
+    }
+
+    private Map<String, Long> resolveTemplateIds(List<NotificationRequest> requests) {
+        Set<String> names = requests.stream()
+                .filter(Objects::nonNull)
+                .map(NotificationRequest::getTemplateName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(HashSet::new));
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Long> ids = new HashMap<>();
+        for (TemplateConfig template : templateRepository.findByNameIn(names)) {
+            ids.put(template.getName(), template.getId());
+        }
+        return ids;
+    }
+
+    // Keys of this batch already in notification_job, from the cache first and one IN query for the rest
+    private Map<String, Long> resolveIdempotencyKeys(List<NotificationRequest> requests) {
+        Map<String, Long> known = new HashMap<>();
+        Set<String> unknown = new HashSet<>();
+        for (NotificationRequest request : requests) {
+            if (request == null || request.getIdempotencyKey() == null) {
+                continue;
+            }
+            Long id = idempotencyCache.get(request.getIdempotencyKey());
+            if (id != null) {
+                known.put(request.getIdempotencyKey(), id);
+            } else {
+                unknown.add(request.getIdempotencyKey());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            for (Object[] row : repository.findIdsByIdempotencyKeys(unknown)) {
+                known.put((String) row[0], (Long) row[1]);
+                unknown.remove(row[0]);
+            }
+        }
+        unknown.removeIf(key -> !archivedKeys.mightContain(key));
+        if (!unknown.isEmpty()) {
+            for (Object[] row : archiveRepository.findIdsByIdempotencyKeys(unknown)) {
+                known.putIfAbsent((String) row[0], (Long) row[1]);
+            }
+        }
+        return known;
+    }
+
+    private Long findArchived(String key) {
+        List<Long> ids = archiveRepository.findIdsByIdempotencyKey(key);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private void flushChunk(List<NotificationJob> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // Flush as one JDBC batch and detach, so the persistence context stays small
+        // for blasts of tens of thousands of rows.
+        entityManager.flush();
+        entityManager.clear();
+        chunk.clear();
+    }
+
+    private NotificationJob toJob(NotificationRequest request, Long templateId) {
+        NotificationJob job = new NotificationJob();
+        job.setTargetUrl(request.getTargetUrl());
+        job.setHeaders(request.getHeaders());
+        job.setPayload(toJson(request.getPayload()));
+        job.setTemplateId(templateId);
+        job.setStatus(NotificationStatus.PENDING);
         job.setPriority(request.getPriority() != null ? request.getPriority() : 3);
+        job.setIdempotencyKey(request.getIdempotencyKey());
         job.setNextRetryAt(LocalDateTime.now());
+        claimService.claimOnSubmit(job);
+        return job;
+    }
 
-        job = repository.save(job);
+    private String toJson(Map<String, Object> payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload is not serializable: " + e.getOriginalMessage(), e);
+        }
+    }
 
-        // Push to memory queue (After transaction commit in a real world - here
-        // simpfied or use TransactionSynchronization)
-        // ideally we should use
-        // TransactionSynchronizationManager.registerSynchronization ... afterCommit
-        // For simplicity now, we push here. If tx fails, queue might have an ID that
-        // doesn't exist (handled by consumer check).
-        queueManager.push(job);
+    private void duplicate() {
+        meterRegistry.counter("notification.jobs.duplicates").increment();
+    }
 
-        log.info("Submitted job id={} priority={}", job.getId(), job.getPriority());
-        return job.getId();
+    private void submitted(NotificationJob job) {
+        meterRegistry.counter("notification.jobs.submitted", "priority", String.valueOf(job.getPriority()))
+                .increment();
+        tracing.submitted(job);
+    }
+
+    // The tier is full already: insert the job unclaimed and flagged as spilled, so no
+    // DB write is left for after the commit and the refill loop picks it up
+    private static void spillOnInsert(NotificationJob job) {
+        job.setSpilled(true);
+        job.setClaimedBy(null);
+        job.setClaimExpiresAt(null);
+    }
+
+    private void enqueueAfterCommit(List<NotificationJob> submitted) {
+        List<NotificationJob> jobs = submitted.stream().filter(job -> !job.isSpilled()).toList();
+        if (jobs.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            queueManager.pushAll(jobs);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // The tier may have filled up since the insert; such jobs are spilled
+                // by markSpilled, which runs in a transaction of its own
+                queueManager.pushAll(jobs);
+            }
+        });
+    }
+
+    private void cacheAfterCommit(Map<String, Long> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(idempotencyCache::put);
+            }
+        });
     }
 }
@@ -0,0 +1,164 @@
+package com.notification.service;
+
+import com.notification.config.OutboundHttpProperties;
+import com.notification.config.OutboundHttpProperties.HostSettings;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Long-lived outbound HTTP clients, shared by all deliveries.
+ * <p>
+ * Hosts without an entry under {@code notification.http.hosts} share one pooled
+ * client whose per-route limit gives every host its own bounded pool. Hosts with
+ * an entry get a dedicated client built from their merged settings, either a
+ * pooled HTTP/1.1 client or a multiplexing HTTP/2 client.
+ */
+@Component
+@Slf4j
+public class OutboundHttpClients implements DisposableBean {
+
+    private final RestClient.Builder restClientBuilder;
+    private final OutboundHttpProperties properties;
+    private final RestClient defaultClient;
+    private final Map<String, RestClient> hostClients = new ConcurrentHashMap<>();
+    private final List<AutoCloseable> closeables = new CopyOnWriteArrayList<>();
+
+    public OutboundHttpClients(RestClient.Builder restClientBuilder, OutboundHttpProperties properties) {
+        this.restClientBuilder = restClientBuilder;
+        this.properties = properties;
+        this.defaultClient = build("default", properties.getDefaults(), properties.getDefaults(),
+                properties.getMaxTotalConnections());
+    }
+
+    public RestClient forUrl(String targetUrl) {
+        return forHost(TargetHosts.of(targetUrl));
+    }
+
+    public RestClient forHost(String host) {
+        HostSettings override = properties.getHosts().get(host);
+        if (override == null) {
+            return defaultClient;
+        }
+        return hostClients.computeIfAbsent(host, h -> {
+            HostSettings settings = override.mergedOver(properties.getDefaults());
+            return build(h, settings, override, settings.getMaxConnections());
+        });
+    }
+
+    // configured: the settings as written for this client, to tell which ones were asked for
+    private RestClient build(String name, HostSettings settings, HostSettings configured, int maxTotal) {
+        ClientHttpRequestFactory requestFactory = Boolean.TRUE.equals(settings.getHttp2())
+                ? http2RequestFactory(name, settings, configured)
+                : pooledRequestFactory(name, settings, maxTotal);
+        return restClientBuilder.clone().requestFactory(requestFactory).build();
+    }
+
+    private ClientHttpRequestFactory pooledRequestFactory(String name, HostSettings settings, int maxTotal) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(settings.getMaxConnections())
+                .setMaxConnTotal(Math.max(maxTotal, settings.getMaxConnections()))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        TimeValue keepAlive = TimeValue.of(settings.getKeepAlive());
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(settings.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(settings.getResponseTimeout()))
+                        .build())
+                // Honour a shorter server Keep-Alive, never keep a connection longer than configured
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue server = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response,
+                            context);
+                    return TimeValue.isPositive(server) && server.compareTo(keepAlive) < 0 ? server : keepAlive;
+                })
+                .evictIdleConnections(keepAlive)
+                .evictExpiredConnections()
+                .build();
+        closeables.add(httpClient);
+        log.info("Created outbound HTTP/1.1 client for {} (maxConnections={}, connect={}, read={}, response={}, "
+                + "connectionRequest={}, keepAlive={})", name, settings.getMaxConnections(),
+                settings.getConnectTimeout(), settings.getReadTimeout(), settings.getResponseTimeout(),
+                settings.getConnectionRequestTimeout(), settings.getKeepAlive());
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private ClientHttpRequestFactory http2RequestFactory(String name, HostSettings settings,
+            HostSettings configured) {
+        // The JDK client multiplexes HTTP/2 streams over one connection per host and
+        // falls back to HTTP/1.1 when ALPN negotiation fails.
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.getConnectTimeout())
+                .build();
+        closeables.add(httpClient);
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        // Despite its name this is the JDK's per-request timeout: it ends once the
+        // response headers arrive, i.e. what responseTimeout means for the pooled client
+        requestFactory.setReadTimeout(settings.getResponseTimeout());
+
+        List<String> ignored = ignoredForHttp2(configured);
+        if (!ignored.isEmpty()) {
+            log.warn("HTTP/2 client for {} has no per-host pool or socket read timeout, ignoring {}", name,
+                    String.join(", ", ignored));
+        }
+        log.info("Created outbound HTTP/2 client for {} (connect={}, response={})", name,
+                settings.getConnectTimeout(), settings.getResponseTimeout());
+        return requestFactory;
+    }
+
+    // Pool and socket settings the JDK client has no per-client equivalent for
+    private static List<String> ignoredForHttp2(HostSettings configured) {
+        List<String> ignored = new ArrayList<>();
+        if (configured.getMaxConnections() != null) {
+            ignored.add("maxConnections");
+        }
+        if (configured.getKeepAlive() != null) {
+            ignored.add("keepAlive");
+        }
+        if (configured.getReadTimeout() != null) {
+            ignored.add("readTimeout");
+        }
+        if (configured.getConnectionRequestTimeout() != null) {
+            ignored.add("connectionRequestTimeout");
+        }
+        return ignored;
+    }
+
+    @Override
+    public void destroy() {
+        for (AutoCloseable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Error closing outbound HTTP client", e);
+            }
+        }
+    }
+}
@@ -1,29 +1,313 @@
 package com.notification.service;
 
+import com.notification.config.QueueProperties;
 import com.notification.domain.NotificationJob;
-import lombok.Getter;
+import com.notification.domain.NotificationStatus;
+import com.notification.repository.NotificationJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Component
 @Slf4j
 public class QueueManager {
 
-    @Getter
+    private final NotificationJobRepository repository;
+    private final QueueProperties properties;
+    private final JobTracing tracing;
+
+    private static final int[] STANDARD_LEVELS = { 2, 3 };
+
     private final BlockingQueue<NotificationJob> highPriorityQueue = new LinkedBlockingQueue<>();
 
-    @Getter
-    private final PriorityBlockingQueue<JobItem> standardPriorityQueue = new PriorityBlockingQueue<>();
+    // Standard tier: one queue per level (index 2..3), each ordered by createdAt, and a
+    // permit per queued job so the consumer blocks until any level has work. Which
+    // level is served next is up to the scheduling policy.
+    @SuppressWarnings("unchecked")
+    private final PriorityBlockingQueue<JobItem>[] standardLevels = new PriorityBlockingQueue[] { null, null,
+            new PriorityBlockingQueue<JobItem>(), new PriorityBlockingQueue<JobItem>() };
+    private final Semaphore standardAvailable = new Semaphore(0);
+    private final SchedulingPolicy schedulingPolicy;
+    private final SchedulingPolicy.Levels levelsView = new LevelsView();
+
+    // Occupancy and capacity per priority level (index 1..3). Capacity is enforced on
+    // these counters, the queues themselves are unbounded. Jobs parked by the rate
+    // limiter still count, they are held in memory just the same.
+    private final AtomicInteger[] occupancy = { null, new AtomicInteger(), new AtomicInteger(), new AtomicInteger() };
+    private final int[] capacity;
+
+    // Time from offer to take, per priority level
+    private final Timer[] queueWait = new Timer[4];
+
+    private volatile Consumer<NotificationJob> droppedJobHandler = job -> {
+    };
+
+    public QueueManager(NotificationJobRepository repository, QueueProperties properties,
+            SchedulingPolicy schedulingPolicy, MeterRegistry meterRegistry, JobTracing tracing) {
+        this.repository = repository;
+        this.properties = properties;
+        this.schedulingPolicy = schedulingPolicy;
+        this.tracing = tracing;
+        QueueProperties.Capacity c = properties.getCapacity();
+        this.capacity = new int[] { 0, c.getHigh(), c.getNormal(), c.getLow() };
+
+        for (int level = 1; level <= 3; level++) {
+            int lvl = level;
+            String priority = String.valueOf(level);
+            String tier = level == 1 ? "high" : "standard";
+            AtomicInteger count = occupancy[level];
+            Gauge.builder("notification.queue.depth", count, AtomicInteger::get)
+                    .description("Jobs held in memory: queued, or parked by the rate limiter")
+                    .tags("priority", priority, "tier", tier)
+                    .register(meterRegistry);
+            Gauge.builder("notification.queue.capacity", capacity, caps -> caps[lvl])
+                    .tags("priority", priority, "tier", tier)
+                    .register(meterRegistry);
+            queueWait[level] = Timer.builder("notification.queue.wait")
+                    .description("Time a job spent in the in-memory queue before dispatch")
+                    .tags("priority", priority, "tier", tier)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Enqueues the job if its tier has room. Otherwise the job is left in the DB
+     * flagged as spilled with its claim released, to be pulled back in by the refill
+     * loop of whichever node has room.
+     *
+     * @return true if the job is now in memory
+     */
+    /**
+     * Sets who is told about jobs without a row that found no room. Those cannot be
+     * spilled and are gone from this node. Called on the pushing thread, must not block.
+     */
+    public void onDropped(Consumer<NotificationJob> handler) {
+        this.droppedJobHandler = handler;
+    }
+
+    public boolean push(NotificationJob job) {
+        if (!offer(job)) {
+            spill(List.of(job));
+            return false;
+        }
+        return true;
+    }
+
+    public void pushAll(Collection<NotificationJob> jobs) {
+        List<NotificationJob> spilled = new ArrayList<>();
+        for (NotificationJob job : jobs) {
+            if (!offer(job)) {
+                spilled.add(job);
+            }
+        }
+        spill(spilled);
+    }
+
+    /**
+     * Counts a job that left its queue but stays in memory, parked by the rate limiter,
+     * against its tier until {@link #releaseParked}. Never refused: the job is already here.
+     */
+    public void holdParked(NotificationJob job) {
+        occupancy[levelOf(job)].incrementAndGet();
+    }
+
+    public void releaseParked(NotificationJob job) {
+        occupancy[levelOf(job)].decrementAndGet();
+    }
+
+    /**
+     * Sends a taken job back to the DB as spilled, not to be refilled before {@code until}.
+     */
+    public void spillUntil(NotificationJob job, LocalDateTime until) {
+        if (!isSpillable(job)) {
+            if (job.getId() == null) {
+                droppedJobHandler.accept(job);
+            }
+            return;
+        }
+        job.setSpilled(true);
+        job.setClaimedBy(null);
+        job.setNextRetryAt(until);
+        repository.markSpilledUntil(List.of(job.getId()), until);
+    }
+
+    public NotificationJob takeHigh() throws InterruptedException {
+        NotificationJob job = highPriorityQueue.take();
+        occupancy[1].decrementAndGet();
+        recordWait(1, job);
+        return job;
+    }
+
+    public NotificationJob takeStandard() throws InterruptedException {
+        standardAvailable.acquire();
+        // A permit guarantees a queued job, and only takers remove jobs, so the
+        // level picked by the policy cannot run dry before the poll below
+        NotificationJob job;
+        int level;
+        synchronized (schedulingPolicy) {
+            level = schedulingPolicy.select(levelsView);
+            job = standardLevels[level].poll().job();
+        }
+        occupancy[level].decrementAndGet();
+        recordWait(level, job);
+        return job;
+    }
+
+    /**
+     * Empties every queue and returns the jobs, for a node that may no longer dispatch.
+     */
+    public List<NotificationJob> drainAll() {
+        List<NotificationJob> drained = new ArrayList<>();
+        NotificationJob job;
+        while ((job = highPriorityQueue.poll()) != null) {
+            occupancy[1].decrementAndGet();
+            drained.add(job);
+        }
+        // Same permit protocol as takeStandard, so a blocked consumer can't miss a job
+        while (standardAvailable.tryAcquire()) {
+            int level = 0;
+            synchronized (schedulingPolicy) {
+                for (int candidate : STANDARD_LEVELS) {
+                    JobItem item = standardLevels[candidate].poll();
+                    if (item != null) {
+                        level = candidate;
+                        job = item.job();
+                        break;
+                    }
+                }
+            }
+            occupancy[level].decrementAndGet();
+            drained.add(job);
+        }
+        return drained;
+    }
+
+    public int size(int priority) {
+        return occupancy[clamp(priority)].get();
+    }
+
+    public int remainingCapacity(int priority) {
+        int level = clamp(priority);
+        return Math.max(0, capacity[level] - occupancy[level].get());
+    }
 
-    public void push(NotificationJob job) {
-        if (job.getPriority() != null && job.getPriority() == 1) {
+    public boolean isFull(int priority) {
+        int level = clamp(priority);
+        return occupancy[level].get() >= capacity[level];
+    }
+
+    /**
+     * Admission check for the HTTP API: false when admission control is on and the
+     * tier the submission would land in is full.
+     */
+    public boolean admits(Integer priority) {
+        return !properties.getAdmissionControl().isEnabled() || !isFull(priority != null ? priority : 3);
+    }
+
+    public Duration getRetryAfter() {
+        return properties.getAdmissionControl().getRetryAfter();
+    }
+
+    private boolean offer(NotificationJob job) {
+        int level = levelOf(job);
+        if (!reserve(level)) {
+            return false;
+        }
+        job.setEnqueuedAtNanos(System.nanoTime());
+        tracing.enqueued(job);
+        if (level == 1) {
             highPriorityQueue.offer(job);
         } else {
-            standardPriorityQueue.offer(new JobItem(job));
+            standardLevels[level].offer(new JobItem(job));
+            standardAvailable.release();
+        }
+        return true;
+    }
+
+    private void recordWait(int level, NotificationJob job) {
+        if (job.getEnqueuedAtNanos() != 0) {
+            queueWait[level].record(System.nanoTime() - job.getEnqueuedAtNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean reserve(int level) {
+        AtomicInteger count = occupancy[level];
+        while (true) {
+            int current = count.get();
+            if (current >= capacity[level]) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void spill(List<NotificationJob> jobs) {
+        List<Long> ids = new ArrayList<>();
+        for (NotificationJob job : jobs) {
+            if (isSpillable(job)) {
+                job.setSpilled(true);
+                job.setClaimedBy(null);
+                ids.add(job.getId());
+            } else if (job.getId() == null) {
+                droppedJobHandler.accept(job);
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        log.warn("Queue full, spilled {} jobs to the database", ids.size());
+        repository.markSpilled(ids);
+    }
+
+    private static boolean isSpillable(NotificationJob job) {
+        return job.getId() != null && (job.getStatus() == NotificationStatus.PENDING
+                || job.getStatus() == NotificationStatus.FAILED);
+    }
+
+    private static int levelOf(NotificationJob job) {
+        return clamp(job.getPriority() != null ? job.getPriority() : 3);
+    }
+
+    private static int clamp(int priority) {
+        return Math.min(3, Math.max(1, priority));
+    }
+
+    private final class LevelsView implements SchedulingPolicy.Levels {
+        @Override
+        public int[] priorities() {
+            return STANDARD_LEVELS;
+        }
+
+        @Override
+        public boolean isEmpty(int priority) {
+            return standardLevels[priority].isEmpty();
+        }
+
+        @Override
+        public long headWaitNanos(int priority) {
+            JobItem head = standardLevels[priority].peek();
+            if (head == null || head.job().getEnqueuedAtNanos() == 0) {
+                return 0;
+            }
+            return System.nanoTime() - head.job().getEnqueuedAtNanos();
         }
     }
 
@@ -0,0 +1,113 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.domain.NotificationJob;
+import com.notification.repository.NotificationJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Turns a job into the bytes sent to the vendor, once. Later attempts, on this
+ * node or after recovery elsewhere, resend the stored body as-is, so a retried job
+ * keeps the body it was first rendered with even if its template changes.
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestBodyPreparer {
+
+    private static final TypeReference<Map<String, Object>> MODEL_TYPE = new TypeReference<>() {
+    };
+
+    private static final String TEXT_UTF8 = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+
+    private final TemplateService templateService;
+    private final NotificationJobRepository repository;
+    // Spring's shared mapper, thread-safe once configured
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Fills in the job's prepared body and content type if it has none yet. A newly
+     * prepared body is flagged so the status sink writes it with the attempt's outcome.
+     */
+    public void prepare(NotificationJob job) {
+        loadDeferred(job);
+        if (job.getPreparedBody() != null) {
+            return;
+        }
+        byte[] body;
+        if (job.getTemplateId() != null) {
+            // The only place the payload is parsed, and only for templated jobs
+            body = templateService.render(job.getTemplateId(), model(job.getPayload()));
+        } else {
+            // The column already holds JSON text, so a plain payload goes out as stored
+            String json = job.getPayload() != null ? job.getPayload() : "null";
+            body = json.getBytes(StandardCharsets.UTF_8);
+        }
+        job.setPreparedBody(body);
+        job.setPreparedContentType(contentTypeOf(job));
+        job.setPreparedBodyUnsaved(true);
+    }
+
+    /**
+     * The content type the job's body is, or will be, sent with; known without
+     * rendering it.
+     */
+    public String contentTypeOf(NotificationJob job) {
+        if (job.getPreparedContentType() != null) {
+            return job.getPreparedContentType();
+        }
+        String requested = headerContentType(job);
+        if (requested != null) {
+            return requested;
+        }
+        return job.getTemplateId() != null ? TEXT_UTF8 : MediaType.APPLICATION_JSON_VALUE;
+    }
+
+    /**
+     * Reads the payload and any stored prepared body of a job that was queued without
+     * them (see {@link TakeoverWarmup}); a no-op for every other job.
+     */
+    public void loadDeferred(NotificationJob job) {
+        if (!job.isBodyDeferred()) {
+            return;
+        }
+        NotificationJobRepository.DeferredBody body = repository.findDeferredBodyById(job.getId())
+                .orElseThrow(() -> new IllegalStateException("Job " + job.getId() + " no longer exists"));
+        job.setPayload(body.getPayload());
+        job.setPreparedBody(body.getPreparedBody());
+        job.setPreparedContentType(body.getPreparedContentType());
+        job.setBodyDeferred(false);
+    }
+
+    private Map<String, Object> model(String payload) {
+        if (payload == null) {
+            return Map.of();
+        }
+        try {
+            Map<String, Object> model = objectMapper.readValue(payload, MODEL_TYPE);
+            return model != null ? model : Map.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Stored payload is not valid JSON", e);
+        }
+    }
+
+    // A Content-Type given with the job's headers wins over the default
+    private static String headerContentType(NotificationJob job) {
+        if (job.getHeaders() == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : job.getHeaders().entrySet()) {
+            if ("Content-Type".equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+}
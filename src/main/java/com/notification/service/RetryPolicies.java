@@ -0,0 +1,125 @@
+package com.notification.service;
+
+import com.notification.config.RetryProperties;
+import com.notification.config.RetryProperties.Jitter;
+import com.notification.config.RetryProperties.RetryPolicy;
+import com.notification.domain.FailureReason;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.TemplateConfig;
+import com.notification.repository.TemplateConfigRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether and when a failed job is tried again, by the retry policy of its
+ * template, else of its target host, else the default one.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RetryPolicies {
+
+    private final RetryProperties properties;
+    private final TemplateConfigRepository templateRepository;
+
+    private final Map<String, RetryPolicy> hostPolicies = new ConcurrentHashMap<>();
+    // Template overrides by template id; looked up by name once per template
+    private final Map<Long, Optional<RetryPolicy>> templatePolicies = new ConcurrentHashMap<>();
+
+    /**
+     * When to try the job again after the attempt just counted, or null if it should
+     * not be: attempts are used up, or the failure is permanent.
+     *
+     * @param status     HTTP status of the failed attempt, null if there was no response
+     * @param retryAfter the response's Retry-After, null if none
+     */
+    public LocalDateTime nextRetryAt(NotificationJob job, FailureReason reason, Integer status, Duration retryAfter) {
+        RetryPolicy policy = policyFor(job);
+        if (reason == FailureReason.CLIENT_ERROR
+                && (status == null || !policy.getRetryableStatuses().contains(status))) {
+            // The same request will be rejected the same way, don't spend attempts on it
+            log.debug("Job {} failed permanently with status {}", job.getId(), status);
+            return null;
+        }
+        if (job.getAttemptCount() >= policy.getMaxAttempts()) {
+            return null;
+        }
+        long delay = backoffMillis(policy, job);
+        job.setRetryDelayMillis(delay);
+        if (retryAfter != null && !policy.getMaxRetryAfter().isZero()) {
+            // Never earlier than the vendor asked for
+            delay = Math.max(delay, Math.min(retryAfter.toMillis(), policy.getMaxRetryAfter().toMillis()));
+        }
+        return LocalDateTime.now().plusNanos(delay * 1_000_000);
+    }
+
+    RetryPolicy policyFor(NotificationJob job) {
+        RetryPolicy hostPolicy = hostPolicies.computeIfAbsent(TargetHosts.of(job.getTargetUrl()), h -> {
+            RetryPolicy override = properties.getHosts().get(h);
+            return override != null ? override.mergedOver(properties.getDefaults()) : properties.getDefaults();
+        });
+        if (job.getTemplateId() == null || properties.getTemplates().isEmpty()) {
+            return hostPolicy;
+        }
+        Optional<RetryPolicy> templatePolicy = templatePolicies.computeIfAbsent(job.getTemplateId(),
+                id -> templateRepository.findById(id)
+                        .map(TemplateConfig::getName)
+                        .map(name -> properties.getTemplates().get(name)));
+        return templatePolicy.map(policy -> policy.mergedOver(hostPolicy)).orElse(hostPolicy);
+    }
+
+    private static long backoffMillis(RetryPolicy policy, NotificationJob job) {
+        long base = policy.getBaseDelay().toMillis();
+        long cap = policy.getMaxDelay().toMillis();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (policy.getJitter() == Jitter.DECORRELATED) {
+            // Grows from the previous delay; starts over from base after a failover
+            long previous = Math.max(job.getRetryDelayMillis(), base);
+            long upper = Math.min(cap, previous * 3);
+            return upper > base ? random.nextLong(base, upper + 1) : Math.min(base, cap);
+        }
+        int exponent = Math.max(0, job.getAttemptCount() - 1);
+        long exponential = exponent < Long.numberOfLeadingZeros(base) - 1 ? Math.min(cap, base << exponent) : cap;
+        return policy.getJitter() == Jitter.FULL ? random.nextLong(exponential + 1) : exponential;
+    }
+
+    /**
+     * The Retry-After of a 429 or 503 response, in seconds or as an HTTP date; null if
+     * absent or unreadable.
+     */
+    static Duration retryAfter(RestClientResponseException e) {
+        int status = e.getStatusCode().value();
+        if ((status != 429 && status != 503) || e.getResponseHeaders() == null) {
+            return null;
+        }
+        String value = e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        try {
+            if (value.chars().allMatch(Character::isDigit)) {
+                return Duration.ofSeconds(Long.parseLong(value));
+            }
+            Duration untilDate = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return untilDate.isNegative() ? Duration.ZERO : untilDate;
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            log.debug("Ignoring unreadable Retry-After '{}'", value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.notification.service;
+
+import com.notification.config.RecoveryProperties;
+import com.notification.domain.NotificationJob;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timer wheel that puts jobs back on their queue at their exact retry time.
+ * <p>
+ * Scheduling is a lock-free enqueue; a single thread moves new timers into their
+ * bucket and collects the expired ones of the current bucket once per tick. Their
+ * tasks run on a separate dispatch thread, as pushing a job may spill it to the DB
+ * and the wheel must keep ticking meanwhile. Timers further out than one rotation
+ * carry a round counter. Precision is one tick.
+ * <p>
+ * Timers live only in memory. The FAILED row with its next_retry_at is the durable
+ * copy, so anything lost here is picked up by the recovery poller. Only retries
+ * within the horizon are held here ({@link #holds}), later ones are left to the
+ * recovery poller so the wheel stays bounded during long outages.
+ */
+@Component
+@Slf4j
+public class RetryTimerWheel {
+
+    private final QueueManager queueManager;
+    private final Duration horizon;
+    private final long tickNanos;
+    private final List<List<Timer>> wheel;
+    private final int mask;
+
+    private final Queue<Timer> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Timers of an older generation were cancelled and are dropped when next looked at
+    private volatile int generation;
+    private volatile boolean running = true;
+    private long startNanos;
+    private Thread worker;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("RetryTimerDispatch").daemon(true).factory());
+
+    public RetryTimerWheel(QueueManager queueManager, RecoveryProperties properties, MeterRegistry meterRegistry) {
+        this.queueManager = queueManager;
+        this.horizon = properties.getTimerHorizon();
+        this.tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), properties.getTimerTick().toNanos());
+        // Round up to a power of two so the bucket index is a mask
+        int size = Integer.highestOneBit(Math.max(2, properties.getTimerWheelSize() - 1)) << 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.mask = size - 1;
+
+        Gauge.builder("notification.retry.timers.pending", pending, AtomicInteger::get)
+                .description("Retries and deferrals waiting on the timer wheel")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        startNanos = System.nanoTime();
+        worker = new Thread(this::run, "RetryTimerWheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        dispatcher.shutdownNow();
+        log.info("Retry timer wheel stopped with {} pending timers, left to the recovery poller", pending.get());
+    }
+
+    /**
+     * Pushes the job back onto its queue at {@code at}, or on the next tick if that
+     * is already in the past.
+     */
+    public void scheduleRetry(NotificationJob job, LocalDateTime at) {
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), at).toMillis());
+        schedule(delayMillis, () -> queueManager.push(job));
+    }
+
+    /**
+     * True if a retry at {@code at} is close enough to be held on the wheel.
+     */
+    public boolean holds(LocalDateTime at) {
+        return at == null || !at.isAfter(LocalDateTime.now().plus(horizon));
+    }
+
+    public void schedule(long delayMillis, Runnable task) {
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        incoming.add(new Timer(deadline, task, generation));
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Cancels every timer scheduled so far, e.g. once this node may no longer dispatch.
+     * They are removed within one rotation, none of them fires.
+     */
+    public synchronized void cancelAll() {
+        generation++;
+        log.info("Cancelled {} pending timers", pending.get());
+    }
+
+    public int pendingTimers() {
+        return pending.get();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (running) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            transferIncoming(tick);
+            expire(wheel.get((int) (tick & mask)), deadline);
+            tick++;
+        }
+    }
+
+    private void transferIncoming(long tick) {
+        Timer timer;
+        while ((timer = incoming.poll()) != null) {
+            if (timer.generation != generation) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long calculated = timer.deadline / tickNanos;
+            timer.remainingRounds = (calculated - tick) / wheel.size();
+            // Already overdue timers go into the current bucket and fire this tick
+            long ticks = Math.max(calculated, tick);
+            wheel.get((int) (ticks & mask)).add(timer);
+        }
+    }
+
+    private void expire(List<Timer> bucket, long deadline) {
+        List<Runnable> due = new ArrayList<>();
+        Iterator<Timer> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timer timer = it.next();
+            if (timer.generation != generation) {
+                it.remove();
+                pending.decrementAndGet();
+            } else if (timer.remainingRounds <= 0 && timer.deadline <= deadline) {
+                it.remove();
+                pending.decrementAndGet();
+                due.add(timer.task);
+            } else {
+                timer.remainingRounds--;
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> runAll(due));
+        } catch (RejectedExecutionException e) {
+            // Shutting down, the rows are picked up by whichever node recovers them
+            log.debug("Dropped {} due timers on shutdown", due.size());
+        }
+    }
+
+    private void runAll(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.error("Retry timer task failed", e);
+            }
+        }
+    }
+
+    private static final class Timer {
+        private final long deadline;
+        private final Runnable task;
+        private final int generation;
+        private long remainingRounds;
+
+        Timer(long deadline, Runnable task, int generation) {
+            this.deadline = deadline;
+            this.task = task;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.notification.service;
+
+/**
+ * Decides which priority level of the standard tier the consumer takes from next.
+ * Implementations are called by one consumer at a time and may keep state.
+ */
+public interface SchedulingPolicy {
+
+    /**
+     * Picks the level to take the next job from. Only called while at least one of
+     * the levels holds a job, and must return a non-empty one.
+     */
+    int select(Levels levels);
+
+    /**
+     * Read-only view of the standard tier's per-priority queues.
+     */
+    interface Levels {
+        // Priority levels in ascending order (most urgent first)
+        int[] priorities();
+
+        boolean isEmpty(int priority);
+
+        // How long the job at the head of the level has been queued, 0 if empty
+        long headWaitNanos(int priority);
+    }
+}
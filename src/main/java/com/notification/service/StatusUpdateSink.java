@@ -0,0 +1,398 @@
+package com.notification.service;
+
+import com.notification.config.ClusterProperties;
+import com.notification.config.StatusSinkProperties;
+import com.notification.domain.FailureReason;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for delivery outcomes.
+ * <p>
+ * Workers record the final state of an attempt and move on; a flusher thread
+ * writes buffered outcomes as one {@code UPDATE ... WHERE id IN (...)} for
+ * successes and one JDBC batch for failures. Until an outcome is flushed the row
+ * keeps its previous state, so a crash can only cause a redelivery, never a loss.
+ */
+@Component
+@Slf4j
+public class StatusUpdateSink {
+
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    // Every write is fenced on this node's claim: once another node took a job over
+    // (expired lease, leader takeover) an outcome still buffered here must not land
+    private static final String UPDATE_SUCCESS = "UPDATE notification_job SET status = 'SUCCESS', updated_at = :now "
+            + "WHERE id IN (:ids) AND claimed_by = :owner";
+
+    // The prepared body is only sent along the first time, COALESCE keeps the stored one otherwise
+    private static final String UPDATE_FAILURE = "UPDATE notification_job SET status = ?, attempt_count = ?, "
+            + "next_retry_at = ?, failure_reason = ?, failure_error_message = ?, "
+            + "prepared_body = COALESCE(?, prepared_body), prepared_content_type = COALESCE(?, prepared_content_type), "
+            + "updated_at = ?, claimed_by = CASE WHEN ? THEN NULL ELSE claimed_by END, "
+            + "claim_expires_at = CASE WHEN ? THEN NULL ELSE claim_expires_at END WHERE id = ? AND claimed_by = ?";
+
+    // Leader mode: the claim alone does not stop a stale leader, its claims are still
+    // its own until someone takes them over, so the write also needs the current term
+    private static final String SUCCESS_TERM_FENCE = " AND EXISTS (SELECT 1 FROM leader_election le "
+            + "WHERE le.service_name = :serviceName AND le.host_id = :owner AND le.epoch = :epoch)";
+    private static final String FAILURE_TERM_FENCE = " AND EXISTS (SELECT 1 FROM leader_election le "
+            + "WHERE le.service_name = ? AND le.host_id = ? AND le.epoch = ?)";
+
+    private final StatusSinkProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JobTracing tracing;
+    private final CampaignExpander campaigns;
+    private final LeaderElectionService leaderElectionService;
+    private final ClusterProperties clusterProperties;
+    private final Timer writeTimer;
+    private final Counter fencedWrites;
+    private final Counter unconfirmedWrites;
+
+    private final BlockingQueue<Outcome> pending;
+    // Fair, so flush() gets its turn between two rounds of the flusher
+    private final ReentrantLock flushLock = new ReentrantLock(true);
+    // Outcomes of a failed write, guarded by flushLock. Written ahead of anything
+    // newer, so a retried outcome can never land after a later one for the same job.
+    private List<Outcome> retries = List.of();
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public StatusUpdateSink(StatusSinkProperties properties, JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate, PlatformTransactionManager transactionManager,
+            JobTracing tracing, CampaignExpander campaigns, LeaderElectionService leaderElectionService,
+            ClusterProperties clusterProperties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tracing = tracing;
+        this.campaigns = campaigns;
+        this.leaderElectionService = leaderElectionService;
+        this.clusterProperties = clusterProperties;
+        this.pending = new LinkedBlockingQueue<>(properties.getMaxPending());
+
+        Gauge.builder("notification.status.sink.pending", pending, BlockingQueue::size)
+                .description("Outcomes buffered and not yet written")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("notification.status.sink.write")
+                .description("Time to write one batch of outcomes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.fencedWrites = Counter.builder("notification.status.sink.fenced")
+                .description("Outcomes not written because another node owns the job by now")
+                .register(meterRegistry);
+        this.unconfirmedWrites = Counter.builder("notification.status.sink.unconfirmed")
+                .description("Outcomes sent in a batch whose driver did not report row counts")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = new Thread(this::flushLoop, "StatusSinkFlusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Buffers the job's current status fields. Blocks if the buffer is full, which
+     * slows workers down instead of growing the heap while the DB is behind.
+     */
+    public void record(NotificationJob job) {
+        record(job, false);
+    }
+
+    /**
+     * Same as {@link #record(NotificationJob)}; with {@code releaseClaim} the write
+     * also drops this node's claim on the row, for retries it no longer holds in memory.
+     */
+    public void record(NotificationJob job, boolean releaseClaim) {
+        // A campaign delivery without a row is tracked in its campaign's bitmap instead
+        if (campaigns.recordOutcome(job)) {
+            tracing.persisted(tracing.detach(job), job.getStatus().name());
+            return;
+        }
+        // A success needs no prepared body, a retry does (possibly on another node)
+        boolean saveBody = job.isPreparedBodyUnsaved() && job.getStatus() != NotificationStatus.SUCCESS;
+        if (saveBody) {
+            job.setPreparedBodyUnsaved(false);
+        }
+        Outcome outcome = new Outcome(job.getId(), job.getStatus(), job.getAttemptCount(), job.getNextRetryAt(),
+                job.getFailureReason(), job.getFailureErrorMessage(),
+                saveBody ? job.getPreparedBody() : null, saveBody ? job.getPreparedContentType() : null,
+                releaseClaim, tracing.detach(job));
+        try {
+            pending.put(outcome);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Don't drop the outcome on interrupt, write it through instead
+            flushLock.lock();
+            try {
+                List<Outcome> batch = takeRetries();
+                batch.add(outcome);
+                write(batch);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes everything buffered so far. Called before the recovery poller reads
+     * retry candidates, so it never sees a row whose newer outcome is still buffered.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Outcome> batch = takeRetries();
+            while (pending.drainTo(batch, properties.getBatchSize()) > 0 || !batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * True while the buffer is more than half full, i.e. the database is not keeping up.
+     */
+    public boolean isBacklogged() {
+        return pending.size() > properties.getMaxPending() / 2;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+        try {
+            flush();
+            log.info("Status sink flushed on shutdown");
+        } catch (RuntimeException e) {
+            log.error("Final status flush failed, {} outcomes will be redelivered", pending.size(), e);
+        }
+    }
+
+    private void flushLoop() {
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        int batchSize = properties.getBatchSize();
+        while (running) {
+            try {
+                // Collected under the lock, so flush() never returns while outcomes
+                // taken off the queue are still unwritten
+                flushLock.lockInterruptibly();
+                try {
+                    List<Outcome> batch = takeRetries();
+                    if (batch.isEmpty()) {
+                        // Wake up on the first outcome, then give the batch until the
+                        // interval ends (or it is full) to fill up
+                        Outcome first = pending.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                        if (first == null) {
+                            continue;
+                        }
+                        batch.add(first);
+                    }
+                    long deadline = System.nanoTime() + intervalNanos;
+                    pending.drainTo(batch, batchSize - batch.size());
+                    while (batch.size() < batchSize) {
+                        Outcome next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        pending.drainTo(batch, batchSize - batch.size());
+                    }
+                    write(batch);
+                } finally {
+                    flushLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Status sink flush failed, retrying", e);
+                sleepQuietly(properties.getFlushInterval().toMillis());
+            }
+        }
+    }
+
+    private List<Outcome> takeRetries() {
+        List<Outcome> batch = new ArrayList<>(Math.max(retries.size(), properties.getBatchSize()));
+        batch.addAll(retries);
+        retries = List.of();
+        return batch;
+    }
+
+    // Caller holds flushLock
+    private void write(List<Outcome> batch) {
+        // Newest outcome per job wins if a job shows up twice in one batch
+        Map<Long, Outcome> latest = new LinkedHashMap<>();
+        for (Outcome outcome : batch) {
+            if (outcome.id() != null) {
+                latest.merge(outcome.id(), outcome, Outcome::supersededBy);
+            }
+        }
+
+        FencingToken term = clusterProperties.getMode() == ClusterProperties.Mode.LEADER
+                ? leaderElectionService.currentFencingToken().orElse(null)
+                : null;
+        if (clusterProperties.getMode() == ClusterProperties.Mode.LEADER && term == null) {
+            // Whoever leads now owns these jobs, and will deliver them again
+            fencedWrites.increment(latest.size());
+            log.warn("{} job outcomes not written, this node is no longer the leader", latest.size());
+            for (Outcome outcome : batch) {
+                tracing.persisted(outcome.trace(), outcome.status().name());
+            }
+            return;
+        }
+
+        List<Long> successIds = new ArrayList<>();
+        List<Object[]> failureArgs = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String owner = leaderElectionService.getHostId();
+        for (Outcome outcome : latest.values()) {
+            if (outcome.status() == NotificationStatus.SUCCESS) {
+                successIds.add(outcome.id());
+            } else {
+                Object[] args = {
+                        outcome.status().name(),
+                        outcome.attemptCount(),
+                        outcome.nextRetryAt() != null ? Timestamp.valueOf(outcome.nextRetryAt()) : null,
+                        outcome.reason() != null ? outcome.reason().name() : null,
+                        outcome.message(),
+                        outcome.preparedBody(),
+                        outcome.preparedContentType(),
+                        now,
+                        outcome.releaseClaim(),
+                        outcome.releaseClaim(),
+                        outcome.id(),
+                        owner };
+                failureArgs.add(term != null ? withTerm(args, term) : args);
+            }
+        }
+        String successSql = term != null ? UPDATE_SUCCESS + SUCCESS_TERM_FENCE : UPDATE_SUCCESS;
+        String failureSql = term != null ? UPDATE_FAILURE + FAILURE_TERM_FENCE : UPDATE_FAILURE;
+
+        long startedAt = System.nanoTime();
+        try {
+            // [rows written, statements the driver reported no count for]
+            int[] counts = transactionTemplate.execute(status -> {
+                int rows = 0;
+                int unknown = 0;
+                for (int i = 0; i < successIds.size(); i += IN_CLAUSE_CHUNK) {
+                    List<Long> chunk = successIds.subList(i, Math.min(successIds.size(), i + IN_CLAUSE_CHUNK));
+                    MapSqlParameterSource params = new MapSqlParameterSource("ids", chunk).addValue("now", now)
+                            .addValue("owner", owner);
+                    if (term != null) {
+                        params.addValue("serviceName", term.serviceName()).addValue("epoch", term.epoch());
+                    }
+                    rows += namedJdbcTemplate.update(successSql, params);
+                }
+                if (!failureArgs.isEmpty()) {
+                    for (int count : jdbcTemplate.batchUpdate(failureSql, failureArgs)) {
+                        // SUCCESS_NO_INFO (-2) from drivers that do not report batch counts: the
+                        // update may or may not have matched, so it is neither written nor fenced
+                        if (count == Statement.SUCCESS_NO_INFO) {
+                            unknown++;
+                        } else {
+                            rows += count;
+                        }
+                    }
+                }
+                return new int[] { rows, unknown };
+            });
+            writeTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            int written = counts[0];
+            int unknown = counts[1];
+            if (unknown > 0) {
+                unconfirmedWrites.increment(unknown);
+                log.debug("{} of {} job outcomes sent without a row count from the driver", unknown,
+                        latest.size());
+            }
+            if (written + unknown < latest.size()) {
+                // Not retried: the row is someone else's now, and so is its outcome
+                fencedWrites.increment(latest.size() - written - unknown);
+                log.warn("{} of {} job outcomes not written, the jobs are owned by another node by now",
+                        latest.size() - written - unknown, latest.size());
+            }
+            log.debug("Flushed {} job outcomes ({} success, {} other)", latest.size(), successIds.size(),
+                    failureArgs.size());
+            for (Outcome outcome : batch) {
+                tracing.persisted(outcome.trace(), outcome.status().name());
+            }
+        } catch (RuntimeException e) {
+            // Kept aside and written first by the next flush, merged with whatever came in since
+            retries = new ArrayList<>(latest.values());
+            throw e;
+        }
+    }
+
+    private static Object[] withTerm(Object[] args, FencingToken term) {
+        Object[] fenced = Arrays.copyOf(args, args.length + 3);
+        fenced[args.length] = term.serviceName();
+        fenced[args.length + 1] = term.hostId();
+        fenced[args.length + 2] = term.epoch();
+        return fenced;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Outcome(Long id, NotificationStatus status, Integer attemptCount, LocalDateTime nextRetryAt,
+            FailureReason reason, String message, byte[] preparedBody, String preparedContentType,
+            boolean releaseClaim, Observation trace) {
+
+        // The later outcome wins unless it belongs to an older attempt. Keeps a body
+        // only the other outcome carried, it is written once.
+        Outcome supersededBy(Outcome next) {
+            Outcome newer = attempt(next) >= attempt(this) ? next : this;
+            Outcome older = newer == next ? this : next;
+            if (newer.preparedBody() != null || older.preparedBody() == null) {
+                return newer;
+            }
+            return new Outcome(newer.id(), newer.status(), newer.attemptCount(), newer.nextRetryAt(),
+                    newer.reason(), newer.message(), older.preparedBody(), older.preparedContentType(),
+                    newer.releaseClaim(), newer.trace());
+        }
+
+        private static int attempt(Outcome outcome) {
+            return outcome.attemptCount() != null ? outcome.attemptCount() : 0;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.IngestProperties;
+import com.notification.dto.BatchItemResult;
+import com.notification.dto.NotificationRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk ingest of an NDJSON upload of any size.
+ * <p>
+ * Requests are parsed one at a time off the request stream and committed in chunks
+ * through {@link NotificationService#submitBatch}; each chunk's per-line results are
+ * written back before the next one is read, so memory use depends on the chunk size
+ * only. While a target queue is full or the status sink is backlogged, reading
+ * pauses, which pushes back on the client through TCP flow control.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StreamIngestService {
+
+    private final NotificationService notificationService;
+    private final QueueManager queueManager;
+    private final StatusUpdateSink statusSink;
+    private final ObjectMapper objectMapper;
+    private final IngestProperties properties;
+
+    /**
+     * Reads NDJSON requests from {@code in} and writes one result per line to {@code out},
+     * with the 1-based line number as {@code index}, followed by a totals line.
+     */
+    public void ingest(InputStream in, OutputStream out) throws IOException {
+        List<NotificationRequest> chunk = new ArrayList<>(properties.getChunkSize());
+        List<Integer> lines = new ArrayList<>(properties.getChunkSize());
+        long accepted = 0;
+        long rejected = 0;
+        String abortedWith = null;
+
+        try (MappingIterator<NotificationRequest> it = objectMapper.readerFor(NotificationRequest.class)
+                .readValues(in)) {
+            while (true) {
+                int line;
+                try {
+                    if (!it.hasNextValue()) {
+                        break;
+                    }
+                    line = it.getParser().currentTokenLocation().getLineNr();
+                } catch (JsonProcessingException e) {
+                    // Malformed JSON leaves the parser without a way back to the next line
+                    abortedWith = "Malformed JSON at line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage();
+                    break;
+                }
+                try {
+                    chunk.add(it.nextValue());
+                    lines.add(line);
+                } catch (JsonProcessingException e) {
+                    // Well-formed but not a request; the iterator skips to the next value
+                    write(out, BatchItemResult.rejected(line, "Invalid request: " + e.getOriginalMessage()));
+                    rejected++;
+                    continue;
+                }
+
+                if (chunk.size() >= properties.getChunkSize()) {
+                    long acceptedInChunk = commit(chunk, lines, out);
+                    accepted += acceptedInChunk;
+                    rejected += chunk.size() - acceptedInChunk;
+                    abortedWith = awaitCapacity(chunk);
+                    chunk.clear();
+                    lines.clear();
+                    if (abortedWith != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            long acceptedInChunk = commit(chunk, lines, out);
+            accepted += acceptedInChunk;
+            rejected += chunk.size() - acceptedInChunk;
+        }
+
+        Map<String, Object> totals = abortedWith == null
+                ? Map.of("accepted", accepted, "rejected", rejected)
+                : Map.of("accepted", accepted, "rejected", rejected, "error", abortedWith);
+        out.write(objectMapper.writeValueAsBytes(totals));
+        out.write('\n');
+        out.flush();
+        log.info("Stream ingest finished: {} accepted, {} rejected{}", accepted, rejected,
+                abortedWith != null ? ", aborted: " + abortedWith : "");
+    }
+
+    private long commit(List<NotificationRequest> chunk, List<Integer> lines, OutputStream out) throws IOException {
+        long accepted = 0;
+        for (BatchItemResult result : notificationService.submitBatch(chunk)) {
+            int index = result.getIndex();
+            result.setIndex(lines.get(index));
+            if (result.getError() == null) {
+                accepted++;
+            }
+            write(out, result);
+        }
+        out.flush();
+        return accepted;
+    }
+
+    // Waits until the chunk's queues have room and the status writer has caught up;
+    // returns why it gave up, or null
+    private String awaitCapacity(List<NotificationRequest> chunk) {
+        Set<Integer> priorities = new HashSet<>();
+        for (NotificationRequest request : chunk) {
+            priorities.add(request == null || request.getPriority() == null ? 3 : request.getPriority());
+        }
+        long deadline = System.nanoTime() + properties.getMaxStall().toNanos();
+        while (statusSink.isBacklogged() || priorities.stream().anyMatch(queueManager::isFull)) {
+            if (System.nanoTime() > deadline) {
+                return "Queues stayed full for " + properties.getMaxStall() + ", upload stopped";
+            }
+            try {
+                Thread.sleep(properties.getBackpressurePause().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "Interrupted";
+            }
+        }
+        return null;
+    }
+
+    private void write(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+}
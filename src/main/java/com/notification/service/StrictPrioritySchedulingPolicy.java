@@ -0,0 +1,18 @@
+package com.notification.service;
+
+/**
+ * Always the most urgent non-empty level. A steady stream of priority 2 work
+ * starves priority 3; use with aging or switch to weighted fair scheduling.
+ */
+public class StrictPrioritySchedulingPolicy implements SchedulingPolicy {
+
+    @Override
+    public int select(Levels levels) {
+        for (int priority : levels.priorities()) {
+            if (!levels.isEmpty(priority)) {
+                return priority;
+            }
+        }
+        throw new IllegalStateException("No level holds a job");
+    }
+}
@@ -0,0 +1,370 @@
+package com.notification.service;
+
+import com.notification.config.WalProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Node-local write-ahead log of accepted submissions.
+ * <p>
+ * Records are appended to memory-mapped segment files of a fixed size, framed as
+ * {@code [length][crc32c][bytes]}; a zero length marks the end of the written part.
+ * {@link #append} returns once the record is forced to disk. Concurrent appenders
+ * share one force: whoever finds no force in progress syncs everything appended so
+ * far, the others wait for it (group commit).
+ * <p>
+ * A single drainer reads durable records from a cursor with {@link #read} and moves
+ * the cursor with {@link #commit} once they are in the database. Segments behind the
+ * cursor are deleted and the cursor is checkpointed, so a restart replays from there.
+ * The checkpoint is not forced; replaying a few applied records is harmless because
+ * every record carries an idempotency key. A corrupt record ends its segment for the
+ * reader; if the writer is still in that segment it is rolled first.
+ */
+@Component
+@ConditionalOnProperty(prefix = "notification.wal", name = "enabled", havingValue = "true")
+@Slf4j
+public class SubmissionLog {
+
+    private static final int HEADER = 8;
+    private static final String SUFFIX = ".wal";
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Timer syncTimer;
+
+    // Writer state, guarded by this
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private long appended;
+    private Position written;
+
+    // Group commit state, guarded by syncLock
+    private final Object syncLock = new Object();
+    private long durableLsn;
+    private boolean syncing;
+
+    // Everything up to here is on disk and may be read by the drainer
+    private volatile Position durable;
+
+    // Reader state, drainer thread only
+    private long readSegment;
+    private int readOffset;
+    private long readMappedSegment = -1;
+    private MappedByteBuffer readBuffer;
+    private Position readEnd;
+
+    public SubmissionLog(WalProperties properties, MeterRegistry meterRegistry) throws IOException {
+        this.directory = Path.of(properties.getDirectory());
+        this.segmentSize = Math.toIntExact(properties.getSegmentSize().toBytes());
+        Files.createDirectories(directory);
+        open();
+
+        this.syncTimer = Timer.builder("notification.wal.sync")
+                .description("Time to force appended submissions to disk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("notification.wal.segments", this, log -> log.segmentCount())
+                .description("Log segments not yet fully drained")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     */
+    public void append(byte[] record) {
+        if (record.length + HEADER > segmentSize) {
+            throw new IllegalArgumentException("Submission of " + record.length + " bytes exceeds the log segment size");
+        }
+        long lsn;
+        synchronized (this) {
+            if (writeBuffer.remaining() < HEADER + record.length) {
+                roll();
+            }
+            writeBuffer.putInt(record.length).putInt(checksum(record, 0, record.length)).put(record);
+            appended += HEADER + record.length;
+            lsn = appended;
+            written = new Position(writeSegment, writeBuffer.position());
+        }
+        awaitDurable(lsn);
+    }
+
+    /**
+     * Reads up to {@code max} durable records after the committed cursor. Calling it
+     * again without {@link #commit} returns the same records.
+     */
+    public List<byte[]> read(int max) {
+        Position limit = durable;
+        List<byte[]> records = new ArrayList<>();
+        long segment = readSegment;
+        int offset = readOffset;
+        while (records.size() < max) {
+            boolean current = segment == limit.segment();
+            int end = current ? limit.offset() : segmentSize;
+            MappedByteBuffer buffer = readMapping(segment);
+            byte[] record = recordAt(buffer, offset, end);
+            if (record != null) {
+                records.add(record);
+                offset += HEADER + record.length;
+                continue;
+            }
+            if (current && offset < end) {
+                // Durable bytes that don't parse. The writer would keep appending behind them and
+                // nothing after them could ever be read, so seal the segment and move on.
+                log.error("Corrupt record in the current log segment {} at offset {}, skipping {} bytes",
+                        segment, offset, end - offset);
+                seal(segment);
+                limit = durable;
+            } else if (!current && offset + HEADER <= segmentSize && buffer.getInt(offset) != 0) {
+                log.warn("Corrupt record in log segment {} at offset {}, skipping the rest of it", segment, offset);
+            }
+            // End of this segment; move on only if the writer already has
+            if (segment >= limit.segment()) {
+                break;
+            }
+            segment++;
+            offset = 0;
+        }
+        readEnd = new Position(segment, offset);
+        return records;
+    }
+
+    /**
+     * Moves the cursor past the records returned by the last {@link #read} and deletes
+     * segments that are now fully applied.
+     */
+    public void commit() {
+        if (readEnd == null) {
+            return;
+        }
+        readSegment = readEnd.segment();
+        readOffset = readEnd.offset();
+        readEnd = null;
+        try {
+            List<Path> drained;
+            synchronized (this) {
+                drained = new ArrayList<>(segments.headMap(readSegment).values());
+                segments.headMap(readSegment).clear();
+            }
+            for (Path path : drained) {
+                Files.deleteIfExists(path);
+            }
+            Path tmp = directory.resolve(CHECKPOINT + ".tmp");
+            Files.writeString(tmp, readSegment + " " + readOffset);
+            Files.move(tmp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Only costs a longer replay after a restart
+            log.warn("Failed to truncate the submission log", e);
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        boolean interrupted = false;
+        try {
+            synchronized (syncLock) {
+                while (syncing && durableLsn < lsn) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (durableLsn >= lsn) {
+                    return;
+                }
+                syncing = true;
+            }
+            // We are the syncer: force everything appended so far, covering all waiters
+            MappedByteBuffer buffer;
+            long target;
+            Position position;
+            synchronized (this) {
+                buffer = writeBuffer;
+                target = appended;
+                position = written;
+            }
+            boolean forced = false;
+            try {
+                syncTimer.record(() -> buffer.force());
+                forced = true;
+            } finally {
+                synchronized (syncLock) {
+                    if (forced && target > durableLsn) {
+                        durableLsn = target;
+                        durable = position;
+                    }
+                    syncing = false;
+                    syncLock.notifyAll();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Called with the writer lock held. Earlier segments are always fully forced, so the
+    // syncer only ever needs to force the current one.
+    private void roll() {
+        writeBuffer.force();
+        try {
+            mapForWrite(writeSegment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create log segment " + (writeSegment + 1), e);
+        }
+    }
+
+    // Makes the writer leave the segment, if it is still in it, and publishes the roll as
+    // durable so the reader can follow. roll() forces everything appended before it.
+    private void seal(long segment) {
+        long target;
+        Position position;
+        synchronized (this) {
+            if (writeSegment == segment) {
+                roll();
+                written = new Position(writeSegment, writeBuffer.position());
+            }
+            target = appended;
+            position = written;
+        }
+        synchronized (syncLock) {
+            if (target >= durableLsn) {
+                durableLsn = target;
+                durable = position;
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(p -> {
+                        String name = p.getFileName().toString();
+                        segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), p);
+                    });
+        }
+
+        long checkpointSegment = 0;
+        int checkpointOffset = 0;
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            String[] parts = Files.readString(checkpoint).trim().split(" ");
+            checkpointSegment = Long.parseLong(parts[0]);
+            checkpointOffset = Integer.parseInt(parts[1]);
+        }
+
+        if (segments.isEmpty()) {
+            // Past the checkpointed segment, so the checkpoint offset can't point into the new one
+            mapForWrite(checkpointSegment + 1);
+        } else {
+            // Continue after the last valid record of the newest segment; a torn tail is overwritten
+            mapForWrite(segments.lastKey());
+            writeBuffer.position(scanEnd(writeBuffer));
+        }
+        written = new Position(writeSegment, writeBuffer.position());
+        durable = written;
+
+        if (segments.containsKey(checkpointSegment)) {
+            readSegment = checkpointSegment;
+            readOffset = checkpointOffset;
+        } else {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+        }
+        int backlog = segments.tailMap(readSegment).size();
+        if (readSegment != writeSegment || readOffset != writeBuffer.position()) {
+            log.info("Replaying submission log from segment {} offset {} ({} segments)", readSegment, readOffset,
+                    backlog);
+        }
+    }
+
+    private int scanEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        byte[] record;
+        while ((record = recordAt(buffer, offset, segmentSize)) != null) {
+            offset += HEADER + record.length;
+        }
+        return offset;
+    }
+
+    // The record framed at offset if it is whole before end and its checksum matches
+    private byte[] recordAt(MappedByteBuffer buffer, int offset, int end) {
+        if (offset + HEADER > end) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > end - offset - HEADER) {
+            return null;
+        }
+        byte[] record = new byte[length];
+        buffer.get(offset + HEADER, record);
+        return buffer.getInt(offset + 4) == checksum(record, 0, length) ? record : null;
+    }
+
+    private void mapForWrite(long segment) throws IOException {
+        Path path = segmentPath(segment);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            writeBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        // Make the new file itself survive a crash, not just its contents
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Directory fsync not supported", e);
+        }
+        segments.put(segment, path);
+        writeSegment = segment;
+    }
+
+    private MappedByteBuffer readMapping(long segment) {
+        if (segment != readMappedSegment) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+                readMappedSegment = segment;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map log segment " + segment, e);
+            }
+        }
+        return readBuffer;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SUFFIX));
+    }
+
+    private synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private record Position(long segment, int offset) {
+    }
+}
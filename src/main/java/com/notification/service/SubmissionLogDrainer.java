@@ -0,0 +1,149 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.WalProperties;
+import com.notification.dto.BatchItemResult;
+import com.notification.dto.NotificationRequest;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves logged submissions into notification_job with batched inserts and truncates
+ * the log behind them. Starts once the application is ready, so anything left in the
+ * log by a crash is replayed first. Replayed submissions that were already stored
+ * are recognised by their idempotency key.
+ * <p>
+ * While the database is unavailable the cursor stays put and the records are retried.
+ * Any other failure of a batch is retried record by record, and a record that still
+ * fails on its own is logged and dropped, so it can't block the log behind it.
+ */
+@Component
+@ConditionalOnProperty(prefix = "notification.wal", name = "enabled", havingValue = "true")
+@Slf4j
+public class SubmissionLogDrainer {
+
+    private final SubmissionLog submissionLog;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final WalProperties properties;
+
+    private volatile boolean running = true;
+    private Thread drainer;
+
+    public SubmissionLogDrainer(SubmissionLog submissionLog, NotificationService notificationService,
+            ObjectMapper objectMapper, WalProperties properties) {
+        this.submissionLog = submissionLog;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        drainer = new Thread(this::drainLoop, "SubmissionLogDrainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Not interrupted, so an insert in flight finishes; the rest stays in the log
+        running = false;
+    }
+
+    private void drainLoop() {
+        long intervalMillis = properties.getDrainInterval().toMillis();
+        while (running) {
+            try {
+                List<byte[]> records = submissionLog.read(properties.getDrainBatchSize());
+                if (records.isEmpty()) {
+                    Thread.sleep(intervalMillis);
+                    continue;
+                }
+                apply(records);
+                submissionLog.commit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // The cursor did not move, the same records are retried
+                log.error("Draining the submission log failed, retrying", e);
+                sleepQuietly(Math.max(1000, intervalMillis));
+            }
+        }
+    }
+
+    private void apply(List<byte[]> records) {
+        List<NotificationRequest> requests = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            try {
+                requests.add(objectMapper.readValue(record, NotificationRequest.class));
+            } catch (IOException e) {
+                log.error("Dropping unreadable logged submission", e);
+            }
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        try {
+            report(requests, notificationService.submitBatch(requests));
+        } catch (RuntimeException e) {
+            if (isUnavailable(e)) {
+                throw e;
+            }
+            // One bad record must not hold up the whole log: apply them one by one so only it is dropped
+            log.warn("Batch of {} logged submissions failed, applying them one by one", requests.size(), e);
+            for (NotificationRequest request : requests) {
+                applyOne(request);
+            }
+        }
+    }
+
+    private void applyOne(NotificationRequest request) {
+        try {
+            report(List.of(request), notificationService.submitBatch(List.of(request)));
+        } catch (RuntimeException e) {
+            if (isUnavailable(e)) {
+                // The ones before it are stored and are recognised by their key on the retry
+                throw e;
+            }
+            log.error("Dropping logged submission {} that cannot be applied", request.getIdempotencyKey(), e);
+        }
+    }
+
+    private static void report(List<NotificationRequest> requests, List<BatchItemResult> results) {
+        for (BatchItemResult result : results) {
+            if (result.getError() != null) {
+                // Was valid when accepted, e.g. its template has been deleted since
+                log.warn("Dropping logged submission {}: {}",
+                        requests.get(result.getIndex()).getIdempotencyKey(), result.getError());
+            }
+        }
+    }
+
+    // The database rather than the record is at fault; keep the records and retry later
+    private static boolean isUnavailable(RuntimeException e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof TransactionException;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.notification.service;
+
+import freemarker.template.utility.StringUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A template made of static text and plain {@code ${name}} / {@code ${a.b}} references,
+ * optionally escaped with {@code ?json_string}, {@code ?xml}, {@code ?html} or
+ * {@code ?xhtml}. Rendered without FreeMarker: static text is kept as UTF-8 bytes and
+ * values are encoded straight into an output array of the exact size.
+ * <p>
+ * Only covers what renders the same as FreeMarker by construction: a reference must
+ * resolve to a String. Numbers, booleans, missing values and the like make
+ * {@link #render} return null, and the caller renders with FreeMarker instead, which
+ * formats them (or fails) as configured. The escapes are FreeMarker's own.
+ */
+final class SubstitutionTemplate {
+
+    // Anything that could start a directive, a macro call or a legacy #{} interpolation
+    private static final List<String> DIRECTIVE_MARKERS = List.of("<#", "</#", "<@", "</@", "#{", "[#", "[/#",
+            "[@", "[/@", "[=");
+
+    private static final Pattern REFERENCE = Pattern.compile(
+            "([A-Za-z_][A-Za-z0-9_]*(?:\\.[A-Za-z_][A-Za-z0-9_]*)*)(?:\\?(json_string|xml|html|xhtml))?");
+
+    // Parsed as literals or operators by FreeMarker, not as variable names
+    private static final Set<String> RESERVED = Set.of("true", "false", "gt", "gte", "lt", "lte", "as", "in",
+            "using");
+
+    private final byte[][] texts;
+    private final Reference[] references;
+
+    private SubstitutionTemplate(byte[][] texts, Reference[] references) {
+        this.texts = texts;
+        this.references = references;
+    }
+
+    /**
+     * Returns null if the content uses anything beyond simple references.
+     */
+    static SubstitutionTemplate compile(String content) {
+        for (String marker : DIRECTIVE_MARKERS) {
+            if (content.contains(marker)) {
+                return null;
+            }
+        }
+        List<String> texts = new ArrayList<>();
+        List<Reference> references = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int start = content.indexOf("${", from);
+            if (start < 0) {
+                break;
+            }
+            int end = content.indexOf('}', start);
+            if (end < 0) {
+                return null;
+            }
+            Reference reference = parseReference(content.substring(start + 2, end));
+            if (reference == null) {
+                return null;
+            }
+            texts.add(content.substring(from, start));
+            references.add(reference);
+            from = end + 1;
+        }
+        texts.add(content.substring(from));
+
+        byte[][] encoded = new byte[texts.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            String text = texts.get(i);
+            // A surrogate pair split across a text and a value would encode differently
+            if (!text.isEmpty() && Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+                return null;
+            }
+            encoded[i] = text.getBytes(StandardCharsets.UTF_8);
+        }
+        return new SubstitutionTemplate(encoded, references.toArray(new Reference[0]));
+    }
+
+    private static Reference parseReference(String expression) {
+        Matcher matcher = REFERENCE.matcher(expression);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String[] path = matcher.group(1).split("\\.");
+        for (String name : path) {
+            if (RESERVED.contains(name)) {
+                return null;
+            }
+        }
+        String escape = matcher.group(2);
+        UnaryOperator<String> escaper;
+        if (escape == null) {
+            escaper = UnaryOperator.identity();
+        } else if (escape.equals("json_string")) {
+            escaper = StringUtil::jsonStringEnc;
+        } else if (escape.equals("xml")) {
+            escaper = StringUtil::XMLEnc;
+        } else {
+            // ?html is ?xhtml since incompatible improvements 2.3.20
+            escaper = StringUtil::XHTMLEnc;
+        }
+        return new Reference(path, escaper);
+    }
+
+    /**
+     * The UTF-8 output, or null if some reference is not a plain String in this model.
+     */
+    byte[] render(Map<String, Object> model) {
+        // Resolve first and size the output exactly, so the result is the only allocation
+        // beyond the escaped values themselves
+        String[] values = new String[references.length];
+        int length = texts[references.length].length;
+        for (int i = 0; i < references.length; i++) {
+            String value = references[i].resolve(model);
+            if (value == null) {
+                return null;
+            }
+            if (!value.isEmpty() && Character.isHighSurrogate(value.charAt(value.length() - 1))) {
+                return null;
+            }
+            values[i] = value;
+            length += texts[i].length + utf8Length(value);
+        }
+        byte[] out = new byte[length];
+        int position = 0;
+        for (int i = 0; i < references.length; i++) {
+            System.arraycopy(texts[i], 0, out, position, texts[i].length);
+            position = writeUtf8(values[i], out, position + texts[i].length);
+        }
+        System.arraycopy(texts[references.length], 0, out, position, texts[references.length].length);
+        return out;
+    }
+
+    private record Reference(String[] path, UnaryOperator<String> escaper) {
+
+        String resolve(Map<String, Object> model) {
+            Object current = model;
+            for (String name : path) {
+                if (!(current instanceof Map<?, ?> map)) {
+                    return null;
+                }
+                current = map.get(name);
+            }
+            return current instanceof String value ? escaper.apply(value) : null;
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Same bytes as String.getBytes(UTF_8), lone surrogates included; returns the new position
+    private static int writeUtf8(String value, byte[] bytes, int position) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xE0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,238 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.ClusterProperties;
+import com.notification.config.RecoveryProperties;
+import com.notification.domain.FailureReason;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the queues of a node that just became leader.
+ * <p>
+ * Streams every PENDING / FAILED job no live node owns out of notification_job,
+ * highest priority first, with keyset pagination on (priority, id). Rows are read
+ * without payload and prepared body, the two columns that make up most of a row;
+ * {@link RequestBodyPreparer#loadDeferred} reads them when the job is dispatched.
+ * Due jobs go into the queues while their tier has room, FAILED jobs waiting for
+ * their retry go onto the timer wheel if it is within its horizon. Whatever does not
+ * fit is left to the recovery poller and the spill refill.
+ * <p>
+ * In leader mode only the leader dispatches, so jobs still claimed by another node
+ * are taken over right away instead of after their claim lease expires. Once the
+ * queues are warm, the claims of the old term on whatever did not fit are cleared
+ * as well, so the recovery poller and the spill refill pick those up without
+ * waiting out the lease either.
+ */
+@Service
+@Slf4j
+public class TakeoverWarmup {
+
+    private static final String SELECT_PAGE = "SELECT id, target_url, headers, template_id, status, attempt_count, "
+            + "next_retry_at, created_at, priority, idempotency_key, campaign_id, recipient_seq, failure_reason, "
+            + "failure_error_message FROM notification_job "
+            + "WHERE status IN ('PENDING', 'FAILED') AND (priority > ? OR (priority = ? AND id > ?)) AND priority <= ? "
+            + "AND next_retry_at <= ? "
+            + "AND (claimed_by IS NULL OR claim_expires_at < ? OR (? AND claimed_by <> ?)) "
+            + "ORDER BY priority, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String CLAIM = "UPDATE notification_job SET claimed_by = :owner, claim_expires_at = :expiresAt, "
+            + "spilled = FALSE WHERE id IN (:ids) AND EXISTS (SELECT 1 FROM leader_election le "
+            + "WHERE le.service_name = :serviceName AND le.host_id = :owner AND le.epoch = :epoch)";
+
+    // LIMIT keeps each batch to one short transaction, like the archiver's batches
+    private static final String RELEASE_STALE_CLAIMS = "UPDATE notification_job SET claimed_by = NULL, "
+            + "claim_expires_at = NULL WHERE claimed_by <> ? AND status IN ('PENDING', 'FAILED') "
+            + "AND EXISTS (SELECT 1 FROM leader_election le "
+            + "WHERE le.service_name = ? AND le.host_id = ? AND le.epoch = ?) LIMIT ?";
+
+    private static final TypeReference<Map<String, String>> HEADERS_TYPE = new TypeReference<>() {
+    };
+
+    private final QueueManager queueManager;
+    private final RetryTimerWheel retryTimer;
+    private final LeaderElectionService leaderElectionService;
+    private final ClusterProperties clusterProperties;
+    private final RecoveryProperties recoveryProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Timer duration;
+
+    public TakeoverWarmup(QueueManager queueManager, RetryTimerWheel retryTimer,
+            LeaderElectionService leaderElectionService, ClusterProperties clusterProperties,
+            RecoveryProperties recoveryProperties, JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.queueManager = queueManager;
+        this.retryTimer = retryTimer;
+        this.leaderElectionService = leaderElectionService;
+        this.clusterProperties = clusterProperties;
+        this.recoveryProperties = recoveryProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.duration = Timer.builder("notification.takeover.warmup")
+                .description("Time from acquiring leadership to queues warmed up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs once per acquired term; stops early if leadership is lost meanwhile.
+     */
+    public void warmUp() {
+        long startedAt = System.nanoTime();
+        int priority = Integer.MIN_VALUE;
+        long lastId = 0;
+        int queued = 0;
+        int scheduled = 0;
+        // One tier at a time, pages never run past the tier whose room sized them
+        int level = 1;
+        while (level <= 3 && leaderElectionService.isLeader()) {
+            int upTo = level == 3 ? Integer.MAX_VALUE : level;
+            int limit = Math.min(queueManager.remainingCapacity(level), recoveryProperties.getMaxBatchSize());
+            List<NotificationJob> page = limit > 0 ? claimPage(priority, lastId, upTo, limit) : List.of();
+            if (page == null) {
+                break;
+            }
+            if (!page.isEmpty()) {
+                NotificationJob last = page.get(page.size() - 1);
+                priority = last.getPriority();
+                lastId = last.getId();
+            }
+            if (limit <= 0 || page.size() < limit) {
+                // Tier full or drained, the rest of it stays in the DB; carry on with the next one
+                priority = upTo;
+                lastId = Long.MAX_VALUE;
+                level++;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<NotificationJob> due = new ArrayList<>(page.size());
+            for (NotificationJob job : page) {
+                if (job.getStatus() == NotificationStatus.FAILED && job.getNextRetryAt() != null
+                        && job.getNextRetryAt().isAfter(now)) {
+                    retryTimer.scheduleRetry(job, job.getNextRetryAt());
+                    scheduled++;
+                } else {
+                    due.add(job);
+                }
+            }
+            queueManager.pushAll(due);
+            queued += due.size();
+        }
+        int released = clusterProperties.getMode() == ClusterProperties.Mode.LEADER ? releaseStaleClaims() : 0;
+        long elapsed = System.nanoTime() - startedAt;
+        duration.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Takeover warm-up queued {} jobs, scheduled {} retries and released {} stale claims in {}ms",
+                queued, scheduled, released, elapsed / 1_000_000);
+    }
+
+    // Everything the warm-up left behind that another node still claims, in batches fenced on the epoch
+    private int releaseStaleClaims() {
+        int batchSize = recoveryProperties.getMaxBatchSize();
+        int released = 0;
+        while (leaderElectionService.isLeader()) {
+            FencingToken token = leaderElectionService.currentFencingToken().orElse(null);
+            if (token == null) {
+                break;
+            }
+            int rows = jdbcTemplate.update(RELEASE_STALE_CLAIMS, token.hostId(), token.serviceName(),
+                    token.hostId(), token.epoch(), batchSize);
+            released += rows;
+            if (rows < batchSize) {
+                break;
+            }
+        }
+        return released;
+    }
+
+    // One page read and claimed in one short transaction; null if the claim was fenced off
+    private List<NotificationJob> claimPage(int priority, long afterId, int upToPriority, int limit) {
+        FencingToken token = leaderElectionService.currentFencingToken().orElse(null);
+        if (token == null) {
+            return null;
+        }
+        boolean takeOverClaims = clusterProperties.getMode() == ClusterProperties.Mode.LEADER;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(clusterProperties.getClaimLease());
+        return transactionTemplate.execute(status -> {
+            List<NotificationJob> page = jdbcTemplate.query(SELECT_PAGE, stubMapper(), priority, priority, afterId,
+                    upToPriority, Timestamp.valueOf(now.plus(recoveryProperties.getTimerHorizon())),
+                    Timestamp.valueOf(now), takeOverClaims, token.hostId(), limit);
+            if (page.isEmpty()) {
+                return page;
+            }
+            List<Long> ids = page.stream().map(NotificationJob::getId).toList();
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ids)
+                    .addValue("owner", token.hostId())
+                    .addValue("expiresAt", Timestamp.valueOf(expiresAt))
+                    .addValue("serviceName", token.serviceName())
+                    .addValue("epoch", token.epoch());
+            if (namedJdbcTemplate.update(CLAIM, params) == 0) {
+                log.warn("Takeover claim rejected, leadership was lost");
+                return null;
+            }
+            for (NotificationJob job : page) {
+                job.setClaimedBy(token.hostId());
+                job.setClaimExpiresAt(expiresAt);
+            }
+            return page;
+        });
+    }
+
+    private RowMapper<NotificationJob> stubMapper() {
+        return (rs, rowNum) -> {
+            NotificationJob job = new NotificationJob();
+            job.setId(rs.getLong("id"));
+            job.setTargetUrl(rs.getString("target_url"));
+            String headers = rs.getString("headers");
+            try {
+                job.setHeaders(headers != null ? objectMapper.readValue(headers, HEADERS_TYPE) : null);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Invalid headers on job " + job.getId(), e);
+            }
+            long templateId = rs.getLong("template_id");
+            job.setTemplateId(rs.wasNull() ? null : templateId);
+            job.setStatus(NotificationStatus.valueOf(rs.getString("status")));
+            job.setAttemptCount(rs.getInt("attempt_count"));
+            Timestamp nextRetryAt = rs.getTimestamp("next_retry_at");
+            job.setNextRetryAt(nextRetryAt != null ? nextRetryAt.toLocalDateTime() : null);
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            job.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : LocalDateTime.now());
+            job.setPriority(rs.getInt("priority"));
+            job.setIdempotencyKey(rs.getString("idempotency_key"));
+            long campaignId = rs.getLong("campaign_id");
+            job.setCampaignId(rs.wasNull() ? null : campaignId);
+            int recipientSeq = rs.getInt("recipient_seq");
+            job.setRecipientSeq(rs.wasNull() ? null : recipientSeq);
+            String reason = rs.getString("failure_reason");
+            job.setFailureReason(reason != null ? FailureReason.valueOf(reason) : null);
+            job.setFailureErrorMessage(rs.getString("failure_error_message"));
+            job.setBodyDeferred(true);
+            return job;
+        };
+    }
+}
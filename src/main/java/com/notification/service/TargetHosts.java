@@ -0,0 +1,28 @@
+package com.notification.service;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * Derives the vendor host a job is sent to. Per-vendor settings (HTTP pools,
+ * limits, breakers) are all keyed by this value.
+ */
+final class TargetHosts {
+
+    static final String UNKNOWN = "unknown";
+
+    private TargetHosts() {
+    }
+
+    static String of(String targetUrl) {
+        if (targetUrl == null) {
+            return UNKNOWN;
+        }
+        try {
+            String host = URI.create(targetUrl.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : UNKNOWN;
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+}
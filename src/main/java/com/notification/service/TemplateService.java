@@ -1,16 +1,30 @@
 package com.notification.service;
 
+import com.notification.config.TemplateCacheProperties;
+import com.notification.config.TemplateRenderProperties;
 import com.notification.domain.TemplateConfig;
 import com.notification.repository.TemplateConfigRepository;
-import freemarker.cache.StringTemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 @Slf4j
@@ -18,47 +32,219 @@ public class TemplateService {
 
     private final TemplateConfigRepository repository;
     private final Configuration freemarkerConfig;
-    private final StringTemplateLoader stringLoader;
+    private final long refreshIntervalNanos;
+    private final boolean fastPath;
+    private final double verifySampleRate;
 
-    public TemplateService(TemplateConfigRepository repository) {
+    // Access-ordered LinkedHashMap gives us LRU eviction; guarded by its own monitor.
+    private final Map<Long, CachedTemplate> cache;
+    // Name -> id for validating submissions, same bound and refresh interval as the templates
+    private final Map<String, CachedId> ids;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private final Timer renderFast;
+    private final Timer renderSuccess;
+    private final Timer renderError;
+    private final Counter fastPathMismatches;
+
+    public TemplateService(TemplateConfigRepository repository, TemplateCacheProperties cacheProperties,
+            TemplateRenderProperties renderProperties, MeterRegistry meterRegistry) {
         this.repository = repository;
-        this.stringLoader = new StringTemplateLoader();
         this.freemarkerConfig = new Configuration(Configuration.VERSION_2_3_32);
-        this.freemarkerConfig.setTemplateLoader(stringLoader);
         this.freemarkerConfig.setDefaultEncoding("UTF-8");
+        this.refreshIntervalNanos = cacheProperties.getRefreshInterval().toNanos();
+        this.fastPath = renderProperties.isFastPath();
+        this.verifySampleRate = renderProperties.getVerifySampleRate();
+
+        int maxSize = cacheProperties.getMaxSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedTemplate> eldest) {
+                return size() > maxSize;
+            }
+        };
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedId> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        FunctionCounter.builder("notification.template.cache", cacheHits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("notification.template.cache", cacheMisses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        this.renderFast = renderTimer(meterRegistry, "success", "fast");
+        this.renderSuccess = renderTimer(meterRegistry, "success", "freemarker");
+        this.renderError = renderTimer(meterRegistry, "error", "freemarker");
+        this.fastPathMismatches = Counter.builder("notification.template.fast_path.mismatches")
+                .description("Fast renders that differed from FreeMarker's output")
+                .register(meterRegistry);
     }
 
-    public String transform(Long templateId, Map<String, Object> model) {
+    /**
+     * Renders the template as UTF-8. Templates with nothing but {@code ${name}} references
+     * take the fast path when every referenced value is a string, the rest goes through
+     * FreeMarker; both give the same bytes.
+     */
+    public byte[] render(Long templateId, Map<String, Object> model) {
         if (templateId == null) {
             return null;
         }
+        long startedAt = System.nanoTime();
+        try {
+            CachedTemplate compiled = resolveTemplate(templateId);
+
+            byte[] body = compiled.fast() != null ? compiled.fast().render(model) : null;
+            if (body != null) {
+                if (verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate) {
+                    body = verify(templateId, compiled, model, body);
+                }
+                renderFast.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return body;
+            }
+            body = process(compiled.template(), model);
+            renderSuccess.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            return body;
+        } catch (Exception e) {
+            renderError.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            log.error("Error transforming template {}", templateId, e);
+            throw new RuntimeException("Transformation failed", e);
+        }
+    }
+
+    // Differential check of the fast path against FreeMarker on live traffic
+    private byte[] verify(Long templateId, CachedTemplate compiled, Map<String, Object> model, byte[] fast)
+            throws Exception {
+        byte[] expected;
         try {
-            // Check if template is known to loader, if not (or checking updates), fetch
-            // from DB
-            // specialized cache logic can be added here. For now, we fetch and put.
-            // Note: StringTemplateLoader is thread-safe.
-            String templateKey = String.valueOf(templateId);
-
-            // Optimization: In real world, check if loader has it first?
-            // FreeMarker Configuration cache is complex.
-            // Simple approach: Always fetch content or check local cache.
-            // Here we assume fetch.
-            Optional<TemplateConfig> configOpt = repository.findById(templateId);
-            if (configOpt.isEmpty()) {
+            expected = process(compiled.template(), model);
+        } catch (Exception e) {
+            onMismatch(templateId, compiled, "FreeMarker failed: " + e.getMessage());
+            throw e;
+        }
+        if (!Arrays.equals(fast, expected)) {
+            onMismatch(templateId, compiled, "first difference at byte " + Arrays.mismatch(fast, expected));
+            return expected;
+        }
+        return fast;
+    }
+
+    private void onMismatch(Long templateId, CachedTemplate compiled, String detail) {
+        fastPathMismatches.increment();
+        log.error("Fast path rendered template {} differently than FreeMarker ({}), disabling it for this template",
+                templateId, detail);
+        put(templateId, new CachedTemplate(compiled.template(), null, compiled.version(), compiled.checkedAtNanos()));
+    }
+
+    private static byte[] process(Template template, Map<String, Object> model) throws Exception {
+        StringWriter writer = new StringWriter();
+        template.process(model, writer);
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    private static Timer renderTimer(MeterRegistry meterRegistry, String outcome, String engine) {
+        // Includes the cache lookup, so a recompile shows up as a slow render
+        return Timer.builder("notification.template.render")
+                .description("Template lookup and rendering time")
+                .tag("outcome", outcome)
+                .tag("engine", engine)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private CachedTemplate resolveTemplate(Long templateId) throws Exception {
+        CachedTemplate cached;
+        synchronized (cache) {
+            cached = cache.get(templateId);
+        }
+
+        long now = System.nanoTime();
+        if (cached != null) {
+            if (now - cached.checkedAtNanos() < refreshIntervalNanos) {
+                cacheHits.increment();
+                return cached;
+            }
+            // Entry is due for a check: compare updated_at only, the content is loaded
+            // and parsed again only if the template was actually edited.
+            Optional<LocalDateTime> version = repository.findUpdatedAtById(templateId);
+            if (version.isEmpty()) {
+                evict(templateId);
                 throw new IllegalArgumentException("Template not found: " + templateId);
             }
-            String content = configOpt.get().getContent();
+            if (Objects.equals(version.get(), cached.version())) {
+                CachedTemplate checked = new CachedTemplate(cached.template(), cached.fast(), cached.version(), now);
+                put(templateId, checked);
+                cacheHits.increment();
+                return checked;
+            }
+        }
 
-            stringLoader.putTemplate(templateKey, content);
+        cacheMisses.increment();
+        TemplateConfig config = repository.findById(templateId)
+                .orElseThrow(() -> new IllegalArgumentException("Template not found: " + templateId));
+        // Template instances are immutable once parsed and safe to process concurrently
+        Template template = new Template(String.valueOf(templateId), new StringReader(config.getContent()),
+                freemarkerConfig);
+        // Parsed by FreeMarker either way, so invalid templates fail the same on both paths
+        SubstitutionTemplate fast = fastPath ? SubstitutionTemplate.compile(config.getContent()) : null;
+        CachedTemplate compiled = new CachedTemplate(template, fast, config.getUpdatedAt(), now);
+        put(templateId, compiled);
+        log.debug("Compiled template {} (version {}, fast path {})", templateId, config.getUpdatedAt(),
+                fast != null);
+        return compiled;
+    }
+
+    /**
+     * Id of the template with this name, answered from memory until the entry is due
+     * for a refresh. Unknown names are not cached, so a new template is found right away.
+     */
+    public Optional<Long> findIdByName(String name) {
+        long now = System.nanoTime();
+        CachedId cached;
+        synchronized (ids) {
+            cached = ids.get(name);
+        }
+        if (cached != null && now - cached.checkedAtNanos() < refreshIntervalNanos) {
+            return Optional.of(cached.id());
+        }
+        Optional<Long> id = repository.findIdByName(name);
+        synchronized (ids) {
+            if (id.isPresent()) {
+                ids.put(name, new CachedId(id.get(), now));
+            } else {
+                ids.remove(name);
+            }
+        }
+        return id;
+    }
 
-            Template template = freemarkerConfig.getTemplate(templateKey);
+    private void put(Long templateId, CachedTemplate entry) {
+        synchronized (cache) {
+            cache.put(templateId, entry);
+        }
+    }
 
-            StringWriter writer = new StringWriter();
-            template.process(model, writer);
-            return writer.toString();
-        } catch (Exception e) {
-            log.error("Error transforming template {}", templateId, e);
-            throw new RuntimeException("Transformation failed", e);
+    private void evict(Long templateId) {
+        synchronized (cache) {
+            cache.remove(templateId);
         }
     }
+
+    private record CachedId(Long id, long checkedAtNanos) {
+    }
+
+    private record CachedTemplate(Template template, SubstitutionTemplate fast, LocalDateTime version,
+            long checkedAtNanos) {
+    }
 }
@@ -0,0 +1,360 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.BatchingProperties;
+import com.notification.config.BatchingProperties.HostBatching;
+import com.notification.domain.FailureReason;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.TemplateConfig;
+import com.notification.repository.TemplateConfigRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces jobs for the same target into one request for hosts that opted in
+ * under {@code notification.batching.hosts}.
+ * <p>
+ * Jobs with the same host, endpoint, headers and priority tier collect in an open
+ * batch that is sent when it reaches {@code maxBatchSize} or its first job has
+ * lingered for {@code linger}. The body is a JSON array of the item bodies, or the
+ * host's batch template rendered with {@code items} (the parsed payloads) and
+ * {@code count}; without a batch template only jobs whose body is JSON are batched.
+ * The result is mapped back per job: a whole-batch outcome, or one status per
+ * item from a JSON array response. A batch takes one rate-limit permit, counts as
+ * one call for the circuit breaker and is one delivery for the dispatcher, which
+ * sends it under its tier's concurrency limit and timeout (see {@link #onBatchReady}).
+ */
+@Component
+@Slf4j
+public class VendorBatcher {
+
+    private static final TypeReference<Map<String, Object>> MODEL_TYPE = new TypeReference<>() {
+    };
+
+    private final BatchingProperties properties;
+    private final OutboundHttpClients httpClients;
+    private final RequestBodyPreparer bodyPreparer;
+    private final TemplateService templateService;
+    private final TemplateConfigRepository templateRepository;
+    private final NotificationProcessor processor;
+    private final VendorRateLimiter rateLimiter;
+    private final VendorCircuitBreakers circuitBreakers;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, HostBatching> settings = new ConcurrentHashMap<>();
+    private final Map<String, Long> batchTemplateIds = new ConcurrentHashMap<>();
+    // Open batches, guarded by their own monitor
+    private final Map<BatchKey, List<NotificationJob>> open = new HashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledThreadPoolExecutor scheduler;
+    // Sends batches that are ready; replaced by the dispatcher on startup
+    private volatile Consumer<Batch> batchHandler = batch -> senders.execute(
+            () -> deliver(batch, new DeliveryAttempt()));
+
+    public VendorBatcher(BatchingProperties properties, OutboundHttpClients httpClients,
+            RequestBodyPreparer bodyPreparer, TemplateService templateService,
+            TemplateConfigRepository templateRepository, NotificationProcessor processor,
+            VendorRateLimiter rateLimiter, VendorCircuitBreakers circuitBreakers, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.httpClients = httpClients;
+        this.bodyPreparer = bodyPreparer;
+        this.templateService = templateService;
+        this.templateRepository = templateRepository;
+        this.processor = processor;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreakers = circuitBreakers;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "VendorBatchLinger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers who sends ready batches. The handler must call {@link #deliver} once
+     * per batch.
+     */
+    public void onBatchReady(Consumer<Batch> handler) {
+        this.batchHandler = handler;
+    }
+
+    /**
+     * Adds the job to an open batch if its host is batched and it has no idempotency key.
+     *
+     * @return false if the host is not batched and the job should be sent on its own
+     */
+    public boolean offer(NotificationJob job) {
+        String host = TargetHosts.of(job.getTargetUrl());
+        HostBatching batching = settingsFor(host);
+        // A batch shares one set of headers, so a job with its own Idempotency-Key goes alone
+        if (!Boolean.TRUE.equals(batching.getEnabled()) || job.getIdempotencyKey() != null) {
+            return false;
+        }
+        // Without a batch template the body is the item bodies joined into a JSON array,
+        // a text body (e.g. a rendered template) cannot be part of that
+        if (batching.getBatchTemplate() == null && !isJson(bodyPreparer.contentTypeOf(job))) {
+            return false;
+        }
+        BatchKey key = new BatchKey(host, batching.getBatchUrl() != null ? batching.getBatchUrl() : job.getTargetUrl(),
+                job.getHeaders() != null ? job.getHeaders() : Map.of(),
+                job.getPriority() != null && job.getPriority() == 1);
+
+        List<NotificationJob> full = null;
+        synchronized (open) {
+            List<NotificationJob> batch = open.computeIfAbsent(key, k -> new ArrayList<>());
+            batch.add(job);
+            if (batch.size() == 1) {
+                scheduler.schedule(() -> flush(key, batch), batching.getLinger().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (batch.size() >= batching.getMaxBatchSize()) {
+                open.remove(key);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(key, batching, full);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Unsent jobs keep their claim and PENDING/FAILED row, the recovery poller resends them
+        scheduler.shutdownNow();
+        senders.shutdown();
+    }
+
+    private void flush(BatchKey key, List<NotificationJob> batch) {
+        synchronized (open) {
+            // Already sent for reaching its max size
+            if (!open.remove(key, batch)) {
+                return;
+            }
+        }
+        send(key, settingsFor(key.host()), batch);
+    }
+
+    private void send(BatchKey key, HostBatching batching, List<NotificationJob> jobs) {
+        batchHandler.accept(new Batch(key, batching, jobs));
+    }
+
+    /**
+     * Sends the batch, unless its host's circuit is open or it is over its rate limit,
+     * in which case the jobs are deferred or the batch is handed back later. Outcomes
+     * are only applied if this side settles the attempt, like a single delivery.
+     *
+     * @return true if the request was sent
+     */
+    public boolean deliver(Batch batch, DeliveryAttempt attempt) {
+        BatchKey key = batch.key();
+        HostBatching batching = batch.batching();
+        List<NotificationJob> jobs = batch.jobs();
+        String host = key.host();
+        LocalDateTime probeAt = circuitBreakers.blockedUntil(host);
+        if (probeAt != null) {
+            if (attempt.trySettle()) {
+                jobs.forEach(job -> processor.deferForOpenCircuit(job, probeAt));
+            }
+            return false;
+        }
+        long waitMillis = rateLimiter.tryAcquire(host);
+        if (waitMillis > 0) {
+            circuitBreakers.onNotSent(host);
+            if (attempt.trySettle()) {
+                scheduler.schedule(() -> send(key, batching, jobs), waitMillis, TimeUnit.MILLISECONDS);
+            }
+            return false;
+        }
+
+        long sentAt = 0;
+        try {
+            byte[] body = render(batching, jobs);
+            sentAt = System.nanoTime();
+            ResponseEntity<byte[]> response = httpClients.forHost(host).post()
+                    .uri(key.url())
+                    .headers(headers -> {
+                        key.headers().forEach(headers::add);
+                        headers.setContentType(MediaType.APPLICATION_JSON);
+                    })
+                    .body(body)
+                    .retrieve()
+                    .toEntity(byte[].class);
+            if (!attempt.trySettle()) {
+                return true; // Timed out, the timeout failed the jobs
+            }
+            long latency = System.nanoTime() - sentAt;
+            circuitBreakers.onSuccess(host, latency);
+            processor.recordHttp(host, "SUCCESS", latency);
+            meterRegistry.summary("notification.batch.size", "host", host).record(jobs.size());
+            applyResults(batching, jobs, response.getBody());
+        } catch (RestClientResponseException e) {
+            if (!attempt.trySettle()) {
+                return true;
+            }
+            FailureReason reason = NotificationProcessor.classify(e);
+            long latency = System.nanoTime() - sentAt;
+            if (reason == FailureReason.EXTERNAL_SERVICE_UNAVAILABLE) {
+                circuitBreakers.onFailure(host, latency);
+            } else {
+                circuitBreakers.onSuccess(host, latency);
+            }
+            processor.recordHttp(host, reason.name(), latency);
+            log.error("Batch of {} jobs to {} failed with status {}", jobs.size(), host, e.getStatusCode());
+            Duration retryAfter = RetryPolicies.retryAfter(e);
+            jobs.forEach(job -> processor.handleFailureInternal(job, e.getMessage(), reason,
+                    e.getStatusCode().value(), retryAfter));
+        } catch (ResourceAccessException e) {
+            if (!attempt.trySettle()) {
+                return true; // Most likely our own abort of a timed out call
+            }
+            long latency = System.nanoTime() - sentAt;
+            circuitBreakers.onFailure(host, latency);
+            processor.recordHttp(host, FailureReason.EXTERNAL_SERVICE_UNAVAILABLE.name(), latency);
+            log.error("Batch of {} jobs to {} failed with I/O error: {}", jobs.size(), host, e.getMessage());
+            failAll(jobs, e.getMessage(), FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
+        } catch (Exception e) {
+            if (!attempt.trySettle()) {
+                return true;
+            }
+            circuitBreakers.onNotSent(host);
+            log.error("Batch of {} jobs to {} failed: {}", jobs.size(), host, e.getMessage());
+            failAll(jobs, e.getMessage(), FailureReason.UNKNOWN);
+        } finally {
+            rateLimiter.release(host);
+        }
+        return true;
+    }
+
+    private byte[] render(HostBatching batching, List<NotificationJob> jobs) throws IOException {
+        if (batching.getBatchTemplate() != null) {
+            List<Map<String, Object>> items = new ArrayList<>(jobs.size());
+            for (NotificationJob job : jobs) {
+                bodyPreparer.loadDeferred(job);
+                items.add(job.getPayload() != null ? objectMapper.readValue(job.getPayload(), MODEL_TYPE) : Map.of());
+            }
+            Map<String, Object> model = Map.of("items", items, "count", jobs.size());
+            return templateService.render(batchTemplateId(batching.getBatchTemplate()), model);
+        }
+        // Item bodies are JSON documents already, so the array is plain concatenation
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('[');
+        for (int i = 0; i < jobs.size(); i++) {
+            NotificationJob job = jobs.get(i);
+            bodyPreparer.prepare(job);
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(job.getPreparedBody());
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private void applyResults(HostBatching batching, List<NotificationJob> jobs, byte[] responseBody) {
+        if (batching.getResultMode() == BatchingProperties.ResultMode.WHOLE_BATCH) {
+            jobs.forEach(processor::markDelivered);
+            return;
+        }
+        JsonNode results;
+        try {
+            results = responseBody != null ? objectMapper.readTree(responseBody) : null;
+        } catch (IOException e) {
+            results = null;
+        }
+        if (results == null || !results.isArray()) {
+            // Sent but unreadable: retry all rather than guess
+            failAll(jobs, "Batch response is not a result array", FailureReason.UNKNOWN);
+            return;
+        }
+        for (int i = 0; i < jobs.size(); i++) {
+            NotificationJob job = jobs.get(i);
+            JsonNode result = results.get(i);
+            int status = result == null ? -1
+                    : result.isNumber() ? result.asInt() : result.path(batching.getItemStatusField()).asInt(-1);
+            if (status >= 200 && status < 300) {
+                processor.markDelivered(job);
+            } else if (status >= 400 && status < 500) {
+                processor.handleFailureInternal(job, "Batch item rejected with status " + status,
+                        status == 429 ? FailureReason.RATE_LIMITED : FailureReason.CLIENT_ERROR, status, null);
+            } else if (status < 0) {
+                processor.handleFailureInternal(job, "No result for batch item " + i, FailureReason.UNKNOWN);
+            } else {
+                processor.handleFailureInternal(job, "Batch item failed with status " + status,
+                        FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
+            }
+        }
+    }
+
+    private void failAll(List<NotificationJob> jobs, String message, FailureReason reason) {
+        jobs.forEach(job -> processor.handleFailureInternal(job, message, reason));
+    }
+
+    private Long batchTemplateId(String name) {
+        return batchTemplateIds.computeIfAbsent(name, n -> templateRepository.findByName(n)
+                .map(TemplateConfig::getId)
+                .orElseThrow(() -> new IllegalArgumentException("Batch template not found: " + n)));
+    }
+
+    private HostBatching settingsFor(String host) {
+        return settings.computeIfAbsent(host, h -> {
+            HostBatching override = properties.getHosts().get(h);
+            return override != null ? override.mergedOver(properties.getDefaults()) : properties.getDefaults();
+        });
+    }
+
+    static boolean isJson(String contentType) {
+        try {
+            MediaType type = MediaType.parseMediaType(contentType);
+            return "application".equals(type.getType())
+                    && ("json".equals(type.getSubtype()) || "json".equals(type.getSubtypeSuffix()));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private record BatchKey(String host, String url, Map<String, String> headers, boolean high) {
+    }
+
+    /**
+     * Jobs sent together in one request.
+     */
+    public record Batch(BatchKey key, HostBatching batching, List<NotificationJob> jobs) {
+
+        public String host() {
+            return key.host();
+        }
+
+        // Sent under the high priority executor's limit
+        public boolean high() {
+            return key.high();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.notification.service;
+
+import com.notification.config.CircuitBreakerProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One circuit breaker per target host.
+ * <p>
+ * CLOSED tracks the last {@code windowSize} calls and opens when the share of
+ * EXTERNAL_SERVICE_UNAVAILABLE outcomes or slow calls crosses its threshold.
+ * OPEN rejects every call until the probe time. HALF_OPEN lets a few probe calls
+ * through: one failure re-opens the breaker, all probes succeeding closes it.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class VendorCircuitBreakers {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public record Snapshot(State state, int calls, double failureRate, double slowCallRate,
+            LocalDateTime probeAt) {
+    }
+
+    private final CircuitBreakerProperties properties;
+    private final Map<String, HostBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Asks whether a call to the host may be made now.
+     *
+     * @return null if the call is permitted, otherwise the time the caller should
+     *         try again. A permitted call must be followed by exactly one of
+     *         {@link #onSuccess}, {@link #onFailure} or {@link #onNotSent}.
+     */
+    public LocalDateTime blockedUntil(String host) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        return breakerFor(host).tryAcquire();
+    }
+
+    /**
+     * What {@link #blockedUntil} would answer right now, without taking a probe slot or
+     * moving the breaker to HALF_OPEN. For callers that only decide whether to queue work
+     * for the host, not make the call; nothing has to follow it.
+     */
+    public LocalDateTime peekBlockedUntil(String host) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        HostBreaker breaker = breakers.get(host);
+        return breaker == null ? null : breaker.peek();
+    }
+
+    // Vendor answered, 4xx included: the host itself is up
+    public void onSuccess(String host, long latencyNanos) {
+        if (properties.isEnabled()) {
+            breakerFor(host).record(false, latencyNanos);
+        }
+    }
+
+    // 5xx, I/O error or timeout
+    public void onFailure(String host, long latencyNanos) {
+        if (properties.isEnabled()) {
+            breakerFor(host).record(true, latencyNanos);
+        }
+    }
+
+    // The permitted call never reached the network, e.g. template rendering failed
+    public void onNotSent(String host) {
+        if (properties.isEnabled()) {
+            breakerFor(host).releaseProbe();
+        }
+    }
+
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> result = new TreeMap<>();
+        breakers.forEach((host, breaker) -> result.put(host, breaker.snapshot()));
+        return result;
+    }
+
+    private HostBreaker breakerFor(String host) {
+        return breakers.computeIfAbsent(host, h -> new HostBreaker(h, properties));
+    }
+
+    private static final class HostBreaker {
+        private final String host;
+        private final CircuitBreakerProperties properties;
+        private final long slowCallNanos;
+
+        // Ring buffers of the last windowSize outcomes
+        private final boolean[] failures;
+        private final boolean[] slowCalls;
+        private int next;
+        private int calls;
+        private int failureCount;
+        private int slowCount;
+
+        private State state = State.CLOSED;
+        private LocalDateTime probeAt;
+        private int probesInFlight;
+        private int probeSuccesses;
+
+        HostBreaker(String host, CircuitBreakerProperties properties) {
+            this.host = host;
+            this.properties = properties;
+            this.slowCallNanos = properties.getSlowCallThreshold().toNanos();
+            this.failures = new boolean[Math.max(1, properties.getWindowSize())];
+            this.slowCalls = new boolean[failures.length];
+        }
+
+        synchronized LocalDateTime tryAcquire() {
+            LocalDateTime now = LocalDateTime.now();
+            if (state == State.OPEN) {
+                if (now.isBefore(probeAt)) {
+                    return probeAt;
+                }
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                probeSuccesses = 0;
+                log.info("Circuit for {} half-open, probing", host);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight >= properties.getHalfOpenProbes()) {
+                    // Probes are already out, check again once they had a chance to finish
+                    return now.plus(properties.getSlowCallThreshold());
+                }
+                probesInFlight++;
+            }
+            return null;
+        }
+
+        synchronized LocalDateTime peek() {
+            LocalDateTime now = LocalDateTime.now();
+            if (state == State.OPEN && now.isBefore(probeAt)) {
+                return probeAt;
+            }
+            if (state == State.HALF_OPEN && probesInFlight >= properties.getHalfOpenProbes()) {
+                return now.plus(properties.getSlowCallThreshold());
+            }
+            return null;
+        }
+
+        synchronized void record(boolean failure, long latencyNanos) {
+            boolean slow = latencyNanos >= slowCallNanos;
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (failure || slow) {
+                    open("probe " + (failure ? "failed" : "was slow"));
+                } else if (++probeSuccesses >= properties.getHalfOpenProbes()) {
+                    close();
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // Late result of a call started before the breaker opened
+                return;
+            }
+
+            if (calls == failures.length) {
+                failureCount -= failures[next] ? 1 : 0;
+                slowCount -= slowCalls[next] ? 1 : 0;
+            } else {
+                calls++;
+            }
+            failures[next] = failure;
+            slowCalls[next] = slow;
+            failureCount += failure ? 1 : 0;
+            slowCount += slow ? 1 : 0;
+            next = (next + 1) % failures.length;
+
+            if (calls >= properties.getMinimumCalls()) {
+                double failureRate = (double) failureCount / calls;
+                double slowRate = (double) slowCount / calls;
+                if (failureRate >= properties.getFailureRateThreshold()) {
+                    open(String.format("failure rate %.0f%%", failureRate * 100));
+                } else if (slowRate >= properties.getSlowCallRateThreshold()) {
+                    open(String.format("slow call rate %.0f%%", slowRate * 100));
+                }
+            }
+        }
+
+        synchronized void releaseProbe() {
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+            }
+        }
+
+        synchronized Snapshot snapshot() {
+            double failureRate = calls == 0 ? 0 : (double) failureCount / calls;
+            double slowRate = calls == 0 ? 0 : (double) slowCount / calls;
+            return new Snapshot(state, calls, failureRate, slowRate, state == State.CLOSED ? null : probeAt);
+        }
+
+        private void open(String cause) {
+            state = State.OPEN;
+            probeAt = LocalDateTime.now().plus(properties.getOpenDuration());
+            log.warn("Circuit for {} opened ({}), next probe at {}", host, cause, probeAt);
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            probeAt = null;
+            calls = 0;
+            next = 0;
+            failureCount = 0;
+            slowCount = 0;
+            log.info("Circuit for {} closed", host);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.notification.service;
+
+import com.notification.config.RateLimitProperties;
+import com.notification.config.RateLimitProperties.HostLimits;
+import com.notification.domain.NotificationJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Dispatch-stage limiter keyed by target host: a token bucket for requests per
+ * second plus a bulkhead on concurrent in-flight deliveries.
+ * <p>
+ * Configured limits are cluster-wide. Each node enforces its share, the limit
+ * divided by the number of dispatching nodes seen in the cluster_node heartbeat
+ * table, which is a coarse but DB-round-trip-free coordination.
+ * <p>
+ * Jobs over the limit are parked per host in arrival order. One timer per host
+ * waits for the next permit and hands parked jobs, permit taken, to the parked-job
+ * handler, so a backlog costs one wake-up per permit instead of a re-queue of the
+ * whole backlog. At most {@code maxParked} jobs wait per host; the caller keeps any
+ * further ones out of memory.
+ */
+@Component
+@Slf4j
+public class VendorRateLimiter {
+
+    private final RateLimitProperties properties;
+    private final LeaderElectionService leaderElectionService;
+    private final Map<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+    private final Counter parkedOverflow;
+    private final ScheduledThreadPoolExecutor drainTimer;
+    private volatile Consumer<NotificationJob> parkedJobHandler = job -> {
+        throw new IllegalStateException("No handler for parked jobs");
+    };
+
+    public VendorRateLimiter(RateLimitProperties properties, LeaderElectionService leaderElectionService,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.leaderElectionService = leaderElectionService;
+        Gauge.builder("notification.ratelimit.parked", this, VendorRateLimiter::parkedCount)
+                .description("Jobs waiting for a rate-limit or bulkhead permit of their host")
+                .register(meterRegistry);
+        this.parkedOverflow = Counter.builder("notification.ratelimit.parked.overflow")
+                .description("Jobs turned away because their host already had maxParked jobs waiting")
+                .register(meterRegistry);
+        this.drainTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "RateLimitDrain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets who takes parked jobs once a permit is free for them; the permit is then
+     * theirs to {@link #release(String)}. Called from a timer thread, must not block.
+     */
+    public void onPermitForParked(Consumer<NotificationJob> handler) {
+        this.parkedJobHandler = handler;
+    }
+
+    public enum Admission {
+        // The permit is the caller's to release
+        PERMITTED,
+        // Handed to the parked-job handler once a permit is free
+        PARKED,
+        // Neither: the host already has maxParked jobs waiting
+        FULL
+    }
+
+    /**
+     * Takes a send permit for the job, or parks the job behind the host's earlier
+     * parked jobs if there is room for it.
+     */
+    public Admission acquireOrPark(String host, NotificationJob job) {
+        if (!properties.isEnabled()) {
+            return Admission.PERMITTED;
+        }
+        Admission admission = limiterFor(host).acquireOrPark(job, leaderElectionService.getDispatchingNodeCount());
+        if (admission == Admission.FULL) {
+            parkedOverflow.increment();
+        }
+        return admission;
+    }
+
+    /**
+     * Tries to take a send permit for the host.
+     *
+     * @return 0 if the permit was granted, otherwise how many milliseconds to wait
+     *         before trying again. A granted permit must be given back with
+     *         {@link #release(String)} once the delivery finishes.
+     */
+    public long tryAcquire(String host) {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        return limiterFor(host).tryAcquire(leaderElectionService.getDispatchingNodeCount());
+    }
+
+    public void release(String host) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        limiterFor(host).release();
+    }
+
+    public int parkedCount() {
+        int parked = 0;
+        for (HostLimiter limiter : limiters.values()) {
+            parked += limiter.parkedCount();
+        }
+        return parked;
+    }
+
+    /**
+     * Removes every parked job and returns them, for a node that may no longer dispatch.
+     */
+    public List<NotificationJob> dropParked() {
+        List<NotificationJob> dropped = new ArrayList<>();
+        for (HostLimiter limiter : limiters.values()) {
+            limiter.dropParked(dropped);
+        }
+        return dropped;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Parked jobs keep their claims, which the dispatcher releases on shutdown
+        drainTimer.shutdownNow();
+    }
+
+    private void drain(String host, long drainSeq) {
+        List<NotificationJob> permitted = new ArrayList<>();
+        limiterFor(host).takePermitted(drainSeq, permitted, leaderElectionService.getDispatchingNodeCount());
+        for (NotificationJob job : permitted) {
+            try {
+                parkedJobHandler.accept(job);
+            } catch (Exception e) {
+                // The job keeps its claim and comes back through recovery once the lease runs out
+                release(host);
+                log.error("Failed to hand over parked job {}", job.getId(), e);
+            }
+        }
+    }
+
+    private HostLimiter limiterFor(String host) {
+        return limiters.computeIfAbsent(host, h -> {
+            HostLimits override = properties.getHosts().get(h);
+            HostLimits limits = override != null ? override.mergedOver(properties.getDefaults())
+                    : properties.getDefaults();
+            return new HostLimiter(h, limits, properties.getBulkheadRetryDelay().toMillis());
+        });
+    }
+
+    private final class HostLimiter {
+        private final String host;
+        private final double clusterPermitsPerNano;
+        private final double clusterBurst;
+        private final int clusterMaxInFlight;
+        private final int maxParked;
+        private final long bulkheadRetryMillis;
+
+        private double tokens;
+        private long lastRefillNanos;
+        private int inFlight;
+        private final ArrayDeque<NotificationJob> parked = new ArrayDeque<>();
+        // Only the latest scheduled drain runs, so there is one drain chain per host
+        private long drainSeq;
+        private boolean drainPending;
+        private long drainDueNanos;
+
+        HostLimiter(String host, HostLimits limits, long bulkheadRetryMillis) {
+            this.host = host;
+            this.clusterPermitsPerNano = limits.getRequestsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+            this.clusterBurst = Math.max(1, limits.getBurst());
+            this.clusterMaxInFlight = limits.getMaxInFlight();
+            this.maxParked = limits.getMaxParked() != null ? limits.getMaxParked() : 0;
+            this.bulkheadRetryMillis = Math.max(1, bulkheadRetryMillis);
+            this.tokens = clusterBurst;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized long tryAcquire(int nodes) {
+            double permitsPerNano = clusterPermitsPerNano / nodes;
+            double burst = Math.max(1, clusterBurst / nodes);
+            int maxInFlight = clusterMaxInFlight > 0 ? Math.max(1, (clusterMaxInFlight + nodes - 1) / nodes) : 0;
+            if (maxInFlight > 0 && inFlight >= maxInFlight) {
+                return bulkheadRetryMillis;
+            }
+            if (permitsPerNano > 0) {
+                long now = System.nanoTime();
+                tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerNano);
+                lastRefillNanos = now;
+                if (tokens < 1) {
+                    long waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+                    return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+                }
+                tokens -= 1;
+            }
+            inFlight++;
+            return 0;
+        }
+
+        synchronized Admission acquireOrPark(NotificationJob job, int nodes) {
+            // Behind jobs already waiting, so a host's backlog stays in order
+            long waitMillis = parked.isEmpty() ? tryAcquire(nodes) : bulkheadRetryMillis;
+            if (waitMillis == 0) {
+                return Admission.PERMITTED;
+            }
+            if (maxParked > 0 && parked.size() >= maxParked) {
+                return Admission.FULL;
+            }
+            parked.add(job);
+            if (!drainPending) {
+                scheduleDrain(waitMillis);
+            }
+            return Admission.PARKED;
+        }
+
+        // Moves parked jobs that got a permit to permitted, in order
+        synchronized void takePermitted(long seq, List<NotificationJob> permitted, int nodes) {
+            if (seq != drainSeq) {
+                return; // Superseded by a drain scheduled later
+            }
+            drainPending = false;
+            while (!parked.isEmpty()) {
+                long waitMillis = tryAcquire(nodes);
+                if (waitMillis > 0) {
+                    scheduleDrain(waitMillis);
+                    return;
+                }
+                permitted.add(parked.poll());
+            }
+        }
+
+        synchronized void release() {
+            if (inFlight > 0) {
+                inFlight--;
+            }
+            // A freed bulkhead slot goes to the oldest parked job right away
+            if (!parked.isEmpty() && (!drainPending || drainDueNanos - System.nanoTime() > 0)) {
+                scheduleDrain(0);
+            }
+        }
+
+        private void scheduleDrain(long delayMillis) {
+            long seq = ++drainSeq;
+            drainPending = true;
+            drainDueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            drainTimer.schedule(() -> drain(host, seq), delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void dropParked(List<NotificationJob> dropped) {
+            dropped.addAll(parked);
+            parked.clear();
+        }
+
+        synchronized int parkedCount() {
+            return parked.size();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.notification.service;
+
+import java.util.Map;
+
+/**
+ * Deficit round robin over the priority levels. Each visit to a non-empty level
+ * adds its weight to the level's deficit, and the level is served while the
+ * deficit covers a job. Under saturation every level gets a share of dispatches
+ * proportional to its weight; an idle level loses its deficit so it cannot
+ * build up a burst.
+ */
+public class WeightedFairSchedulingPolicy implements SchedulingPolicy {
+
+    // Keeps a tiny weight from spinning through thousands of empty rounds
+    private static final double MIN_WEIGHT = 0.01;
+
+    private final Map<Integer, Double> weights;
+    private final double[] deficit = new double[8];
+    private int cursor;
+    private boolean newVisit = true;
+
+    public WeightedFairSchedulingPolicy(Map<Integer, Double> weights) {
+        this.weights = Map.copyOf(weights);
+    }
+
+    @Override
+    public int select(Levels levels) {
+        int[] priorities = levels.priorities();
+        while (true) {
+            int priority = priorities[cursor % priorities.length];
+            if (levels.isEmpty(priority)) {
+                deficit[priority] = 0;
+                advance(priorities);
+                continue;
+            }
+            if (newVisit) {
+                deficit[priority] += weightOf(priority);
+                newVisit = false;
+            }
+            if (deficit[priority] >= 1) {
+                deficit[priority] -= 1;
+                return priority;
+            }
+            advance(priorities);
+        }
+    }
+
+    private void advance(int[] priorities) {
+        cursor = (cursor + 1) % priorities.length;
+        newVisit = true;
+    }
+
+    private double weightOf(int priority) {
+        return Math.max(MIN_WEIGHT, weights.getOrDefault(priority, 1.0));
+    }
+}
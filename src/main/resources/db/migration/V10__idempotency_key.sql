@@ -0,0 +1,4 @@
+-- NULLs don't collide, so jobs without a key are unaffected
+ALTER TABLE notification_job
+    ADD COLUMN idempotency_key VARCHAR(128),
+    ADD UNIQUE INDEX uk_idempotency_key (idempotency_key);
@@ -0,0 +1,33 @@
+-- One row per campaign; progress is a bitmap over recipient positions plus counters
+CREATE TABLE campaign (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(255),
+    target_url VARCHAR(2048) NOT NULL,
+    headers JSON,
+    payload JSON,
+    template_id BIGINT,
+    priority INT,
+    status VARCHAR(50) NOT NULL,
+    recipient_count INT NOT NULL,
+    resume_from INT NOT NULL DEFAULT 0,
+    delivered_count BIGINT NOT NULL DEFAULT 0,
+    failed_count BIGINT NOT NULL DEFAULT 0,
+    settled_bitmap MEDIUMBLOB,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    INDEX idx_campaign_status (status)
+);
+
+-- Only the per-recipient fields, read back in windows by primary key
+CREATE TABLE campaign_recipient (
+    campaign_id BIGINT NOT NULL,
+    seq INT NOT NULL,
+    data JSON,
+    PRIMARY KEY (campaign_id, seq)
+);
+
+-- Deliveries that failed their first attempt become regular jobs
+ALTER TABLE notification_job
+    ADD COLUMN campaign_id BIGINT,
+    ADD COLUMN recipient_seq INT,
+    ADD INDEX idx_campaign (campaign_id);
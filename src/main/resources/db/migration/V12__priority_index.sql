@@ -0,0 +1,2 @@
+-- Keyset order of the takeover warm-up, (priority, id)
+CREATE INDEX idx_priority ON notification_job (priority);
@@ -0,0 +1,4 @@
+-- RATE_LIMITED is a new FailureReason. Tables created by Hibernate 6 from the entity
+-- may have failure_reason as a MySQL ENUM of the old values; keep it a plain string.
+ALTER TABLE notification_job MODIFY failure_reason VARCHAR(50);
+ALTER TABLE notification_job_archive MODIFY failure_reason VARCHAR(50);
@@ -0,0 +1,6 @@
+-- Keys stay known after their job is archived, so a retry within the archive
+-- retention still gets the original job id. Not unique: on the partitioned table a
+-- unique index would have to include archived_at.
+ALTER TABLE notification_job_archive
+    ADD COLUMN idempotency_key VARCHAR(128),
+    ADD INDEX idx_archive_idempotency_key (idempotency_key);
@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS id_generator (
+    sequence_name VARCHAR(255) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- Seed past existing identity values so pooled ids never collide with old rows.
+-- The pooled optimizer treats the stored value as the top of a block of
+-- allocationSize (100) ids, so it has to be the highest id plus a full block.
+-- IdGeneratorSeeder applies the same seed on every startup (it also covers
+-- notification_job_archive); this script is for provisioning the schema by hand.
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'notification_job', COALESCE(MAX(id), 0) + 100 FROM notification_job
+ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val));
@@ -0,0 +1,3 @@
+ALTER TABLE notification_job
+    ADD COLUMN spilled BOOLEAN NOT NULL DEFAULT FALSE,
+    ADD INDEX idx_spilled_priority (spilled, status, priority, id);
@@ -0,0 +1,9 @@
+ALTER TABLE notification_job
+    ADD COLUMN claimed_by VARCHAR(64),
+    ADD COLUMN claim_expires_at TIMESTAMP(6),
+    ADD INDEX idx_claimed_by_status (claimed_by, status);
+
+CREATE TABLE IF NOT EXISTS cluster_node (
+    host_id VARCHAR(64) PRIMARY KEY,
+    last_seen_active TIMESTAMP(6) NOT NULL
+);
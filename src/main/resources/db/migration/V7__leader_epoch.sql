@@ -0,0 +1,2 @@
+ALTER TABLE leader_election
+    ADD COLUMN epoch BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,30 @@
+-- Finished jobs are moved here by JobArchiver, keeping notification_job (and its
+-- indexes) down to live work plus a short window of recent history.
+-- Monthly RANGE COLUMNS partitions: retention drops whole partitions, and the
+-- archiver keeps the next months split off p_future (notification.archive.partitioned).
+CREATE TABLE IF NOT EXISTS notification_job_archive (
+    id BIGINT NOT NULL,
+    target_url VARCHAR(2048) NOT NULL,
+    headers JSON,
+    payload JSON,
+    template_id BIGINT,
+    status VARCHAR(50) NOT NULL,
+    failure_error_message TEXT,
+    failure_reason VARCHAR(50),
+    attempt_count INT,
+    priority INT,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    archived_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id, archived_at),
+    INDEX idx_archive_archived_at (archived_at)
+)
+PARTITION BY RANGE COLUMNS (archived_at) (
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
+
+-- SystemMonitorService windows and the archiver's cutoff
+ALTER TABLE notification_job
+    ADD INDEX idx_updated_at (updated_at);
@@ -0,0 +1,4 @@
+-- Body rendered / serialized on the first attempt, resent as-is on retries
+ALTER TABLE notification_job
+    ADD COLUMN prepared_body MEDIUMBLOB,
+    ADD COLUMN prepared_content_type VARCHAR(255);
@@ -0,0 +1,139 @@
+package com.notification.service;
+
+import com.notification.config.ConcurrencyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.awaitility.Awaitility.await;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ConcurrencyProperties properties = new ConcurrencyProperties();
+
+    @Test
+    void blocksAtTheLimitUntilAPermitComesBack() throws Exception {
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+        limiter.acquire();
+        limiter.acquire();
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+        assertThat(third).isNotDone();
+
+        limiter.release();
+        third.get(1, TimeUnit.SECONDS);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void growsAboutOnePerRoundWhileBusy() throws InterruptedException {
+        properties.setInitialLimit(10);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+        }
+        // 100 completions with the pipe kept full: +1/limit each, so limit^2 grows by 2 per call
+        for (int i = 0; i < 100; i++) {
+            limiter.onComplete(FAST, false);
+            limiter.acquire();
+        }
+
+        assertThat(limiter.getLimit()).isCloseTo(Math.sqrt(300), within(0.5));
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() throws InterruptedException {
+        properties.setInitialLimit(100);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+            limiter.onComplete(FAST, false);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(100);
+    }
+
+    @Test
+    void timeoutCutsTheLimitOncePerBurst() throws InterruptedException {
+        // Also right after start, the first timeout counts
+        properties.setInitialLimit(100);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        long timeout = Duration.ofSeconds(30).toNanos();
+        for (int i = 0; i < 5; i++) {
+            limiter.onComplete(timeout, true);
+        }
+
+        assertThat(limiter.getLimit()).isCloseTo(90, within(0.001));
+    }
+
+    @Test
+    void callSlowerThanTheBaselineCountsAsCongestion() throws InterruptedException {
+        properties.setInitialLimit(100);
+        properties.setWindowSize(5);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.onComplete(FAST, false);
+        }
+        Thread.sleep(5);
+
+        limiter.acquire();
+        limiter.onComplete(FAST * 3, false);
+
+        assertThat(limiter.getLimit()).isCloseTo(90, within(0.001));
+    }
+
+    @Test
+    void neverDropsBelowTheMinimum() throws InterruptedException {
+        properties.setInitialLimit(10);
+        properties.setMinLimit(8);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(2);
+            limiter.acquire();
+            limiter.onComplete(0, true);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void disabledLimiterNeverBlocks() throws InterruptedException {
+        properties.setEnabled(false);
+        properties.setInitialLimit(1);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+        }
+
+        await().atMost(Duration.ofSeconds(1)).until(() -> limiter.getInFlight() == 0);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter() {
+        return new AdaptiveConcurrencyLimiter("test", properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,68 @@
+package com.notification.service;
+
+import com.notification.config.IdempotencyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ArchivedKeyFilterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final IdempotencyProperties properties = new IdempotencyProperties();
+
+    @Test
+    void everythingIsAMaybeUntilLoaded() {
+        properties.setArchiveFilterCapacity(1000);
+        ArchivedKeyFilter filter = new ArchivedKeyFilter(properties, jdbcTemplate);
+
+        assertThat(filter.mightContain("order-1")).isTrue();
+    }
+
+    @Test
+    void knowsArchivedKeysAndRulesOutMostOthers() throws Exception {
+        properties.setArchiveFilterCapacity(1000);
+        ArchivedKeyFilter filter = new ArchivedKeyFilter(properties, jdbcTemplate);
+        List<String> archived = IntStream.range(0, 1000).mapToObj(i -> "order-" + i).toList();
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            for (int i = 0; i < archived.size(); i++) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn((long) i + 1);
+                when(rs.getString(2)).thenReturn(archived.get(i));
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, idempotency_key"), any(RowCallbackHandler.class),
+                eq(0L), anyInt());
+        filter.refresh();
+
+        doAnswer(call -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn("order-late");
+            ((RowCallbackHandler) call.getArgument(1)).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT idempotency_key"), any(RowCallbackHandler.class),
+                any(Timestamp.class));
+        filter.refresh();
+
+        assertThat(archived).allMatch(filter::mightContain);
+        assertThat(filter.mightContain("order-late")).isTrue();
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain("fresh-" + i)).count();
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
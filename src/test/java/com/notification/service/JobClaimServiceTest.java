@@ -0,0 +1,107 @@
+package com.notification.service;
+
+import com.notification.config.ClusterProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.repository.NotificationJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobClaimServiceTest {
+
+    private final NotificationJobRepository repository = mock(NotificationJobRepository.class);
+    private final LeaderElectionService leaderElectionService = mock(LeaderElectionService.class);
+    private final ClusterProperties clusterProperties = new ClusterProperties();
+    private final JobClaimService claimService = new JobClaimService(repository, leaderElectionService,
+            clusterProperties);
+
+    @BeforeEach
+    void setUp() {
+        when(leaderElectionService.getHostId()).thenReturn("node-a");
+        when(repository.findClaimableJobs(any(), anyInt(), anyInt(), anyInt())).thenReturn(List.of(job(1L)));
+    }
+
+    @Test
+    void leaderClaimsUnderItsCurrentEpoch() {
+        when(leaderElectionService.currentFencingToken())
+                .thenReturn(Optional.of(new FencingToken("notification-service", "node-a", 7)));
+        when(repository.claimFenced(any(), eq("node-a"), any(), eq("notification-service"), eq(7L)))
+                .thenReturn(1);
+
+        List<NotificationJob> claimed = claimService.claimDueJobs(1, 10);
+
+        assertThat(claimed).extracting(NotificationJob::getClaimedBy).containsExactly("node-a");
+    }
+
+    @Test
+    void claimIsDroppedWhenTheEpochMovedOn() {
+        when(leaderElectionService.currentFencingToken())
+                .thenReturn(Optional.of(new FencingToken("notification-service", "node-a", 7)));
+        // Another node took the lease between the read and the update
+        when(repository.claimFenced(any(), anyString(), any(), anyString(), anyLong())).thenReturn(0);
+
+        assertThat(claimService.claimDueJobs(1, 10)).isEmpty();
+    }
+
+    @Test
+    void nodeThatLostLeadershipClaimsNothing() {
+        when(leaderElectionService.currentFencingToken()).thenReturn(Optional.empty());
+
+        assertThat(claimService.claimDueJobs(1, 10)).isEmpty();
+        verify(repository, never()).claimFenced(any(), anyString(), any(), anyString(), anyLong());
+    }
+
+    @Test
+    void activeActiveClaimsWithoutEpoch() {
+        clusterProperties.setMode(ClusterProperties.Mode.ACTIVE_ACTIVE);
+
+        List<NotificationJob> claimed = claimService.claimDueJobs(1, 10);
+
+        assertThat(claimed).hasSize(1);
+        verify(repository).claim(eq(List.of(1L)), eq("node-a"), any());
+    }
+
+    @Test
+    void tiersMapToPriorityRanges() {
+        clusterProperties.setMode(ClusterProperties.Mode.ACTIVE_ACTIVE);
+
+        claimService.claimDueJobs(1, 10);
+        claimService.claimSpilledJobs(2, 10);
+        claimService.claimDueJobs(3, 10);
+
+        verify(repository).findClaimableJobs(any(), eq(Integer.MIN_VALUE), eq(1), eq(10));
+        verify(repository).findClaimableSpilledJobs(any(), eq(2), eq(2), eq(10));
+        verify(repository).findClaimableJobs(any(), eq(3), eq(Integer.MAX_VALUE), eq(10));
+    }
+
+    @Test
+    void claimsAreOnlyRenewedWhileDispatching() {
+        when(leaderElectionService.isDispatchingNode()).thenReturn(false);
+        claimService.renewClaims();
+        verify(repository, never()).renewClaims(anyString(), any());
+
+        when(leaderElectionService.isDispatchingNode()).thenReturn(true);
+        claimService.renewClaims();
+        verify(repository).renewClaims(eq("node-a"), any());
+    }
+
+    private static NotificationJob job(Long id) {
+        NotificationJob job = new NotificationJob();
+        job.setId(id);
+        job.setPriority(1);
+        return job;
+    }
+}
@@ -0,0 +1,77 @@
+package com.notification.service;
+
+import com.notification.config.ClusterProperties;
+import com.notification.domain.LeaderElection;
+import com.notification.repository.ClusterNodeRepository;
+import com.notification.repository.LeaderElectionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LeaderElectionServiceTest {
+
+    private final LeaderElectionRepository repository = mock(LeaderElectionRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final LeaderElectionService service = new LeaderElectionService(repository,
+            mock(ClusterNodeRepository.class), new ClusterProperties(), eventPublisher);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(any())).thenAnswer(call -> Optional.of(
+                new LeaderElection(call.getArgument(0), service.getHostId(), LocalDateTime.now(), 7)));
+        // What @Transactional sets up around the heartbeat
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void gainedLeadershipIsAnnouncedOnlyOnceTheEpochCommits() {
+        service.heartbeat();
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        verify(eventPublisher).publishEvent(new LeadershipChangedEvent(true, 7));
+        assertThat(service.isLeader()).isTrue();
+    }
+
+    @Test
+    void rolledBackRenewalIsNeverAnnouncedAndDropsLeadership() {
+        service.heartbeat();
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(eventPublisher, never()).publishEvent(new LeadershipChangedEvent(true, 7));
+        assertThat(service.isLeader()).isFalse();
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(status);
+        }
+    }
+}
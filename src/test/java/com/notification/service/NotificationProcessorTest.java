@@ -0,0 +1,85 @@
+package com.notification.service;
+
+import com.notification.domain.FailureReason;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class NotificationProcessorTest {
+
+    private final VendorCircuitBreakers circuitBreakers = mock(VendorCircuitBreakers.class);
+    private final OutboundHttpClients httpClients = mock(OutboundHttpClients.class);
+    private final StatusUpdateSink statusSink = mock(StatusUpdateSink.class);
+    private final RetryTimerWheel retryTimer = mock(RetryTimerWheel.class);
+    private final RetryPolicies retryPolicies = mock(RetryPolicies.class);
+    private final NotificationProcessor processor = new NotificationProcessor(mock(RequestBodyPreparer.class),
+            httpClients, circuitBreakers, statusSink, retryTimer, retryPolicies, new SimpleMeterRegistry(),
+            mock(JobTracing.class));
+
+    @Test
+    void alreadyFinishedJobGivesItsBreakerPermitBack() {
+        NotificationJob job = job(NotificationStatus.SUCCESS);
+
+        processor.process(job, new DeliveryAttempt());
+
+        verify(circuitBreakers).onNotSent("api.vendor.com");
+        verifyNoInteractions(httpClients);
+    }
+
+    @Test
+    void attemptThatAlreadyTimedOutLeavesTheBreakerToTheTimeout() {
+        NotificationJob job = job(NotificationStatus.PENDING);
+        DeliveryAttempt attempt = new DeliveryAttempt();
+        attempt.trySettle();
+
+        processor.process(job, attempt);
+
+        // The watchdog reported the permit as a failure already, a release here would free a second slot
+        verify(circuitBreakers, never()).onNotSent(any());
+        verifyNoInteractions(httpClients);
+    }
+
+    @Test
+    void nearRetryStaysOnTheTimerWheel() {
+        NotificationJob job = job(NotificationStatus.PENDING);
+        LocalDateTime retryAt = LocalDateTime.now().plusSeconds(30);
+        when(retryPolicies.nextRetryAt(eq(job), any(), any(), any())).thenReturn(retryAt);
+        when(retryTimer.holds(retryAt)).thenReturn(true);
+
+        processor.handleFailureInternal(job, "503", FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
+
+        verify(statusSink).record(job);
+        verify(retryTimer).scheduleRetry(job, retryAt);
+    }
+
+    @Test
+    void retryBeyondTheHorizonReleasesTheClaimInstead() {
+        NotificationJob job = job(NotificationStatus.PENDING);
+        LocalDateTime retryAt = LocalDateTime.now().plusHours(1);
+        when(retryPolicies.nextRetryAt(eq(job), any(), any(), any())).thenReturn(retryAt);
+
+        processor.handleFailureInternal(job, "503", FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
+
+        verify(statusSink).record(job, true);
+        verify(retryTimer, never()).scheduleRetry(any(), any());
+    }
+
+    private static NotificationJob job(NotificationStatus status) {
+        NotificationJob job = new NotificationJob();
+        job.setId(1L);
+        job.setTargetUrl("https://api.vendor.com/send");
+        job.setStatus(status);
+        return job;
+    }
+}
@@ -0,0 +1,75 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.IdempotencyProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.dto.NotificationRequest;
+import com.notification.repository.NotificationJobArchiveRepository;
+import com.notification.repository.NotificationJobRepository;
+import com.notification.repository.TemplateConfigRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class NotificationServiceTest {
+
+    private final NotificationJobArchiveRepository archiveRepository = mock(NotificationJobArchiveRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final IdempotencyProperties idempotencyProperties = new IdempotencyProperties();
+    private final ArchivedKeyFilter archivedKeys = mock(ArchivedKeyFilter.class);
+
+    @SuppressWarnings("unchecked")
+    private final NotificationService service = new NotificationService(mock(NotificationJobRepository.class),
+            archiveRepository, mock(TemplateConfigRepository.class), mock(TemplateService.class),
+            mock(QueueManager.class), mock(JobClaimService.class), mock(EntityManager.class), new ObjectMapper(),
+            new SimpleMeterRegistry(), mock(JobTracing.class), new IdempotencyKeyCache(idempotencyProperties),
+            archivedKeys, idempotencyProperties, transactionTemplate, mock(ObjectProvider.class));
+
+    @Test
+    void keyOfAnArchivedJobIsStillADuplicate() {
+        when(archivedKeys.mightContain("order-17")).thenReturn(true);
+        when(archiveRepository.findIdsByIdempotencyKey("order-17")).thenReturn(List.of(42L));
+
+        Long first = service.submitNotification(request("order-17"));
+        Long second = service.submitNotification(request("order-17"));
+
+        assertThat(first).isEqualTo(42L);
+        assertThat(second).isEqualTo(42L);
+        // Nothing inserted, and the second retry is answered from the cache
+        verifyNoInteractions(transactionTemplate);
+        verify(archiveRepository, times(1)).findIdsByIdempotencyKey(any());
+    }
+
+    @Test
+    void keysTheFilterRulesOutSkipTheArchive() {
+        when(archivedKeys.mightContain("order-18")).thenReturn(false);
+        NotificationJob inserted = new NotificationJob();
+        inserted.setId(43L);
+        when(transactionTemplate.execute(any())).thenReturn(inserted);
+
+        assertThat(service.submitNotification(request("order-18"))).isEqualTo(43L);
+
+        verify(archiveRepository, never()).findIdsByIdempotencyKey(any());
+        verify(transactionTemplate).execute(any());
+    }
+
+    private static NotificationRequest request(String key) {
+        NotificationRequest request = new NotificationRequest();
+        request.setTargetUrl("https://api.vendor.com/send");
+        request.setIdempotencyKey(key);
+        return request;
+    }
+}
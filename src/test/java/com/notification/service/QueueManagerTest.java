@@ -0,0 +1,140 @@
+package com.notification.service;
+
+import com.notification.config.QueueProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import com.notification.repository.NotificationJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class QueueManagerTest {
+
+    private final NotificationJobRepository repository = mock(NotificationJobRepository.class);
+    private final QueueManager queueManager = queueManager(2, 1, 1);
+
+    @Test
+    void capacityIsPerTier() {
+        queueManager.pushAll(List.of(job(1, 1), job(2, 1), job(3, 3)));
+
+        assertThat(queueManager.remainingCapacity(1)).isZero();
+        assertThat(queueManager.remainingCapacity(2)).isEqualTo(1);
+        assertThat(queueManager.remainingCapacity(3)).isZero();
+        assertThat(queueManager.isFull(1)).isTrue();
+        assertThat(queueManager.isFull(2)).isFalse();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void onlyJobsOfAFullTierAreSpilled() {
+        NotificationJob high = job(1, 1);
+        NotificationJob low = job(2, 3);
+        NotificationJob lowOverflow = job(3, 3);
+
+        queueManager.pushAll(List.of(high, low, lowOverflow));
+
+        verify(repository).markSpilled(List.of(3L));
+        assertThat(lowOverflow.isSpilled()).isTrue();
+        assertThat(lowOverflow.getClaimedBy()).isNull();
+        assertThat(low.isSpilled()).isFalse();
+        assertThat(low.getClaimedBy()).isEqualTo("node-a");
+    }
+
+    @Test
+    void takingAJobFreesRoomInItsTier() throws InterruptedException {
+        queueManager.pushAll(List.of(job(1, 2), job(2, 3)));
+        assertThat(queueManager.isFull(2)).isTrue();
+
+        NotificationJob taken = queueManager.takeStandard();
+
+        assertThat(taken.getId()).isEqualTo(1L);
+        assertThat(queueManager.remainingCapacity(2)).isEqualTo(1);
+        assertThat(queueManager.isFull(3)).isTrue();
+    }
+
+    @Test
+    void parkedJobsKeepTheirPlaceInTheTier() throws InterruptedException {
+        queueManager.pushAll(List.of(job(1, 2)));
+        NotificationJob taken = queueManager.takeStandard();
+
+        queueManager.holdParked(taken);
+        assertThat(queueManager.isFull(2)).isTrue();
+        queueManager.pushAll(List.of(job(2, 2)));
+        verify(repository).markSpilled(List.of(2L));
+
+        queueManager.releaseParked(taken);
+        assertThat(queueManager.remainingCapacity(2)).isEqualTo(1);
+    }
+
+    @Test
+    void drainingEmptiesEveryTier() {
+        QueueManager queues = queueManager(2, 2, 2);
+        queues.pushAll(List.of(job(1, 1), job(2, 2), job(3, 3)));
+
+        assertThat(queues.drainAll()).extracting(NotificationJob::getId).containsExactlyInAnyOrder(1L, 2L, 3L);
+
+        for (int level = 1; level <= 3; level++) {
+            assertThat(queues.size(level)).isZero();
+        }
+        // The standard consumer's permits went along with the jobs
+        queues.pushAll(List.of(job(4, 3)));
+        assertThat(queues.drainAll()).extracting(NotificationJob::getId).containsExactly(4L);
+    }
+
+    @Test
+    void overflowingJobIsSpilledUntilTheGivenTime() {
+        NotificationJob job = job(1, 3);
+        LocalDateTime until = LocalDateTime.now().plusSeconds(5);
+
+        queueManager.spillUntil(job, until);
+
+        verify(repository).markSpilledUntil(List.of(1L), until);
+        assertThat(job.isSpilled()).isTrue();
+        assertThat(job.getClaimedBy()).isNull();
+        assertThat(job.getNextRetryAt()).isEqualTo(until);
+    }
+
+    @Test
+    void jobsWithoutARowThatFindNoRoomAreReportedDropped() {
+        List<NotificationJob> dropped = new ArrayList<>();
+        queueManager.onDropped(dropped::add);
+        NotificationJob delivery = job(1, 3);
+        delivery.setId(null);
+        NotificationJob overflow = job(2, 3);
+        overflow.setId(null);
+
+        queueManager.pushAll(List.of(delivery, overflow, job(3, 3)));
+        queueManager.spillUntil(delivery, LocalDateTime.now().plusSeconds(5));
+
+        // The row-backed job is spilled instead
+        assertThat(dropped).containsExactly(overflow, delivery);
+        verify(repository).markSpilled(List.of(3L));
+    }
+
+    private QueueManager queueManager(int high, int normal, int low) {
+        QueueProperties properties = new QueueProperties();
+        properties.getCapacity().setHigh(high);
+        properties.getCapacity().setNormal(normal);
+        properties.getCapacity().setLow(low);
+        return new QueueManager(repository, properties, new StrictPrioritySchedulingPolicy(),
+                new SimpleMeterRegistry(), mock(JobTracing.class));
+    }
+
+    private static NotificationJob job(long id, int priority) {
+        NotificationJob job = new NotificationJob();
+        job.setId(id);
+        job.setPriority(priority);
+        job.setStatus(NotificationStatus.PENDING);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setClaimedBy("node-a");
+        return job;
+    }
+}
@@ -0,0 +1,114 @@
+package com.notification.service;
+
+import com.notification.config.RecoveryProperties;
+import com.notification.domain.NotificationJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class RetryTimerWheelTest {
+
+    private final QueueManager queueManager = mock(QueueManager.class);
+    private final RetryTimerWheel wheel = wheel();
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void pushesTheJobBackAtItsRetryTime() {
+        NotificationJob job = new NotificationJob();
+        long startedAt = System.nanoTime();
+
+        wheel.scheduleRetry(job, LocalDateTime.now().plusNanos(Duration.ofMillis(200).toNanos()));
+
+        verify(queueManager, never()).push(job);
+        verify(queueManager, timeout(2000)).push(job);
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isGreaterThanOrEqualTo(Duration.ofMillis(190));
+    }
+
+    @Test
+    void overdueTimersFireOnTheNextTick() {
+        NotificationJob job = new NotificationJob();
+
+        wheel.scheduleRetry(job, LocalDateTime.now().minusMinutes(1));
+
+        verify(queueManager, timeout(500)).push(job);
+    }
+
+    @Test
+    void timersBeyondOneRotationWaitForTheirRound() {
+        // 8 buckets of 10ms: 250ms is three rotations out
+        List<Long> firedAt = new CopyOnWriteArrayList<>();
+        long startedAt = System.nanoTime();
+
+        wheel.schedule(250, () -> firedAt.add(System.nanoTime() - startedAt));
+
+        await().atMost(Duration.ofSeconds(2)).until(() -> !firedAt.isEmpty());
+        assertThat(Duration.ofNanos(firedAt.get(0))).isGreaterThanOrEqualTo(Duration.ofMillis(240));
+    }
+
+    @Test
+    void slowTaskDoesNotHoldUpTheWheel() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        wheel.schedule(0, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        wheel.schedule(50, () -> {
+        });
+
+        // Both timers leave the wheel on time while the first task is still running
+        await().atMost(Duration.ofSeconds(1)).until(() -> wheel.pendingTimers() == 0);
+        release.countDown();
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        NotificationJob queued = new NotificationJob();
+        NotificationJob incoming = new NotificationJob();
+        wheel.scheduleRetry(queued, LocalDateTime.now().plusNanos(Duration.ofMillis(100).toNanos()));
+        await().atMost(Duration.ofSeconds(1)).pollDelay(Duration.ofMillis(30)).until(() -> true);
+        wheel.scheduleRetry(incoming, LocalDateTime.now().plusNanos(Duration.ofMillis(100).toNanos()));
+
+        wheel.cancelAll();
+
+        await().atMost(Duration.ofSeconds(1)).until(() -> wheel.pendingTimers() == 0);
+        verify(queueManager, after(300).never()).push(queued);
+        verify(queueManager, never()).push(incoming);
+    }
+
+    @Test
+    void onlyHoldsRetriesWithinTheHorizon() {
+        assertThat(wheel.holds(LocalDateTime.now().plusMinutes(1))).isTrue();
+        assertThat(wheel.holds(LocalDateTime.now().plusMinutes(10))).isFalse();
+    }
+
+    private RetryTimerWheel wheel() {
+        RecoveryProperties properties = new RecoveryProperties();
+        properties.setTimerTick(Duration.ofMillis(10));
+        properties.setTimerWheelSize(8);
+        properties.setTimerHorizon(Duration.ofMinutes(5));
+        RetryTimerWheel wheel = new RetryTimerWheel(queueManager, properties, new SimpleMeterRegistry());
+        wheel.start();
+        return wheel;
+    }
+}
@@ -0,0 +1,253 @@
+package com.notification.service;
+
+import com.notification.config.ClusterProperties;
+import com.notification.config.StatusSinkProperties;
+import com.notification.domain.FailureReason;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatusUpdateSinkTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final LeaderElectionService leaderElectionService = mock(LeaderElectionService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatusSinkProperties properties = new StatusSinkProperties();
+    private final ClusterProperties clusterProperties = new ClusterProperties();
+    private StatusUpdateSink sink;
+
+    @BeforeEach
+    void setUp() {
+        when(leaderElectionService.getHostId()).thenReturn("node-a");
+        clusterProperties.setMode(ClusterProperties.Mode.ACTIVE_ACTIVE);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(call -> ones(call.getArgument(1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (sink != null) {
+            sink.shutdown();
+        }
+    }
+
+    @Test
+    void retriedOutcomeDoesNotOverwriteANewerOne() {
+        sink = sink();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenAnswer(call -> ones(call.getArgument(1)));
+
+        sink.record(failed(1L, 1));
+        assertThatThrownBy(sink::flush).isInstanceOf(DataAccessResourceFailureException.class);
+
+        // The retry went through meanwhile
+        sink.record(succeeded(1L, 1));
+        sink.flush();
+
+        // Only the failed first write carried the failure, the second one is the success alone
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(namedJdbcTemplate).update(anyString(), params.capture());
+        assertThat(params.getValue().getValue("ids")).isEqualTo(List.of(1L));
+    }
+
+    @Test
+    void failedBatchIsWrittenByTheNextFlush() {
+        sink = sink();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("db down"))
+                .thenAnswer(call -> ones(call.getArgument(1)));
+
+        sink.record(failed(1L, 1));
+        assertThatThrownBy(sink::flush).isInstanceOf(DataAccessResourceFailureException.class);
+        sink.flush();
+
+        List<Object[]> written = lastFailureBatch(2);
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0)[0]).isEqualTo("FAILED");
+    }
+
+    @Test
+    void highestAttemptWinsWithinABatch() {
+        sink = sink();
+
+        sink.record(failed(1L, 2));
+        sink.record(failed(1L, 1));
+        sink.flush();
+
+        List<Object[]> written = lastFailureBatch(1);
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0)[1]).isEqualTo(2);
+    }
+
+    @Test
+    void flusherWritesWithoutAnExplicitFlush() {
+        properties.setFlushInterval(Duration.ofMillis(20));
+        sink = sink();
+        sink.start();
+
+        sink.record(succeeded(7L, 0));
+
+        await().atMost(Duration.ofSeconds(2))
+                .untilAsserted(() -> verify(namedJdbcTemplate).update(anyString(), any(MapSqlParameterSource.class)));
+    }
+
+    @Test
+    void writesAreFencedOnTheClaim() {
+        sink = sink();
+
+        sink.record(succeeded(1L, 0));
+        sink.record(failed(2L, 1));
+        sink.flush();
+
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(namedJdbcTemplate).update(sql.capture(), params.capture());
+        assertThat(sql.getValue()).contains("claimed_by = :owner");
+        assertThat(params.getValue().getValue("owner")).isEqualTo("node-a");
+
+        Object[] failure = lastFailureBatch(1).get(0);
+        assertThat(failure[failure.length - 2]).isEqualTo(2L);
+        assertThat(failure[failure.length - 1]).isEqualTo("node-a");
+    }
+
+    @Test
+    void outcomesOfJobsTakenOverAreCountedAndDropped() {
+        sink = sink();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 0 });
+
+        sink.record(failed(1L, 1));
+        sink.flush();
+        sink.flush();
+
+        // Dropped, not retried
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertThat(meterRegistry.counter("notification.status.sink.fenced").count()).isEqualTo(1);
+    }
+
+    @Test
+    void batchesWithoutRowCountsAreNeitherWrittenNorFenced() {
+        sink = sink();
+        when(namedJdbcTemplate.update(anyString(), any(MapSqlParameterSource.class))).thenReturn(0);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[] { Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO });
+
+        sink.record(succeeded(1L, 0));
+        sink.record(failed(2L, 1));
+        sink.record(failed(3L, 1));
+        sink.flush();
+
+        // Only the success the driver did report as unmatched counts as fenced
+        assertThat(meterRegistry.counter("notification.status.sink.fenced").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("notification.status.sink.unconfirmed").count()).isEqualTo(2);
+    }
+
+    @Test
+    void leaderWritesAreFencedOnTheTerm() {
+        clusterProperties.setMode(ClusterProperties.Mode.LEADER);
+        when(leaderElectionService.currentFencingToken())
+                .thenReturn(Optional.of(new FencingToken("notification-service", "node-a", 7)));
+        sink = sink();
+
+        sink.record(succeeded(1L, 0));
+        sink.record(failed(2L, 1));
+        sink.flush();
+
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(namedJdbcTemplate).update(sql.capture(), params.capture());
+        assertThat(sql.getValue()).contains("claimed_by = :owner").contains("le.epoch = :epoch");
+        assertThat(params.getValue().getValue("epoch")).isEqualTo(7L);
+
+        ArgumentCaptor<String> failureSql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).batchUpdate(failureSql.capture(), anyList());
+        assertThat(failureSql.getValue()).contains("le.epoch = ?");
+        Object[] failure = lastFailureBatch(1).get(0);
+        assertThat(Arrays.copyOfRange(failure, failure.length - 5, failure.length))
+                .containsExactly(2L, "node-a", "notification-service", "node-a", 7L);
+    }
+
+    @Test
+    void formerLeaderWritesNothing() {
+        clusterProperties.setMode(ClusterProperties.Mode.LEADER);
+        when(leaderElectionService.currentFencingToken()).thenReturn(Optional.empty());
+        sink = sink();
+
+        sink.record(succeeded(1L, 0));
+        sink.record(failed(2L, 1));
+        sink.flush();
+
+        verify(namedJdbcTemplate, never()).update(anyString(), any(MapSqlParameterSource.class));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(meterRegistry.counter("notification.status.sink.fenced").count()).isEqualTo(2);
+    }
+
+    private static int[] ones(List<?> rows) {
+        int[] counts = new int[rows.size()];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> lastFailureBatch(int calls) {
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(calls)).batchUpdate(anyString(), args.capture());
+        return args.getValue();
+    }
+
+    private StatusUpdateSink sink() {
+        CampaignExpander campaigns = mock(CampaignExpander.class);
+        return new StatusUpdateSink(properties, jdbcTemplate, namedJdbcTemplate,
+                mock(PlatformTransactionManager.class), mock(JobTracing.class), campaigns, leaderElectionService,
+                clusterProperties, meterRegistry);
+    }
+
+    private static NotificationJob failed(Long id, int attempts) {
+        NotificationJob job = job(id, NotificationStatus.FAILED, attempts);
+        job.setFailureReason(FailureReason.EXTERNAL_SERVICE_UNAVAILABLE);
+        job.setNextRetryAt(LocalDateTime.now().plusSeconds(30));
+        return job;
+    }
+
+    private static NotificationJob succeeded(Long id, int attempts) {
+        return job(id, NotificationStatus.SUCCESS, attempts);
+    }
+
+    private static NotificationJob job(Long id, NotificationStatus status, int attempts) {
+        NotificationJob job = new NotificationJob();
+        job.setId(id);
+        job.setStatus(status);
+        job.setAttemptCount(attempts);
+        job.setTargetUrl("https://api.vendor.com/send");
+        return job;
+    }
+}
@@ -0,0 +1,114 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.WalProperties;
+import com.notification.dto.NotificationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatcher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubmissionLogDrainerTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private SubmissionLogDrainer drainer;
+
+    @AfterEach
+    void tearDown() {
+        if (drainer != null) {
+            drainer.shutdown();
+        }
+    }
+
+    @Test
+    void poisonRecordIsDroppedAndTheRestApplied() throws IOException {
+        SubmissionLog log = log();
+        log.append(objectMapper.writeValueAsBytes(request("good-1")));
+        log.append(objectMapper.writeValueAsBytes(request("poison")));
+        log.append(objectMapper.writeValueAsBytes(request("good-2")));
+        when(notificationService.submitBatch(anyList())).thenAnswer(call -> {
+            List<NotificationRequest> requests = call.getArgument(0);
+            if (requests.stream().anyMatch(r -> r.getIdempotencyKey().equals("poison"))) {
+                throw new IllegalStateException("cannot apply");
+            }
+            return List.of();
+        });
+
+        start(log);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            verify(notificationService).submitBatch(argThat(batchOf("good-1")));
+            verify(notificationService).submitBatch(argThat(batchOf("good-2")));
+        });
+        // Dropped, the log moves on
+        await().atMost(Duration.ofSeconds(5)).until(() -> log().read(10).isEmpty());
+    }
+
+    @Test
+    void unavailableDatabaseKeepsTheRecords() throws IOException {
+        SubmissionLog log = log();
+        log.append(objectMapper.writeValueAsBytes(request("a")));
+        log.append(objectMapper.writeValueAsBytes(request("b")));
+        when(notificationService.submitBatch(anyList())).thenThrow(new CannotAcquireLockException("locked"));
+
+        start(log);
+
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> verify(notificationService, atLeast(1)).submitBatch(anyList()));
+        // Retried as a batch, never split up and dropped
+        verify(notificationService, never()).submitBatch(argThat(batchOf("a")));
+        assertThat(log().read(10)).hasSize(2);
+    }
+
+    private void start(SubmissionLog log) {
+        WalProperties properties = properties();
+        properties.setDrainInterval(Duration.ofMillis(10));
+        drainer = new SubmissionLogDrainer(log, notificationService, objectMapper, properties);
+        drainer.start();
+    }
+
+    private SubmissionLog log() throws IOException {
+        return new SubmissionLog(properties(), new SimpleMeterRegistry());
+    }
+
+    private WalProperties properties() {
+        WalProperties properties = new WalProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(DataSize.ofKilobytes(64));
+        return properties;
+    }
+
+    private static ArgumentMatcher<List<NotificationRequest>> batchOf(String key) {
+        return requests -> requests != null && requests.size() == 1
+                && requests.get(0).getIdempotencyKey().equals(key);
+    }
+
+    private static NotificationRequest request(String key) {
+        NotificationRequest request = new NotificationRequest();
+        request.setTargetUrl("https://api.vendor.com/send");
+        request.setIdempotencyKey(key);
+        return request;
+    }
+}
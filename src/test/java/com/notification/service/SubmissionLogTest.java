@@ -0,0 +1,132 @@
+package com.notification.service;
+
+import com.notification.config.WalProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubmissionLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void concurrentAppendsShareForcesAndAreAllReadable() throws Exception {
+        SubmissionLog log = log(DataSize.ofMegabytes(1));
+        int threads = 16;
+        int perThread = 50;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> appenders = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                appenders.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        log.append(bytes(thread + ":" + i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> appender : appenders) {
+                appender.get();
+            }
+        }
+
+        // Every acknowledged append is durable, each one exactly once
+        Set<String> read = new HashSet<>();
+        List<byte[]> records;
+        while (!(records = log.read(100)).isEmpty()) {
+            records.forEach(record -> read.add(new String(record, StandardCharsets.UTF_8)));
+            log.commit();
+        }
+        assertThat(read).hasSize(threads * perThread);
+        long forces = meterRegistry.timer("notification.wal.sync").count();
+        assertThat(forces).isPositive().isLessThanOrEqualTo(threads * perThread);
+    }
+
+    @Test
+    void readReturnsTheSameRecordsUntilCommitted() {
+        SubmissionLog log = log(DataSize.ofKilobytes(64));
+        log.append(bytes("a"));
+        log.append(bytes("b"));
+
+        assertThat(log.read(1)).singleElement().satisfies(r -> assertThat(r).isEqualTo(bytes("a")));
+        assertThat(log.read(1)).singleElement().satisfies(r -> assertThat(r).isEqualTo(bytes("a")));
+        log.commit();
+        assertThat(log.read(10)).singleElement().satisfies(r -> assertThat(r).isEqualTo(bytes("b")));
+    }
+
+    @Test
+    void recordsSurviveARestartAfterTheCheckpoint() {
+        SubmissionLog log = log(DataSize.ofKilobytes(64));
+        log.append(bytes("applied"));
+        log.read(10);
+        log.commit();
+        log.append(bytes("pending"));
+
+        SubmissionLog reopened = log(DataSize.ofKilobytes(64));
+
+        assertThat(reopened.read(10)).singleElement().satisfies(r -> assertThat(r).isEqualTo(bytes("pending")));
+    }
+
+    @Test
+    void corruptRecordInTheCurrentSegmentDoesNotStallTheReader() throws IOException {
+        SubmissionLog log = log(DataSize.ofKilobytes(64));
+        log.append(bytes("first"));
+        log.append(bytes("second"));
+        corrupt(directory.resolve(String.format("%020d.wal", 1)), 8);
+
+        assertThat(log.read(10)).isEmpty();
+        log.commit();
+        log.append(bytes("third"));
+
+        // The writer has left the corrupt segment and the reader followed it
+        assertThat(log.read(10)).singleElement().satisfies(r -> assertThat(r).isEqualTo(bytes("third")));
+    }
+
+    private SubmissionLog log(DataSize segmentSize) {
+        WalProperties properties = new WalProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(segmentSize);
+        try {
+            return new SubmissionLog(properties, meterRegistry);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void corrupt(Path segment, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.put(0, (byte) ~b.get(0));
+            channel.write(b.rewind(), offset);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
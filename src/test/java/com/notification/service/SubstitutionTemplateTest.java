@@ -0,0 +1,188 @@
+package com.notification.service;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Differential tests: whatever the fast path renders must be byte for byte what
+ * FreeMarker renders, and whatever it can't render it must hand back to FreeMarker.
+ */
+class SubstitutionTemplateTest {
+
+    private static final Configuration FREEMARKER = freemarker();
+
+    private static final String SPECIALS = "<>&\"'\\/\n\r\t\u0000\u001f\u007f  `{}$#";
+
+    @Test
+    void plainReferences() throws Exception {
+        assertSame("Hello ${name}, your code is ${code}.", Map.of("name", "Ada", "code", "X-1"));
+        assertSame("${a}${b}", Map.of("a", "", "b", "two"));
+        assertSame("no references at all", Map.of());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "json_string", "xml", "html", "xhtml" })
+    void escapes(String escape) throws Exception {
+        String content = "{\"v\":\"${value?" + escape + "}\"}";
+        assertSame(content, Map.of("value", SPECIALS));
+        assertSame(content, Map.of("value", "</script><!-- éü 中文 😀 -->"));
+        assertSame(content, Map.of("value", "plain"));
+    }
+
+    @Test
+    void unicodeAndSurrogates() throws Exception {
+        String content = "é 中 ${value} 😀";
+        assertSame(content, Map.of("value", "üࠀ￿🎉"));
+        // Lone surrogates become '?' in both
+        assertSame(content, Map.of("value", "a\udc00b"));
+        assertSame(content, Map.of("value", "a\ud800b"));
+        assertSame(content, Map.of("value", "\udc00"));
+        assertSame("${value?json_string}", Map.of("value", "x\ud800y\udfff"));
+    }
+
+    @Test
+    void valueEndingInAHighSurrogateFallsBack() {
+        SubstitutionTemplate template = SubstitutionTemplate.compile("${value}\udc00");
+
+        assertThat(template).isNotNull();
+        assertThat(template.render(Map.of("value", "x\ud83d"))).isNull();
+    }
+
+    @Test
+    void textEndingInAHighSurrogateIsNotCompiled() {
+        assertThat(SubstitutionTemplate.compile("x\ud83d${value}")).isNull();
+    }
+
+    @Test
+    void dottedPaths() throws Exception {
+        Map<String, Object> model = Map.of("user", Map.of("name", "Ada", "address", Map.of("city", "Zürich")));
+
+        assertSame("${user.name} lives in ${user.address.city?xml}", model);
+    }
+
+    @Test
+    void missingValuesFallBack() throws Exception {
+        assertFallsBack("Hello ${name}", Map.of());
+        assertFallsBack("Hello ${user.name}", Map.of("user", Map.of()));
+        assertFallsBack("Hello ${user.name}", Map.of());
+        assertFallsBack("Hello ${user.name}", Map.of("user", "not a map"));
+        Map<String, Object> nullValue = new HashMap<>();
+        nullValue.put("name", null);
+        assertFallsBack("Hello ${name}", nullValue);
+    }
+
+    @Test
+    void freeMarkerFailsOnMissingValuesTheFastPathLeavesToIt() {
+        assertThatThrownBy(() -> freemarker("Hello ${name}", Map.of())).isInstanceOf(TemplateException.class);
+    }
+
+    @Test
+    void nonStringValuesFallBack() throws Exception {
+        assertFallsBack("${value}", Map.of("value", 1234567));
+        assertFallsBack("${value}", Map.of("value", 3.5));
+        assertFallsBack("${value?json_string}", Map.of("value", true));
+        assertFallsBack("${value}", Map.of("value", List.of("a")));
+        assertFallsBack("${value}", Map.of("value", Map.of("a", "b")));
+        assertFallsBack("${value}", Map.of("value", new StringBuilder("built")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "<#if name??>${name}</#if>",
+            "<@greet name=name/>",
+            "[#if x]y[/#if]",
+            "[=name]",
+            "#{count}",
+            "${name!'anonymous'}",
+            "${name?upper_case}",
+            "${a + b}",
+            "${true}",
+            "${user.gt}",
+            "${ name }",
+            "${name",
+            "${}",
+            "${1name}"
+    })
+    void anythingBeyondReferencesIsNotCompiled(String content) {
+        assertThat(SubstitutionTemplate.compile(content)).isNull();
+    }
+
+    @Test
+    void randomValuesRenderTheSame() throws Exception {
+        Random random = new Random(42);
+        String alphabet = SPECIALS + "abcXYZ019 éß中ࠀ￿";
+        for (String escape : List.of("", "?json_string", "?xml", "?html", "?xhtml")) {
+            String content = "<p title=\"${a" + escape + "}\">${b.c" + escape + "}</p>";
+            for (int run = 0; run < 200; run++) {
+                Map<String, Object> model = Map.of("a", randomString(random, alphabet),
+                        "b", Map.of("c", randomString(random, alphabet)));
+                assertSame(content, model);
+            }
+        }
+    }
+
+    private static String randomString(Random random, String alphabet) {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(24);
+        for (int i = 0; i < length; i++) {
+            int pick = random.nextInt(alphabet.length() + 2);
+            if (pick == alphabet.length()) {
+                value.append("😀");
+            } else if (pick == alphabet.length() + 1) {
+                value.append('\udc00');
+            } else {
+                value.append(alphabet.charAt(pick));
+            }
+        }
+        return value.toString();
+    }
+
+    private static void assertSame(String content, Map<String, Object> model) throws Exception {
+        SubstitutionTemplate template = SubstitutionTemplate.compile(content);
+        assertThat(template).as("compiles %s", content).isNotNull();
+        byte[] fast = template.render(model);
+        assertThat(fast).as("renders %s with %s", content, model).isNotNull();
+        byte[] expected = freemarker(content, model);
+        assertThat(Arrays.equals(fast, expected))
+                .as("%s with %s: fast %s, FreeMarker %s", content, model,
+                        new String(fast, StandardCharsets.UTF_8), new String(expected, StandardCharsets.UTF_8))
+                .isTrue();
+    }
+
+    // Compiles, but leaves this model to FreeMarker, which may well fail on it
+    private static void assertFallsBack(String content, Map<String, Object> model) {
+        SubstitutionTemplate template = SubstitutionTemplate.compile(content);
+        assertThat(template).isNotNull();
+        assertThat(template.render(model)).isNull();
+    }
+
+    private static byte[] freemarker(String content, Map<String, Object> model) throws Exception {
+        Template template = new Template("test", new StringReader(content), FREEMARKER);
+        StringWriter writer = new StringWriter();
+        template.process(model, writer);
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // As TemplateService configures it
+    private static Configuration freemarker() {
+        Configuration configuration = new Configuration(Configuration.VERSION_2_3_32);
+        configuration.setDefaultEncoding("UTF-8");
+        return configuration;
+    }
+}
@@ -0,0 +1,70 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.ClusterProperties;
+import com.notification.config.RecoveryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TakeoverWarmupTest {
+
+    private static final String RELEASE = "UPDATE notification_job SET claimed_by = NULL";
+
+    private final QueueManager queueManager = mock(QueueManager.class);
+    private final LeaderElectionService leaderElectionService = mock(LeaderElectionService.class);
+    private final ClusterProperties clusterProperties = new ClusterProperties();
+    private final RecoveryProperties recoveryProperties = new RecoveryProperties();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private TakeoverWarmup warmup;
+
+    @BeforeEach
+    void setUp() {
+        recoveryProperties.setMaxBatchSize(2);
+        when(leaderElectionService.isLeader()).thenReturn(true);
+        when(leaderElectionService.currentFencingToken())
+                .thenReturn(Optional.of(new FencingToken("notification-service", "node-a", 7)));
+        // Queues already full, nothing is loaded into memory
+        when(queueManager.remainingCapacity(anyInt())).thenReturn(0);
+        warmup = new TakeoverWarmup(queueManager, mock(RetryTimerWheel.class), leaderElectionService,
+                clusterProperties, recoveryProperties, jdbcTemplate, mock(NamedParameterJdbcTemplate.class),
+                mock(PlatformTransactionManager.class), new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void claimsOfTheOldTermAreReleasedEvenWhenTheyDoNotFit() {
+        when(jdbcTemplate.update(startsWith(RELEASE), eq("node-a"), eq("notification-service"), eq("node-a"),
+                eq(7L), eq(2))).thenReturn(2, 2, 1);
+
+        warmup.warmUp();
+
+        verify(jdbcTemplate, times(3)).update(startsWith(RELEASE), eq("node-a"), eq("notification-service"),
+                eq("node-a"), eq(7L), eq(2));
+    }
+
+    @Test
+    void activeActiveNodesLeaveOtherClaimsToTheirLeases() {
+        clusterProperties.setMode(ClusterProperties.Mode.ACTIVE_ACTIVE);
+
+        warmup.warmUp();
+
+        verify(jdbcTemplate, never()).update(startsWith(RELEASE), anyString(), anyString(), anyString(), anyLong(),
+                anyInt());
+    }
+}
@@ -0,0 +1,59 @@
+package com.notification.service;
+
+import com.notification.config.TemplateCacheProperties;
+import com.notification.config.TemplateRenderProperties;
+import com.notification.repository.TemplateConfigRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TemplateServiceTest {
+
+    private final TemplateConfigRepository repository = mock(TemplateConfigRepository.class);
+    private final TemplateCacheProperties cacheProperties = new TemplateCacheProperties();
+
+    @Test
+    void knownNamesAreAnsweredFromMemory() {
+        when(repository.findIdByName("welcome")).thenReturn(Optional.of(5L));
+        TemplateService templates = templateService();
+
+        assertThat(templates.findIdByName("welcome")).contains(5L);
+        assertThat(templates.findIdByName("welcome")).contains(5L);
+
+        verify(repository, times(1)).findIdByName("welcome");
+    }
+
+    @Test
+    void unknownNamesAreLookedUpEveryTime() {
+        when(repository.findIdByName("welcome")).thenReturn(Optional.empty(), Optional.of(5L));
+        TemplateService templates = templateService();
+
+        assertThat(templates.findIdByName("welcome")).isEmpty();
+        // Created in the meantime
+        assertThat(templates.findIdByName("welcome")).contains(5L);
+    }
+
+    @Test
+    void namesAreCheckedAgainAfterTheRefreshInterval() {
+        cacheProperties.setRefreshInterval(Duration.ZERO);
+        when(repository.findIdByName("welcome")).thenReturn(Optional.of(5L), Optional.empty());
+        TemplateService templates = templateService();
+
+        assertThat(templates.findIdByName("welcome")).contains(5L);
+        // Deleted in the meantime
+        assertThat(templates.findIdByName("welcome")).isEmpty();
+    }
+
+    private TemplateService templateService() {
+        return new TemplateService(repository, cacheProperties, new TemplateRenderProperties(),
+                new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,118 @@
+package com.notification.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notification.config.BatchingProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.domain.NotificationStatus;
+import com.notification.repository.NotificationJobRepository;
+import com.notification.repository.TemplateConfigRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class VendorBatcherTest {
+
+    private final NotificationProcessor processor = mock(NotificationProcessor.class);
+    private final VendorCircuitBreakers circuitBreakers = mock(VendorCircuitBreakers.class);
+    private final OutboundHttpClients httpClients = mock(OutboundHttpClients.class);
+    private final List<VendorBatcher.Batch> ready = new CopyOnWriteArrayList<>();
+    private final VendorBatcher batcher = batcher();
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void jsonJobsOfOneTierShareABatch() {
+        assertThat(batcher.offer(job(1L, 3, null))).isTrue();
+        assertThat(batcher.offer(job(2L, 3, null))).isTrue();
+
+        assertThat(ready).hasSize(1);
+        assertThat(ready.get(0).jobs()).extracting(NotificationJob::getId).containsExactly(1L, 2L);
+        assertThat(ready.get(0).high()).isFalse();
+    }
+
+    @Test
+    void tiersAreNotMixed() {
+        batcher.offer(job(1L, 1, null));
+        batcher.offer(job(2L, 3, null));
+        batcher.offer(job(3L, 1, null));
+
+        assertThat(ready).hasSize(1);
+        assertThat(ready.get(0).high()).isTrue();
+        assertThat(ready.get(0).jobs()).extracting(NotificationJob::getId).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void textBodiesAreSentAlone() {
+        // Rendered templates are text/plain, they cannot go into a JSON array
+        assertThat(batcher.offer(job(1L, 3, 42L))).isFalse();
+
+        NotificationJob jsonTemplate = job(2L, 3, 42L);
+        jsonTemplate.setHeaders(Map.of("Content-Type", "application/json"));
+        assertThat(batcher.offer(jsonTemplate)).isTrue();
+    }
+
+    @Test
+    void openCircuitDefersTheBatchWithoutSending() {
+        batcher.offer(job(1L, 3, null));
+        batcher.offer(job(2L, 3, null));
+        LocalDateTime probeAt = LocalDateTime.now().plusSeconds(30);
+        when(circuitBreakers.blockedUntil("api.vendor.com")).thenReturn(probeAt);
+
+        boolean sent = batcher.deliver(ready.get(0), new DeliveryAttempt());
+
+        assertThat(sent).isFalse();
+        verify(processor).deferForOpenCircuit(ready.get(0).jobs().get(0), probeAt);
+        verify(processor).deferForOpenCircuit(ready.get(0).jobs().get(1), probeAt);
+        verifyNoInteractions(httpClients);
+    }
+
+    @Test
+    void recognizesJsonContentTypes() {
+        assertThat(VendorBatcher.isJson("application/json")).isTrue();
+        assertThat(VendorBatcher.isJson("application/json;charset=UTF-8")).isTrue();
+        assertThat(VendorBatcher.isJson("application/vnd.vendor+json")).isTrue();
+        assertThat(VendorBatcher.isJson("text/plain;charset=UTF-8")).isFalse();
+        assertThat(VendorBatcher.isJson("not a type")).isFalse();
+    }
+
+    private VendorBatcher batcher() {
+        BatchingProperties properties = new BatchingProperties();
+        BatchingProperties.HostBatching host = new BatchingProperties.HostBatching();
+        host.setEnabled(true);
+        host.setMaxBatchSize(2);
+        host.setLinger(Duration.ofMinutes(1));
+        properties.getHosts().put("api.vendor.com", host);
+        RequestBodyPreparer bodyPreparer = new RequestBodyPreparer(mock(TemplateService.class),
+                mock(NotificationJobRepository.class), new ObjectMapper());
+        VendorBatcher batcher = new VendorBatcher(properties, httpClients, bodyPreparer, mock(TemplateService.class),
+                mock(TemplateConfigRepository.class), processor, mock(VendorRateLimiter.class), circuitBreakers,
+                new ObjectMapper(), new SimpleMeterRegistry());
+        batcher.onBatchReady(ready::add);
+        return batcher;
+    }
+
+    private static NotificationJob job(Long id, int priority, Long templateId) {
+        NotificationJob job = new NotificationJob();
+        job.setId(id);
+        job.setPriority(priority);
+        job.setTemplateId(templateId);
+        job.setStatus(NotificationStatus.PENDING);
+        job.setTargetUrl("https://api.vendor.com/send");
+        return job;
+    }
+}
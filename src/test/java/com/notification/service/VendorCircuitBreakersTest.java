@@ -0,0 +1,150 @@
+package com.notification.service;
+
+import com.notification.config.CircuitBreakerProperties;
+import com.notification.service.VendorCircuitBreakers.State;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VendorCircuitBreakersTest {
+
+    private static final String HOST = "api.vendor.com";
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    void opensOnceTheFailureRateCrossesTheThreshold() {
+        VendorCircuitBreakers breakers = breakers(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            call(breakers, true);
+        }
+        assertThat(state(breakers)).isEqualTo(State.CLOSED); // below minimum calls
+        call(breakers, false);
+        assertThat(state(breakers)).isEqualTo(State.OPEN);
+        assertThat(breakers.blockedUntil(HOST)).isNotNull();
+    }
+
+    @Test
+    void staysClosedWhileFailuresAreBelowTheThreshold() {
+        VendorCircuitBreakers breakers = breakers(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 10; i++) {
+            call(breakers, i % 3 == 2);
+        }
+        assertThat(state(breakers)).isEqualTo(State.CLOSED);
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheConfiguredProbesThroughAndClosesWhenAllSucceed() {
+        VendorCircuitBreakers breakers = tripped();
+
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+        assertThat(state(breakers)).isEqualTo(State.HALF_OPEN);
+        assertThat(breakers.blockedUntil(HOST)).as("third probe").isNotNull();
+
+        breakers.onSuccess(HOST, FAST);
+        breakers.onSuccess(HOST, FAST);
+        assertThat(state(breakers)).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void aFailedProbeReopens() {
+        VendorCircuitBreakers breakers = tripped();
+
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+        breakers.onFailure(HOST, FAST);
+        assertThat(state(breakers)).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void unsentProbesGiveTheirSlotBack() {
+        VendorCircuitBreakers breakers = tripped();
+
+        for (int round = 0; round < 5; round++) {
+            assertThat(breakers.blockedUntil(HOST)).isNull();
+            assertThat(breakers.blockedUntil(HOST)).isNull();
+            breakers.onNotSent(HOST);
+            breakers.onNotSent(HOST);
+        }
+        assertThat(state(breakers)).isEqualTo(State.HALF_OPEN);
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+    }
+
+    @Test
+    void peekingTakesNoProbeSlot() {
+        VendorCircuitBreakers breakers = tripped();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(breakers.peekBlockedUntil(HOST)).isNull();
+        }
+        assertThat(state(breakers)).as("peek does not half-open").isEqualTo(State.OPEN);
+
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+        assertThat(breakers.peekBlockedUntil(HOST)).isNull();
+        assertThat(breakers.blockedUntil(HOST)).as("second probe still free").isNull();
+        assertThat(breakers.peekBlockedUntil(HOST)).isNotNull();
+    }
+
+    @Test
+    void peekSeesAnOpenBreaker() {
+        VendorCircuitBreakers breakers = breakers(Duration.ofMinutes(1));
+        assertThat(breakers.peekBlockedUntil(HOST)).isNull();
+
+        for (int i = 0; i < 4; i++) {
+            call(breakers, true);
+        }
+
+        assertThat(breakers.peekBlockedUntil(HOST)).isNotNull();
+    }
+
+    @Test
+    void slowCallsOpenTheBreakerToo() {
+        VendorCircuitBreakers breakers = breakers(Duration.ofMinutes(1));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(breakers.blockedUntil(HOST)).isNull();
+            breakers.onSuccess(HOST, TimeUnit.SECONDS.toNanos(2));
+        }
+        assertThat(state(breakers)).isEqualTo(State.OPEN);
+    }
+
+    // Open with an already elapsed open duration, so the next call is a probe
+    private static VendorCircuitBreakers tripped() {
+        VendorCircuitBreakers breakers = breakers(Duration.ZERO);
+        for (int i = 0; i < 4; i++) {
+            call(breakers, true);
+        }
+        assertThat(state(breakers)).isEqualTo(State.OPEN);
+        return breakers;
+    }
+
+    private static void call(VendorCircuitBreakers breakers, boolean failure) {
+        assertThat(breakers.blockedUntil(HOST)).isNull();
+        if (failure) {
+            breakers.onFailure(HOST, FAST);
+        } else {
+            breakers.onSuccess(HOST, FAST);
+        }
+    }
+
+    private static State state(VendorCircuitBreakers breakers) {
+        return breakers.snapshot().get(HOST).state();
+    }
+
+    private static VendorCircuitBreakers breakers(Duration openDuration) {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setWindowSize(10);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(0.5);
+        properties.setSlowCallThreshold(Duration.ofSeconds(1));
+        properties.setSlowCallRateThreshold(0.8);
+        properties.setOpenDuration(openDuration);
+        properties.setHalfOpenProbes(2);
+        return new VendorCircuitBreakers(properties);
+    }
+}
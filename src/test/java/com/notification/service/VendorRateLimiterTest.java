@@ -0,0 +1,132 @@
+package com.notification.service;
+
+import com.notification.config.RateLimitProperties;
+import com.notification.domain.NotificationJob;
+import com.notification.service.VendorRateLimiter.Admission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VendorRateLimiterTest {
+
+    private static final String HOST = "api.vendor.com";
+
+    private final List<Long> handedOver = new CopyOnWriteArrayList<>();
+    private VendorRateLimiter limiter;
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void parkedJobsAreHandedOverInArrivalOrderOnePerToken() {
+        limiter = limiter(20.0, 1, 0);
+
+        assertThat(limiter.acquireOrPark(HOST, job(1))).isEqualTo(Admission.PERMITTED);
+        for (long id = 2; id <= 5; id++) {
+            assertThat(limiter.acquireOrPark(HOST, job(id))).isEqualTo(Admission.PARKED);
+        }
+        assertThat(limiter.parkedCount()).isEqualTo(4);
+
+        long startedAt = System.nanoTime();
+        await().atMost(2, TimeUnit.SECONDS).until(() -> handedOver.size() == 4);
+        assertThat(handedOver).containsExactly(2L, 3L, 4L, 5L);
+        // 20/s with a burst of one: four more permits take about 200ms
+        assertThat(System.nanoTime() - startedAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(150));
+        assertThat(limiter.parkedCount()).isZero();
+    }
+
+    @Test
+    void newJobsQueueBehindParkedOnesEvenWhenATokenIsFree() {
+        limiter = limiter(5.0, 1, 0);
+
+        assertThat(limiter.acquireOrPark(HOST, job(1))).isEqualTo(Admission.PERMITTED);
+        assertThat(limiter.acquireOrPark(HOST, job(2))).isEqualTo(Admission.PARKED);
+        // Refill has happened by now, but job 2 is still first in line
+        sleep(250);
+        assertThat(limiter.acquireOrPark(HOST, job(3))).isEqualTo(Admission.PARKED);
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> handedOver.size() == 2);
+        assertThat(handedOver).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void releasedBulkheadSlotGoesToTheOldestParkedJob() {
+        limiter = limiter(0.0, 1, 1);
+
+        assertThat(limiter.acquireOrPark(HOST, job(1))).isEqualTo(Admission.PERMITTED);
+        assertThat(limiter.acquireOrPark(HOST, job(2))).isEqualTo(Admission.PARKED);
+        assertThat(limiter.acquireOrPark(HOST, job(3))).isEqualTo(Admission.PARKED);
+
+        limiter.release(HOST);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> handedOver.size() == 1);
+        sleep(100);
+        assertThat(handedOver).containsExactly(2L);
+
+        limiter.release(HOST);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> handedOver.size() == 2);
+        assertThat(handedOver).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void jobsBeyondMaxParkedAreTurnedAway() {
+        limiter = limiter(0.0, 1, 1, 2);
+
+        assertThat(limiter.acquireOrPark(HOST, job(1))).isEqualTo(Admission.PERMITTED);
+        assertThat(limiter.acquireOrPark(HOST, job(2))).isEqualTo(Admission.PARKED);
+        assertThat(limiter.acquireOrPark(HOST, job(3))).isEqualTo(Admission.PARKED);
+        assertThat(limiter.acquireOrPark(HOST, job(4))).isEqualTo(Admission.FULL);
+        assertThat(limiter.parkedCount()).isEqualTo(2);
+
+        // Room again once a parked job got its permit
+        limiter.release(HOST);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> handedOver.size() == 1);
+        assertThat(limiter.acquireOrPark(HOST, job(5))).isEqualTo(Admission.PARKED);
+    }
+
+    private VendorRateLimiter limiter(double requestsPerSecond, int burst, int maxInFlight) {
+        return limiter(requestsPerSecond, burst, maxInFlight, 0);
+    }
+
+    private VendorRateLimiter limiter(double requestsPerSecond, int burst, int maxInFlight, int maxParked) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getDefaults().setMaxParked(maxParked);
+        properties.getDefaults().setRequestsPerSecond(requestsPerSecond);
+        properties.getDefaults().setBurst(burst);
+        properties.getDefaults().setMaxInFlight(maxInFlight);
+        // Long enough that the bulkhead test only passes through the release hand-off
+        properties.setBulkheadRetryDelay(Duration.ofSeconds(10));
+        LeaderElectionService leaderElection = mock(LeaderElectionService.class);
+        when(leaderElection.getDispatchingNodeCount()).thenReturn(1);
+
+        VendorRateLimiter rateLimiter = new VendorRateLimiter(properties, leaderElection, new SimpleMeterRegistry());
+        rateLimiter.onPermitForParked(job -> handedOver.add(job.getId()));
+        return rateLimiter;
+    }
+
+    private static NotificationJob job(long id) {
+        NotificationJob job = new NotificationJob();
+        job.setId(id);
+        job.setTargetUrl("https://" + HOST + "/send");
+        return job;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.notification.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeightedFairSchedulingPolicyTest {
+
+    @Test
+    void saturatedLevelsAreServedByWeight() {
+        WeightedFairSchedulingPolicy policy = new WeightedFairSchedulingPolicy(Map.of(2, 3.0, 3, 1.0));
+        FakeLevels levels = new FakeLevels(1000, 1000);
+
+        int[] served = serve(policy, levels, 400);
+
+        assertThat(served[2]).isEqualTo(300);
+        assertThat(served[3]).isEqualTo(100);
+    }
+
+    @Test
+    void fractionalWeightsKeepTheirShare() {
+        WeightedFairSchedulingPolicy policy = new WeightedFairSchedulingPolicy(Map.of(2, 1.0, 3, 0.25));
+        FakeLevels levels = new FakeLevels(1000, 1000);
+
+        int[] served = serve(policy, levels, 500);
+
+        assertThat(served[2]).isEqualTo(400);
+        assertThat(served[3]).isEqualTo(100);
+    }
+
+    @Test
+    void singleBusyLevelGetsEverything() {
+        WeightedFairSchedulingPolicy policy = new WeightedFairSchedulingPolicy(Map.of(2, 3.0, 3, 1.0));
+        FakeLevels levels = new FakeLevels(0, 50);
+
+        int[] served = serve(policy, levels, 50);
+
+        assertThat(served[3]).isEqualTo(50);
+    }
+
+    @Test
+    void idleLevelDoesNotBuildUpABurst() {
+        WeightedFairSchedulingPolicy policy = new WeightedFairSchedulingPolicy(Map.of(2, 1.0, 3, 1.0));
+        FakeLevels levels = new FakeLevels(1000, 0);
+        serve(policy, levels, 100);
+
+        // Level 3 wakes up after a long idle stretch: it alternates, it does not take over
+        levels.queued[3] = 1000;
+        int[] served = serve(policy, levels, 10);
+
+        assertThat(served[2]).isEqualTo(5);
+        assertThat(served[3]).isEqualTo(5);
+    }
+
+    @Test
+    void agingPromotesALevelWaitingTooLong() {
+        SchedulingPolicy policy = new AgingSchedulingPolicy(new StrictPrioritySchedulingPolicy(),
+                Duration.ofSeconds(5));
+        FakeLevels levels = new FakeLevels(1000, 1000);
+
+        assertThat(policy.select(levels)).isEqualTo(2);
+
+        levels.headWait[3] = Duration.ofSeconds(6).toNanos();
+        assertThat(policy.select(levels)).isEqualTo(3);
+    }
+
+    private static int[] serve(SchedulingPolicy policy, FakeLevels levels, int count) {
+        int[] served = new int[4];
+        for (int i = 0; i < count; i++) {
+            int level = policy.select(levels);
+            assertThat(levels.isEmpty(level)).isFalse();
+            levels.queued[level]--;
+            served[level]++;
+        }
+        return served;
+    }
+
+    private static final class FakeLevels implements SchedulingPolicy.Levels {
+
+        private final int[] queued = new int[4];
+        private final long[] headWait = new long[4];
+
+        FakeLevels(int normal, int low) {
+            queued[2] = normal;
+            queued[3] = low;
+        }
+
+        @Override
+        public int[] priorities() {
+            return new int[] { 2, 3 };
+        }
+
+        @Override
+        public boolean isEmpty(int priority) {
+            return queued[priority] == 0;
+        }
+
+        @Override
+        public long headWaitNanos(int priority) {
+            return queued[priority] == 0 ? 0 : headWait[priority];
+        }
+    }
+}